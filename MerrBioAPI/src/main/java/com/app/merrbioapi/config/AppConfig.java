@@ -1,23 +1,28 @@
 package com.app.merrbioapi.config;
 
+import com.app.merrbioapi.model.entity.User;
+import com.app.merrbioapi.model.event.UserChangedEvent;
 import com.app.merrbioapi.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class AppConfig {
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public AppConfig(UserRepository userRepository) {
+    public AppConfig(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Bean
@@ -31,16 +36,24 @@ public class AppConfig {
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider(){
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder){
         DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
         authenticationProvider.setUserDetailsService(userDetailsService());
-        authenticationProvider.setPasswordEncoder(passwordEncoder());
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+        // Rehashes with the configured cost after a successful login with an older hash
+        authenticationProvider.setUserDetailsPasswordService(userDetailsPasswordService());
         return authenticationProvider;
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public UserDetailsPasswordService userDetailsPasswordService() {
+        return (userDetails, newEncodedPassword) -> {
+            User user = (User) userDetails;
+            user.setPassword(newEncodedPassword);
+            User saved = userRepository.save(user);
+            eventPublisher.publishEvent(new UserChangedEvent(saved.getId()));
+            return saved;
+        };
     }
 
     @Bean
@@ -1,17 +1,40 @@
 package com.app.merrbioapi.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
 @EnableScheduling
-public class AsyncConfig {
+public class AsyncConfig implements SchedulingConfigurer {
+
+    @Value("${app.scheduling.pool-size:8}")
+    private int schedulingPoolSize;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        // Set explicitly: the WebSocket broker's own scheduler would otherwise run every @Scheduled method
+        registrar.setTaskScheduler(taskScheduler());
+    }
+
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(schedulingPoolSize);
+        scheduler.setThreadNamePrefix("Scheduler-");
+        scheduler.initialize();
+        return scheduler;
+    }
 
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
@@ -19,8 +42,59 @@ public class AsyncConfig {
         executor.setCorePoolSize(2);
         executor.setMaxPoolSize(5);
         executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("Email-");
+        executor.setThreadNamePrefix("Async-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "notificationFanoutExecutor")
+    public Executor notificationFanoutExecutor() {
+        // CPU bound: each task writes one batch of pre-encoded frames
+        int processors = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(processors);
+        executor.setMaxPoolSize(processors);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("Fanout-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "moderationExecutor")
+    public Executor moderationExecutor() {
+        // Deferred moderation waits on Rekognition; one batch at a time, off the scheduler thread
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("Moderation-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "chatReplayExecutor")
+    public Executor chatReplayExecutor() {
+        // Reads missed chat messages for reconnecting sessions, away from the inbound channel's threads
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("ChatReplay-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "searchIndexExecutor")
+    public Executor searchIndexExecutor() {
+        // Postings are written off the shared pool. When the queue is full the message is dropped rather than
+        // failing the sender's commit; the indexing sweep picks it up.
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(1000);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setThreadNamePrefix("SearchIndex-");
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+}
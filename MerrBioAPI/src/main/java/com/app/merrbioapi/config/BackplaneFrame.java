@@ -0,0 +1,43 @@
+package com.app.merrbioapi.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.Set;
+
+/**
+ * Unit of traffic on the {@link BrokerBackplane}: a broker message already serialized by the publishing node,
+ * a notification for event streams, or an update to the cluster-wide user registry.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class BackplaneFrame implements Serializable {
+
+    public enum Type {
+        /** Broker message to re-publish on the receiving node */
+        MESSAGE,
+        /** Notification JSON for the event streams of {@code userName}, or of every user when it is null */
+        STREAM_EVENT,
+        /** First session of {@code userName} opened on the origin node */
+        USER_JOINED,
+        /** Last session of {@code userName} closed on the origin node */
+        USER_LEFT,
+        /** Complete set of users connected to the origin node */
+        SNAPSHOT,
+        /** Origin node started and asks the others for their snapshots */
+        NODE_JOINED,
+        /** Origin node is shutting down */
+        NODE_LEFT
+    }
+
+    private final Type type;
+    private final String originNodeId;
+    private final String destination;
+    private final String contentType;
+    private final byte[] payload;
+    private final String userName;
+    private final Set<String> userNames;
+}
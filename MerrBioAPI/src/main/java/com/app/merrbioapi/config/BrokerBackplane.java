@@ -0,0 +1,28 @@
+package com.app.merrbioapi.config;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Transport that connects the in-process STOMP brokers of several application nodes.
+ * <p>
+ * Each node joins with its own id and receives the frames other nodes publish to it. Implementations only move
+ * frames; routing, the shared user registry and re-injection into the local broker live in
+ * {@link com.app.merrbioapi.service.ClusterMessagingService}. A networked implementation (e.g. a shared pub/sub
+ * channel) plugs in next to {@link InMemoryBrokerBackplane}.
+ */
+public interface BrokerBackplane {
+
+    /**
+     * Registers a node. Frames published by other nodes are passed to {@code receiver}, in publish order.
+     */
+    void join(String nodeId, Consumer<BackplaneFrame> receiver);
+
+    void leave(String nodeId);
+
+    /**
+     * Delivers the frame to the given nodes, or to every other node when {@code targetNodeIds} is null.
+     * The publishing node never receives its own frame.
+     */
+    void publish(BackplaneFrame frame, Collection<String> targetNodeIds);
+}
@@ -0,0 +1,171 @@
+package com.app.merrbioapi.config;
+
+import com.app.merrbioapi.model.dto.response.ErrorResponse;
+import com.app.merrbioapi.util.AdaptiveConcurrencyLimit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sheds load before it queues up on the database pool.
+ * <p>
+ * Requests in a configured endpoint group (catalog, orders, chat, auth) must take a slot from that group's
+ * {@link AdaptiveConcurrencyLimit} and from a node-wide one. The limits grow while latency stays near its
+ * baseline and shrink when it climbs or requests fail with 5xx, so when MySQL slows down the number of requests
+ * waiting on connections shrinks with it. A request that finds no slot gets a fast 503 with {@code Retry-After}.
+ * Lower priority groups may fill only part of a limit, so catalog browsing is shed before order placement.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/v1";
+
+    private final ConcurrencyLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final AdaptiveConcurrencyLimit nodeLimit;
+    private final List<LimitedGroup> groups = new ArrayList<>();
+    private final List<String[]> highPriorityRoutes = new ArrayList<>();
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.nodeLimit = newLimit(properties.getNode());
+        registerGauges(meterRegistry, "node", nodeLimit);
+
+        for (Map.Entry<String, ConcurrencyLimitProperties.GroupProperties> entry : properties.getGroups().entrySet()) {
+            ConcurrencyLimitProperties.GroupProperties group = entry.getValue();
+            AdaptiveConcurrencyLimit limit = newLimit(group);
+            registerGauges(meterRegistry, entry.getKey(), limit);
+            Counter rejected = Counter.builder("http.concurrency.rejected")
+                    .description("Requests shed with 503 because no in-flight slot was free")
+                    .tag("group", entry.getKey())
+                    .register(meterRegistry);
+            groups.add(new LimitedGroup(List.copyOf(group.getPaths()), group.getPriority(), limit, rejected));
+        }
+        for (String route : properties.getHighPriority()) {
+            String[] methodAndPath = route.trim().split("\\s+", 2);
+            if (methodAndPath.length == 2) {
+                highPriorityRoutes.add(methodAndPath);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        String path = normalize(request.getServletPath());
+        LimitedGroup group = groupOf(path);
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        double share = priorityOf(request.getMethod(), path, group).getShare();
+        if (!nodeLimit.tryAcquire(share)) {
+            reject(group, response);
+            return;
+        }
+        if (!group.limit().tryAcquire(share)) {
+            nodeLimit.cancel();
+            reject(group, response);
+            return;
+        }
+
+        long started = System.nanoTime();
+        boolean dropped = true;
+        try {
+            filterChain.doFilter(request, response);
+            dropped = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            long finished = System.nanoTime();
+            group.limit().release(started, finished, dropped);
+            nodeLimit.release(started, finished, dropped);
+        }
+    }
+
+    private void reject(LimitedGroup group, HttpServletResponse response) throws IOException {
+        group.rejected().increment();
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .message("The service is busy. Please try again shortly")
+                .timestamp(Instant.now())
+                .build();
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    private LimitedGroup groupOf(String path) {
+        for (LimitedGroup group : groups) {
+            for (String pattern : group.paths()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return group;
+                }
+            }
+        }
+        return null;
+    }
+
+    private ConcurrencyLimitProperties.Priority priorityOf(String method, String path, LimitedGroup group) {
+        for (String[] route : highPriorityRoutes) {
+            if (route[0].equalsIgnoreCase(method) && pathMatcher.match(route[1], path)) {
+                return ConcurrencyLimitProperties.Priority.HIGH;
+            }
+        }
+        return group.priority();
+    }
+
+    private AdaptiveConcurrencyLimit newLimit(ConcurrencyLimitProperties.LimitProperties limit) {
+        return new AdaptiveConcurrencyLimit(limit.getInitialLimit(), limit.getMinLimit(), limit.getMaxLimit(),
+                properties.getBackoffRatio(), properties.getLatencyTolerance());
+    }
+
+    private static void registerGauges(MeterRegistry meterRegistry, String group, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder("http.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current adaptive in-flight request limit")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("http.concurrency.inflight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Requests currently holding an in-flight slot")
+                .tag("group", group)
+                .register(meterRegistry);
+    }
+
+    private static String normalize(String servletPath) {
+        return servletPath.startsWith(API_PREFIX + "/") ? servletPath.substring(API_PREFIX.length()) : servletPath;
+    }
+
+    private record LimitedGroup(List<String> paths, ConcurrencyLimitProperties.Priority priority,
+                                AdaptiveConcurrencyLimit limit, Counter rejected) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.app.merrbioapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    public enum Priority {
+        LOW(0.7),
+        NORMAL(0.9),
+        HIGH(1.0);
+
+        // Fraction of a limit requests of this priority may fill, leaving the rest to higher priorities
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+
+        public double getShare() {
+            return share;
+        }
+    }
+
+    private boolean enabled = true;
+    private long retryAfterSeconds = 1;
+    private double backoffRatio = 0.9;
+    private double latencyTolerance = 2.0;
+    // Shared by all groups, so low priority groups give way to high priority ones under pressure
+    private LimitProperties node = new LimitProperties();
+    private Map<String, GroupProperties> groups = new LinkedHashMap<>();
+    // Requests given HIGH priority whatever their group, as "METHOD /path/pattern"
+    private List<String> highPriority = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(long retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    public LimitProperties getNode() {
+        return node;
+    }
+
+    public void setNode(LimitProperties node) {
+        this.node = node;
+    }
+
+    public Map<String, GroupProperties> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(Map<String, GroupProperties> groups) {
+        this.groups = groups;
+    }
+
+    public List<String> getHighPriority() {
+        return highPriority;
+    }
+
+    public void setHighPriority(List<String> highPriority) {
+        this.highPriority = highPriority;
+    }
+
+    public static class LimitProperties {
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 200;
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+    }
+
+    public static class GroupProperties extends LimitProperties {
+        private List<String> paths = new ArrayList<>();
+        private Priority priority = Priority.NORMAL;
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        public void setPriority(Priority priority) {
+            this.priority = priority;
+        }
+    }
+}
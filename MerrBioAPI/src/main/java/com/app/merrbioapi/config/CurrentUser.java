@@ -0,0 +1,36 @@
+package com.app.merrbioapi.config;
+
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.UUID;
+
+/**
+ * Access to the {@link UserPrincipal} of the current request, built from the access token without touching
+ * the database.
+ */
+public final class CurrentUser {
+
+    private CurrentUser() {
+    }
+
+    public static UserPrincipal get() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal;
+        }
+        throw new AuthenticationCredentialsNotFoundException("No authenticated user");
+    }
+
+    public static UUID id() {
+        return get().getUserId();
+    }
+
+    /**
+     * The current user's farmer id, or null if the user is not a farmer
+     */
+    public static UUID farmerId() {
+        return get().getFarmerId();
+    }
+}
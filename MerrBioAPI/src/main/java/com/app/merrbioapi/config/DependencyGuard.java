@@ -0,0 +1,251 @@
+package com.app.merrbioapi.config;
+
+import com.app.merrbioapi.exception.DependencyUnavailableException;
+import com.app.merrbioapi.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Bulkhead and circuit breaker around one external dependency.
+ * <p>
+ * Calls run on the dependency's own bounded pool, so a slow dependency ties up its own threads and nothing
+ * else. Synchronous callers additionally pass a semaphore, which caps how many request threads can wait on the
+ * dependency at once, and give up after the call timeout; queued calls nobody waits for are cancelled by a
+ * watchdog after the same timeout. Failures, timeouts included, feed a {@link CircuitBreaker}; while it is open
+ * calls are refused immediately with {@link DependencyUnavailableException} and callers use their fallback.
+ * With fault injection on, every call first waits the injected latency and fails at the injected rate, which
+ * exercises these paths against local stand-ins.
+ */
+@Slf4j
+public class DependencyGuard {
+
+    private final String name;
+    private final ResilienceProperties.DependencyProperties settings;
+    private final boolean faultInjection;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor watchdog;
+    private final Semaphore callers;
+    private final CircuitBreaker breaker;
+
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Timer latency;
+
+    public DependencyGuard(String name, ResilienceProperties.DependencyProperties settings, boolean faultInjection,
+                           MeterRegistry meterRegistry) {
+        this.name = name;
+        this.settings = settings;
+        this.faultInjection = faultInjection;
+        this.callers = new Semaphore(settings.getMaxConcurrentCalls());
+        this.breaker = new CircuitBreaker(settings.getSlidingWindowSize(), settings.getMinimumCalls(),
+                settings.getFailureRateThreshold(), TimeUnit.MILLISECONDS.toNanos(settings.getOpenMs()),
+                settings.getHalfOpenProbes());
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(settings.getThreads(), settings.getThreads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        // Only cancels futures, so one thread is plenty
+        this.watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, name + "-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.succeeded = outcomeCounter(meterRegistry, "success");
+        this.failed = outcomeCounter(meterRegistry, "failure");
+        this.rejected = outcomeCounter(meterRegistry, "rejected");
+        this.latency = Timer.builder("dependency.latency")
+                .description("Time spent in calls to an external dependency")
+                .tag("dependency", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("dependency.circuit.state", breaker, circuit -> circuit.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half open")
+                .tag("dependency", name)
+                .register(meterRegistry);
+        Gauge.builder("dependency.queued", executor, pool -> pool.getQueue().size())
+                .description("Calls waiting for a thread of the dependency's pool")
+                .tag("dependency", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the circuit currently lets calls through, e.g. before draining a backlog
+     */
+    public boolean isAvailable() {
+        return breaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Runs the call on the dependency's pool and waits at most the call timeout for its result
+     *
+     * @throws DependencyUnavailableException if the call is refused or times out
+     */
+    public <T> T call(Callable<T> task) {
+        long permit = breaker.tryAcquire(System.nanoTime());
+        if (permit == CircuitBreaker.REFUSED) {
+            rejected.increment();
+            throw new DependencyUnavailableException(name + " is unavailable");
+        }
+        if (!callers.tryAcquire()) {
+            breaker.release(permit);
+            rejected.increment();
+            throw new DependencyUnavailableException(name + " is at its concurrency limit");
+        }
+        try {
+            Future<T> future;
+            try {
+                future = executor.submit(() -> timed(task));
+            } catch (RejectedExecutionException e) {
+                breaker.release(permit);
+                rejected.increment();
+                throw new DependencyUnavailableException(name + " is at its concurrency limit");
+            }
+            return await(future, permit);
+        } finally {
+            callers.release();
+        }
+    }
+
+    /**
+     * Queues the task on the dependency's pool without waiting for it. Once the task is accepted exactly one of
+     * {@code onSuccess} and {@code onFailure} runs: the first when the task returns, the second when it throws or
+     * has not finished within the call timeout, in which case it is cancelled. A task that times out may still
+     * have reached the dependency.
+     *
+     * @return false if the circuit is open or the queue is full, so the caller can keep the work for later
+     */
+    public boolean submit(Callable<?> task, Runnable onSuccess, Consumer<Throwable> onFailure) {
+        long permit = breaker.tryAcquire(System.nanoTime());
+        if (permit == CircuitBreaker.REFUSED) {
+            rejected.increment();
+            return false;
+        }
+        // Whoever settles first, the task or its watchdog, reports the outcome
+        AtomicBoolean settled = new AtomicBoolean();
+        Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    timed(task);
+                } catch (Throwable e) {
+                    if (settled.compareAndSet(false, true)) {
+                        recordFailure(permit);
+                        log.debug("Call to {} failed: {}", name, e.getMessage());
+                        onFailure.accept(e);
+                    }
+                    return;
+                }
+                if (settled.compareAndSet(false, true)) {
+                    recordSuccess(permit);
+                    onSuccess.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            breaker.release(permit);
+            rejected.increment();
+            return false;
+        }
+        watchdog.schedule(() -> {
+            if (settled.compareAndSet(false, true)) {
+                future.cancel(true);
+                recordFailure(permit);
+                log.debug("Call to {} did not finish within {} ms", name, settings.getTimeoutMs());
+                onFailure.accept(new TimeoutException(name + " did not answer within " + settings.getTimeoutMs() + " ms"));
+            }
+        }, settings.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    private <T> T await(Future<T> future, long permit) {
+        try {
+            T result = future.get(settings.getTimeoutMs(), TimeUnit.MILLISECONDS);
+            recordSuccess(permit);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            recordFailure(permit);
+            throw new DependencyUnavailableException(name + " did not answer within " + settings.getTimeoutMs() + " ms");
+        } catch (ExecutionException e) {
+            recordFailure(permit);
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new DependencyUnavailableException(name + " failed: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            breaker.release(permit);
+            throw new DependencyUnavailableException(name + " call was interrupted");
+        }
+    }
+
+    private <T> T timed(Callable<T> task) throws Exception {
+        long started = System.nanoTime();
+        try {
+            if (faultInjection) {
+                injectFault();
+            }
+            return task.call();
+        } finally {
+            latency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void injectFault() throws InterruptedException {
+        if (settings.getInjectedLatencyMs() > 0) {
+            Thread.sleep(settings.getInjectedLatencyMs());
+        }
+        if (ThreadLocalRandom.current().nextDouble() < settings.getInjectedFailureRate()) {
+            throw new IllegalStateException("Injected failure in " + name);
+        }
+    }
+
+    private void recordSuccess(long permit) {
+        succeeded.increment();
+        breaker.onSuccess(permit);
+    }
+
+    private void recordFailure(long permit) {
+        failed.increment();
+        breaker.onFailure(permit, System.nanoTime());
+    }
+
+    private Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("dependency.calls")
+                .description("Calls to an external dependency by outcome")
+                .tag("dependency", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
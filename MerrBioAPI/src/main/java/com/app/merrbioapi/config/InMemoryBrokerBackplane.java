@@ -0,0 +1,52 @@
+package com.app.merrbioapi.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * {@link BrokerBackplane} for running a cluster inside one JVM, e.g. in development or tests. Starting two
+ * contexts with different ports and {@code app.websocket.broker.backplane=in-memory} gives a two-node cluster
+ * with no external services; frames are handed between them through an {@link InMemoryBus}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.broker.backplane", havingValue = "in-memory")
+public class InMemoryBrokerBackplane implements BrokerBackplane {
+
+    private static final InMemoryBus<BackplaneFrame> BUS =
+            new InMemoryBus<>("backplane-", frame -> frame.getType() + " frame");
+
+    // Nodes joined through this bean, left again when its context closes
+    private final Set<String> ownNodeIds = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void join(String nodeId, Consumer<BackplaneFrame> receiver) {
+        BUS.join(nodeId, receiver);
+        ownNodeIds.add(nodeId);
+    }
+
+    @Override
+    public void leave(String nodeId) {
+        BUS.leave(nodeId);
+        ownNodeIds.remove(nodeId);
+    }
+
+    @Override
+    public void publish(BackplaneFrame frame, Collection<String> targetNodeIds) {
+        if (targetNodeIds == null) {
+            BUS.deliverToAll(frame, frame.getOriginNodeId());
+        } else {
+            targetNodeIds.forEach(nodeId -> BUS.deliver(frame, frame.getOriginNodeId(), nodeId));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ownNodeIds.forEach(this::leave);
+    }
+}
@@ -0,0 +1,93 @@
+package com.app.merrbioapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Node registry behind the in-memory transports. Transports keep one instance in a static field, so every
+ * application context in the JVM joins the same bus. Each node gets a single daemon thread that hands it
+ * messages asynchronously and in publish order, as a network transport would.
+ */
+@Slf4j
+final class InMemoryBus<M> {
+
+    private final String threadPrefix;
+    private final Function<M, String> describe;
+    private final Map<String, Node<M>> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * @param threadPrefix name prefix of the delivery threads, followed by the node id
+     * @param describe     names a message in the log when a receiver fails on it
+     */
+    InMemoryBus(String threadPrefix, Function<M, String> describe) {
+        this.threadPrefix = threadPrefix;
+        this.describe = describe;
+    }
+
+    /**
+     * Registers a node, replacing an earlier registration under the same id
+     */
+    void join(String nodeId, Consumer<M> receiver) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        Node<M> previous = nodes.put(nodeId, new Node<>(receiver, executor));
+        if (previous != null) {
+            previous.executor().shutdown();
+        }
+    }
+
+    void leave(String nodeId) {
+        Node<M> node = nodes.remove(nodeId);
+        if (node != null) {
+            node.executor().shutdown();
+        }
+    }
+
+    /**
+     * Delivers to one node, unless it is the origin or has not joined
+     */
+    void deliver(M message, String originNodeId, String nodeId) {
+        Node<M> node = nodes.get(nodeId);
+        if (node != null && !nodeId.equals(originNodeId)) {
+            deliver(message, nodeId, node);
+        }
+    }
+
+    /**
+     * Delivers to every node except the origin
+     */
+    void deliverToAll(M message, String originNodeId) {
+        nodes.forEach((nodeId, node) -> {
+            if (!nodeId.equals(originNodeId)) {
+                deliver(message, nodeId, node);
+            }
+        });
+    }
+
+    private void deliver(M message, String nodeId, Node<M> node) {
+        try {
+            node.executor().execute(() -> {
+                try {
+                    node.receiver().accept(message);
+                } catch (Exception e) {
+                    log.warn("Node {} failed to handle {}: {}", nodeId, describe.apply(message), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Node is leaving
+        }
+    }
+
+    private record Node<M>(Consumer<M> receiver, ExecutorService executor) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.app.merrbioapi.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Default {@link RevocationChannel}. A single node has nobody to tell, so this only shares revocations between
+ * application contexts in the same JVM, through an {@link InMemoryBus}; deployments with several processes
+ * configure a networked channel instead.
+ */
+@Component
+@ConditionalOnProperty(name = "app.security.revocation.channel", havingValue = "in-memory", matchIfMissing = true)
+public class InMemoryRevocationChannel implements RevocationChannel {
+
+    private static final InMemoryBus<TokenRevocation> BUS = new InMemoryBus<>("revocations-",
+            revocation -> "revocation of " + revocation.getScope() + " " + revocation.getId());
+
+    // Nodes joined through this bean, left again when its context closes
+    private final Set<String> ownNodeIds = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void join(String nodeId, Consumer<TokenRevocation> receiver) {
+        BUS.join(nodeId, receiver);
+        ownNodeIds.add(nodeId);
+    }
+
+    @Override
+    public void leave(String nodeId) {
+        BUS.leave(nodeId);
+        ownNodeIds.remove(nodeId);
+    }
+
+    @Override
+    public void publish(TokenRevocation revocation) {
+        BUS.deliverToAll(revocation, revocation.getOriginNodeId());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ownNodeIds.forEach(this::leave);
+    }
+}
@@ -1,6 +1,7 @@
 package com.app.merrbioapi.config;
 
 import com.app.merrbioapi.model.dto.response.ErrorResponse;
+import com.app.merrbioapi.service.UserPrincipalService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
@@ -12,8 +13,6 @@ import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -26,7 +25,7 @@ import java.util.List;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final UserPrincipalService userPrincipalService;
     private final ObjectMapper objectMapper;
     
     // Updated paths that don't need authentication
@@ -47,10 +46,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     public JwtAuthenticationFilter(
             JwtService jwtService,
-            UserDetailsService userDetailsService,
+            UserPrincipalService userPrincipalService,
             ObjectMapper objectMapper) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.userPrincipalService = userPrincipalService;
         this.objectMapper = objectMapper;
     }
 
@@ -77,16 +76,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String jwt = authHeader.substring(7);
 
         try {
-            final String userEmail = jwtService.extractUsername(jwt);
-
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+            // Parsed and verified once; the identity comes from the claims, so no user is loaded per request
+            final VerifiedToken token = jwtService.verifyAccessToken(jwt);
+
+            if (token.subject() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserPrincipal principal = jwtService.principalOf(token);
+                if (principal == null) {
+                    // Token issued before it carried identity claims
+                    principal = userPrincipalService.get(token.subject()).orElse(null);
+                }
 
-                if (jwtService.isAccessTokenValid(jwt, userDetails)) {
+                // A valid legacy token whose user has been deleted authenticates nobody
+                if (principal != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            principal,
                             null,
-                            userDetails.getAuthorities()
+                            principal.getAuthorities()
                     );
 
                     authToken.setDetails(
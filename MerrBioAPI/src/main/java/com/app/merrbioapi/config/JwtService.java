@@ -1,93 +1,168 @@
 package com.app.merrbioapi.config;
 
+import com.app.merrbioapi.model.enums.Role;
+import com.app.merrbioapi.util.BoundedTtlCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
-import java.util.function.Function;
 
+/**
+ * Issues and verifies JWTs.
+ * <p>
+ * Signing keys and parsers are built once per token type; both are immutable and thread-safe. A token is parsed
+ * and verified once into a {@link VerifiedToken}. Verified access tokens are kept in a {@link BoundedTtlCache}
+ * keyed by the SHA-256 digest of the token until they expire, so repeated requests with the same token skip the
+ * signature check and JSON parsing.
+ * <p>
+ * Access tokens carry the user id, role, display name and farmer id next to the email subject, so a request is
+ * authenticated from the token alone with {@link #principalOf(VerifiedToken)}. Each access token also has its
+ * own id and the id of the refresh token session it was issued for, which is what the {@link TokenDenylist}
+ * revokes by.
+ */
 @Service
 public class JwtService {
 
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_ROLE = "role";
+    static final String CLAIM_NAME = "name";
+    static final String CLAIM_FARMER_ID = "fid";
+    static final String CLAIM_SESSION_ID = "sid";
+
     private final JwtProperties jwtProperties;
-    private final UserDetailsService userDetailsService;
+    private final TokenDenylist tokenDenylist;
+
+    private final Key accessKey;
+    private final Key refreshKey;
+    private final JwtParser accessParser;
+    private final JwtParser refreshParser;
+
+    private final BoundedTtlCache<ByteBuffer, VerifiedToken> verifiedAccessTokens;
 
-    public JwtService(JwtProperties jwtProperties, UserDetailsService userDetailsService) {
+    public JwtService(JwtProperties jwtProperties, TokenDenylist tokenDenylist,
+                      @Value("${app.jwt.verified-cache-size:10000}") int verifiedCacheSize) {
         this.jwtProperties = jwtProperties;
-        this.userDetailsService = userDetailsService;
+        this.tokenDenylist = tokenDenylist;
+        this.accessKey = signingKey(jwtProperties.getAccessToken().getSecret());
+        this.refreshKey = signingKey(jwtProperties.getRefreshToken().getSecret());
+        this.accessParser = Jwts.parserBuilder().setSigningKey(accessKey).build();
+        this.refreshParser = Jwts.parserBuilder().setSigningKey(refreshKey).build();
+        this.verifiedAccessTokens = new BoundedTtlCache<>(verifiedCacheSize);
+    }
+
+    /**
+     * Verifies the signature and expiry of an access token, and that it has not been revoked
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is invalid, expired or revoked
+     */
+    public VerifiedToken verifyAccessToken(String token) {
+        ByteBuffer digest = digest(token);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedAccessTokens.get(digest, now);
+        if (cached != null) {
+            return checkNotRevoked(cached);
+        }
+
+        // Expired tokens are not cached and are re-parsed, so callers get the usual ExpiredJwtException
+        VerifiedToken verified = VerifiedToken.from(accessParser.parseClaimsJws(token).getBody());
+        verifiedAccessTokens.put(digest, verified, verified.expiresAt().toEpochMilli(), now);
+        return checkNotRevoked(verified);
+    }
+
+    /**
+     * Verifies the signature and expiry of a refresh token. Refresh tokens are used once, so they are not cached.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is invalid or expired
+     */
+    public VerifiedToken verifyRefreshToken(String token) {
+        return VerifiedToken.from(refreshParser.parseClaimsJws(token).getBody());
     }
 
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    public String generateAccessToken(UserDetails userDetails) {
+        return verifyAccessToken(token).subject();
+    }
+
+    /**
+     * Issues an access token for the principal within the refresh token session {@code sessionId}
+     */
+    public String generateAccessToken(UserPrincipal principal, UUID sessionId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(Claims.ID, UUID.randomUUID().toString());
+        claims.put(CLAIM_SESSION_ID, sessionId.toString());
+        claims.put(CLAIM_USER_ID, principal.getUserId().toString());
+        claims.put(CLAIM_ROLE, principal.getRole().name());
+        claims.put(CLAIM_NAME, principal.getDisplayName());
+        if (principal.getFarmerId() != null) {
+            claims.put(CLAIM_FARMER_ID, principal.getFarmerId().toString());
+        }
         return generateToken(
-                new HashMap<>(),
-                userDetails,
-                jwtProperties.getAccessToken().getSecret(),
+                claims,
+                principal.getEmail(),
+                accessKey,
                 jwtProperties.getAccessToken().getExpirationMs()
         );
     }
 
+    /**
+     * Builds the principal from the identity claims of a verified access token, or returns null for tokens
+     * issued before those claims existed
+     */
+    public UserPrincipal principalOf(VerifiedToken token) {
+        String userId = token.claim(CLAIM_USER_ID, String.class);
+        String role = token.claim(CLAIM_ROLE, String.class);
+        if (userId == null || role == null) {
+            return null;
+        }
+        String farmerId = token.claim(CLAIM_FARMER_ID, String.class);
+        try {
+            return new UserPrincipal(
+                    UUID.fromString(userId),
+                    token.subject(),
+                    Role.valueOf(role),
+                    token.claim(CLAIM_NAME, String.class),
+                    farmerId != null ? UUID.fromString(farmerId) : null);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Malformed identity claims", e);
+        }
+    }
+
     public String generateRefreshToken(UserDetails userDetails) {
         Map<String, Object> extraClaims = new HashMap<>();
         extraClaims.put("tokenId", UUID.randomUUID().toString());
 
         return generateToken(
                 extraClaims,
-                userDetails,
-                jwtProperties.getRefreshToken().getSecret(),
+                userDetails.getUsername(),
+                refreshKey,
                 jwtProperties.getRefreshToken().getExpirationMs()
         );
     }
 
-    public boolean isAccessTokenValid(String token, UserDetails userDetails) {
-        return isTokenValid(token, userDetails, jwtProperties.getAccessToken().getSecret());
-    }
-
     public boolean isRefreshTokenValid(String token, UserDetails userDetails) {
-        return isTokenValid(token, userDetails, jwtProperties.getRefreshToken().getSecret());
-    }
-
-    private boolean isTokenValid(String token, UserDetails userDetails, String secretKey) {
-        final String username = extractUsername(token, secretKey);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token, secretKey);
-    }
-
-    boolean isTokenExpired(String token, String secretKey) {
-        return extractExpiration(token, secretKey).before(new Date());
-    }
-
-    boolean isTokenExpired(String token) {
-        return extractExpriation(token).before(new Date());
-    }
-
-    private Date extractExpriation(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    private Date extractExpiration(String token, String secretKey) {
-        return extractClaim(token, Claims::getExpiration, secretKey);
+        return verifyRefreshToken(token).subject().equals(userDetails.getUsername());
     }
 
     public LocalDateTime getExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration)
-                .toInstant()
+        return verifyAccessToken(token).expiresAt()
                 .atZone(ZoneId.systemDefault())
                 .toLocalDateTime();
     }
@@ -100,70 +175,37 @@ public class JwtService {
         return jwtProperties.getRefreshToken().getExpirationMs();
     }
 
-    public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return generateToken(
-                extraClaims,
-                userDetails,
-                jwtProperties.getAccessToken().getSecret(),
-                jwtProperties.getAccessToken().getExpirationMs()
-        );
-    }
-
     private String generateToken(
             Map<String, Object> extraClaims,
-            UserDetails userDetails,
-            String secretKey,
+            String subject,
+            Key signingKey,
             long expiration) {
         return Jwts.builder()
                 .setClaims(extraClaims)
-                .setSubject(userDetails.getUsername())
+                .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(secretKey), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        return extractClaim(token, claimsResolver, jwtProperties.getAccessToken().getSecret());
-    }
-
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver, String secretKey) {
-        final Claims claims = extractAllClaims(token, secretKey);
-        return claimsResolver.apply(claims);
-    }
-
-    public Claims extractAllClaims(String token) {
-        return extractAllClaims(token, jwtProperties.getAccessToken().getSecret());
-    }
-
-    public Claims extractAllClaims(String token, String secretKey) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey(secretKey))
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private VerifiedToken checkNotRevoked(VerifiedToken token) {
+        if (tokenDenylist.isRevoked(token)) {
+            throw new JwtException("The access token has been revoked");
+        }
+        return token;
     }
 
-    private Key getSignInKey() {
-        return getSignInKey(jwtProperties.getAccessToken().getSecret());
+    private static ByteBuffer digest(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
-    private Key getSignInKey(String secretKey) {
+    private static Key signingKey(String secretKey) {
         byte[] keyBytes = Decoders.BASE64.decode(secretKey);
         return Keys.hmacShaKeyFor(keyBytes);
     }
-
-    public Authentication getAuthentication(String token) {
-        UserDetails userDetails = getUserDetails(token);
-        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-    }
-
-    UserDetails getUserDetails(String token) {
-        String username = extractUsername(token);
-        return userDetailsService.loadUserByUsername(username);
-    }
-
-    public String extractUsername(String token, String secretKey) {
-        return extractClaim(token, Claims::getSubject, secretKey);
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package com.app.merrbioapi.config;
+
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * STOMP encoder that encodes a fanned-out frame once per subscription id instead of once per session.
+ * <p>
+ * Messages carrying {@value #FRAME_KEY_HEADER} share payload and message id, so their encoded frames differ only in
+ * the subscription and destination headers, which together with the frame key form the cache key. Most clients
+ * use the same subscription ids, which makes the encoded bytes reusable across nearly all sessions. Other
+ * messages are encoded as usual.
+ */
+public class PreEncodedStompEncoder extends StompEncoder {
+
+    public static final String FRAME_KEY_HEADER = "merrbioFrameKey";
+
+    private static final int MAX_CACHED_FRAMES = 256;
+
+    private final Map<String, byte[]> frames = new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] encode(Map<String, Object> headers, byte[] payload) {
+        Object frameKey = headers.get(FRAME_KEY_HEADER);
+        if (frameKey == null) {
+            return super.encode(headers, payload);
+        }
+        if (frames.size() > MAX_CACHED_FRAMES) {
+            // Fan-outs finish within moments, so anything this old is no longer being written
+            frames.clear();
+        }
+        String key = frameKey + "|" + headers.get(SimpMessageHeaderAccessor.SUBSCRIPTION_ID_HEADER)
+                + "|" + headers.get(SimpMessageHeaderAccessor.DESTINATION_HEADER);
+        return frames.computeIfAbsent(key, k -> super.encode(headers, payload));
+    }
+}
@@ -0,0 +1,33 @@
+package com.app.merrbioapi.config;
+
+import com.app.merrbioapi.service.PresenceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Counts every inbound frame of an authenticated session, heartbeats included, as presence activity.
+ */
+@Component
+@RequiredArgsConstructor
+public class PresenceChannelInterceptor implements ChannelInterceptor {
+
+    private final PresenceService presenceService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        Map<String, Object> sessionAttributes = SimpMessageHeaderAccessor.getSessionAttributes(message.getHeaders());
+        if (sessionAttributes != null) {
+            Object principal = sessionAttributes.get(UserPrincipal.SESSION_ATTRIBUTE);
+            if (principal instanceof UserPrincipal userPrincipal) {
+                presenceService.touch(userPrincipal.getUserId());
+            }
+        }
+        return message;
+    }
+}
@@ -0,0 +1,201 @@
+package com.app.merrbioapi.config;
+
+import com.app.merrbioapi.model.dto.response.ErrorResponse;
+import com.app.merrbioapi.util.TokenBucketTable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiting in front of authentication.
+ * <p>
+ * Every request is assigned to the first route group whose paths match, and draws one token from a bucket of
+ * that group: the user's bucket when it carries a valid access token, otherwise the client address's. Verified
+ * tokens are cached by {@link JwtService}, so identifying the user here costs the authentication filter nothing
+ * extra. A request with a token first draws from its address's ceiling bucket, {@code address-factor} times
+ * the group's, before the token is verified; a flood of forged tokens from one address is refused before it
+ * costs a signature check, while users sharing an address behind NAT keep their own buckets. Responses carry {@code RateLimit-Limit}, {@code RateLimit-Remaining} and {@code RateLimit-Reset};
+ * rejected requests get 429 with {@code Retry-After}. Buckets live in a bounded {@link TokenBucketTable}.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String DEFAULT_GROUP = "default";
+    private static final String API_PREFIX = "/api/v1";
+
+    private final RateLimitProperties properties;
+    private final JwtService jwtService;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<RouteGroup> routeGroups = new ArrayList<>();
+    private final RouteGroup defaultGroup;
+    private final TokenBucketTable buckets;
+
+    private final Counter rejectedRequests;
+
+    public RateLimitFilter(RateLimitProperties properties, JwtService jwtService, ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jwtService = jwtService;
+        this.objectMapper = objectMapper;
+        this.buckets = new TokenBucketTable(properties.getStripes(), properties.getMaxKeys());
+
+        RouteGroup fallback = null;
+        for (Map.Entry<String, RateLimitProperties.GroupProperties> entry : properties.getGroups().entrySet()) {
+            RouteGroup group = RouteGroup.of(entry.getKey(), entry.getValue());
+            if (DEFAULT_GROUP.equals(entry.getKey()) && entry.getValue().getPaths().isEmpty()) {
+                fallback = group;
+            } else {
+                routeGroups.add(group);
+            }
+        }
+        this.defaultGroup = fallback;
+
+        this.rejectedRequests = Counter.builder("http.ratelimit.rejected")
+                .description("Requests refused with 429 because their bucket was empty")
+                .register(meterRegistry);
+        Gauge.builder("http.ratelimit.buckets", buckets, TokenBucketTable::size)
+                .description("Rate limit buckets currently held in memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !properties.isEnabled() || HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        RouteGroup group = groupOf(request.getServletPath());
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.nanoTime();
+        String address = request.getRemoteAddr();
+        String token = bearerToken(request);
+        if (token != null) {
+            int factor = Math.max(1, properties.getAddressFactor());
+            TokenBucketTable.Decision ceiling = buckets.tryAcquire(group.name() + "|addr:" + address, now,
+                    group.capacity() * factor, Math.max(1, group.intervalNanos() / factor));
+            if (!ceiling.allowed()) {
+                reject(response, group, ceiling);
+                return;
+            }
+        }
+
+        TokenBucketTable.Decision decision = buckets.tryAcquire(
+                group.name() + '|' + clientKey(token, address), now, group.capacity(), group.intervalNanos());
+        if (decision.allowed()) {
+            setLimitHeaders(response, group, decision);
+            filterChain.doFilter(request, response);
+            return;
+        }
+        reject(response, group, decision);
+    }
+
+    private void reject(HttpServletResponse response, RouteGroup group, TokenBucketTable.Decision decision)
+            throws IOException {
+        setLimitHeaders(response, group, decision);
+        rejectedRequests.increment();
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .message("Rate limit exceeded. Please slow down")
+                .timestamp(Instant.now())
+                .build();
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(toSeconds(decision.retryAfterNanos())));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    private void setLimitHeaders(HttpServletResponse response, RouteGroup group, TokenBucketTable.Decision decision) {
+        response.setHeader("RateLimit-Limit", String.valueOf(group.capacity()));
+        response.setHeader("RateLimit-Remaining", String.valueOf(decision.remaining()));
+        response.setHeader("RateLimit-Reset", String.valueOf(toSeconds(decision.resetNanos())));
+        response.setHeader("RateLimit-Policy", group.policy());
+    }
+
+    /**
+     * Drops buckets that have refilled, so memory follows the number of recently active clients
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-ms:10000}")
+    public void sweepIdleBuckets() {
+        buckets.removeIdle(System.nanoTime());
+    }
+
+    private RouteGroup groupOf(String servletPath) {
+        String path = servletPath.startsWith(API_PREFIX + "/") ? servletPath.substring(API_PREFIX.length()) : servletPath;
+        for (RouteGroup group : routeGroups) {
+            for (String pattern : group.paths()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return group;
+                }
+            }
+        }
+        return defaultGroup;
+    }
+
+    private static String bearerToken(HttpServletRequest request) {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        return authHeader != null && authHeader.startsWith("Bearer ") ? authHeader.substring(7) : null;
+    }
+
+    private String clientKey(String token, String address) {
+        if (token != null) {
+            try {
+                VerifiedToken verified = jwtService.verifyAccessToken(token);
+                if (verified.subject() != null) {
+                    return "user:" + verified.subject();
+                }
+            } catch (JwtException | IllegalArgumentException e) {
+                // Rejected by the authentication filter; until then it counts against the address
+            }
+        }
+        return "ip:" + address;
+    }
+
+    private static long toSeconds(long nanos) {
+        return Math.max(0, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private record RouteGroup(String name, List<String> paths, int capacity, long intervalNanos, String policy) {
+
+        static RouteGroup of(String name, RateLimitProperties.GroupProperties properties) {
+            int capacity = Math.max(1, properties.getCapacity());
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / properties.getRefillPerSecond());
+            // Window in which a full bucket refills, as the draft header expresses a policy
+            long windowSeconds = Math.max(1, Math.round(capacity / properties.getRefillPerSecond()));
+            return new RouteGroup(name, List.copyOf(properties.getPaths()), capacity, intervalNanos,
+                    capacity + ";w=" + windowSeconds);
+        }
+    }
+}
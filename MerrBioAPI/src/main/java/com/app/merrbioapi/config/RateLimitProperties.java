@@ -0,0 +1,92 @@
+package com.app.merrbioapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    private int maxKeys = 100000;
+    private int stripes = 64;
+    // Every address also has a bucket this many times a group's, checked before any access token is verified
+    private int addressFactor = 10;
+    // Matched in declaration order; a group named "default" without paths takes everything else
+    private Map<String, GroupProperties> groups = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public int getAddressFactor() {
+        return addressFactor;
+    }
+
+    public void setAddressFactor(int addressFactor) {
+        this.addressFactor = addressFactor;
+    }
+
+    public Map<String, GroupProperties> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(Map<String, GroupProperties> groups) {
+        this.groups = groups;
+    }
+
+    public static class GroupProperties {
+        private List<String> paths = new ArrayList<>();
+        private int capacity = 100;
+        private double refillPerSecond = 10;
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.app.merrbioapi.config;
+
+import com.amazonaws.services.rekognition.AbstractAmazonRekognition;
+import com.amazonaws.services.rekognition.AmazonRekognition;
+import com.amazonaws.services.rekognition.model.DetectModerationLabelsRequest;
+import com.amazonaws.services.rekognition.model.DetectModerationLabelsResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One {@link DependencyGuard} per external dependency, and local stand-ins for those dependencies so breakers,
+ * bulkheads and fallbacks can be exercised with fault injection without AWS or an SMTP server.
+ */
+@Configuration
+@Slf4j
+public class ResilienceConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public DependencyGuard rekognitionGuard(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        return new DependencyGuard("rekognition", properties.dependency("rekognition"),
+                properties.isFaultInjection(), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public DependencyGuard mailGuard(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        return new DependencyGuard("mail", properties.dependency("mail"),
+                properties.isFaultInjection(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "app.resilience.stand-ins", havingValue = "true")
+    public AmazonRekognition localRekognition() {
+        log.warn("Using the local Rekognition stand-in: every image passes moderation");
+        return new AbstractAmazonRekognition() {
+            @Override
+            public DetectModerationLabelsResult detectModerationLabels(DetectModerationLabelsRequest request) {
+                return new DetectModerationLabelsResult().withModerationLabels(List.of());
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.resilience.stand-ins", havingValue = "true")
+    public JavaMailSender localMailSender() {
+        log.warn("Using the local mail stand-in: emails are logged, not sent");
+        return new JavaMailSenderImpl() {
+            @Override
+            protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+                for (MimeMessage message : mimeMessages) {
+                    try {
+                        log.info("Stand-in mail to {}: {}", Arrays.toString(message.getAllRecipients()), message.getSubject());
+                    } catch (MessagingException e) {
+                        throw new MailPreparationException(e);
+                    }
+                }
+            }
+        };
+    }
+}
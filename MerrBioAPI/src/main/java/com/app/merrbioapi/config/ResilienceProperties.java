@@ -0,0 +1,151 @@
+package com.app.merrbioapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.resilience")
+public class ResilienceProperties {
+
+    // Applies the injected failure rate and latency of each dependency; for testing only
+    private boolean faultInjection = false;
+    // Replaces Rekognition and SMTP with local stand-ins
+    private boolean standIns = false;
+    private Map<String, DependencyProperties> dependencies = new LinkedHashMap<>();
+
+    public boolean isFaultInjection() {
+        return faultInjection;
+    }
+
+    public void setFaultInjection(boolean faultInjection) {
+        this.faultInjection = faultInjection;
+    }
+
+    public boolean isStandIns() {
+        return standIns;
+    }
+
+    public void setStandIns(boolean standIns) {
+        this.standIns = standIns;
+    }
+
+    public Map<String, DependencyProperties> getDependencies() {
+        return dependencies;
+    }
+
+    public void setDependencies(Map<String, DependencyProperties> dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Returns the settings of a dependency, or the defaults if none are configured
+     */
+    public DependencyProperties dependency(String name) {
+        return dependencies.getOrDefault(name, new DependencyProperties());
+    }
+
+    public static class DependencyProperties {
+        private int threads = 4;
+        private int queueCapacity = 100;
+        private int maxConcurrentCalls = 4;
+        private long timeoutMs = 5000;
+        private int slidingWindowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        private long openMs = 30000;
+        private int halfOpenProbes = 3;
+        private double injectedFailureRate = 0;
+        private long injectedLatencyMs = 0;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        public void setTimeoutMs(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+
+        public int getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+
+        public void setSlidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public double getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public long getOpenMs() {
+            return openMs;
+        }
+
+        public void setOpenMs(long openMs) {
+            this.openMs = openMs;
+        }
+
+        public int getHalfOpenProbes() {
+            return halfOpenProbes;
+        }
+
+        public void setHalfOpenProbes(int halfOpenProbes) {
+            this.halfOpenProbes = halfOpenProbes;
+        }
+
+        public double getInjectedFailureRate() {
+            return injectedFailureRate;
+        }
+
+        public void setInjectedFailureRate(double injectedFailureRate) {
+            this.injectedFailureRate = injectedFailureRate;
+        }
+
+        public long getInjectedLatencyMs() {
+            return injectedLatencyMs;
+        }
+
+        public void setInjectedLatencyMs(long injectedLatencyMs) {
+            this.injectedLatencyMs = injectedLatencyMs;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.app.merrbioapi.config;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport that keeps the access token denylists of several application nodes in sync.
+ * <p>
+ * Each node joins with its own id and receives the revocations other nodes publish. A node that joins late
+ * only misses revocations of tokens that are at most one access token lifetime old. A networked implementation
+ * (e.g. a shared pub/sub channel) plugs in next to {@link InMemoryRevocationChannel}.
+ */
+public interface RevocationChannel {
+
+    /**
+     * Registers a node. Revocations published by other nodes are passed to {@code receiver}.
+     */
+    void join(String nodeId, Consumer<TokenRevocation> receiver);
+
+    void leave(String nodeId);
+
+    /**
+     * Delivers the revocation to every node except the one it originates from
+     */
+    void publish(TokenRevocation revocation);
+}
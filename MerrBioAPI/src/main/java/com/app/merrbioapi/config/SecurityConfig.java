@@ -1,5 +1,6 @@
 package com.app.merrbioapi.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod; // Import HttpMethod
@@ -22,6 +23,8 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
     private final UserDetailsService userDetailsService;
     private final AuthenticationProvider authenticationProvider;
 
@@ -76,8 +79,12 @@ public class SecurityConfig {
     };
 
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthFilter, UserDetailsService userDetailsService, AuthenticationProvider authenticationProvider) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthFilter, RateLimitFilter rateLimitFilter,
+                          ConcurrencyLimitFilter concurrencyLimitFilter, UserDetailsService userDetailsService,
+                          AuthenticationProvider authenticationProvider) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.rateLimitFilter = rateLimitFilter;
+        this.concurrencyLimitFilter = concurrencyLimitFilter;
         this.userDetailsService = userDetailsService;
         this.authenticationProvider = authenticationProvider;
     }
@@ -91,13 +98,19 @@ public class SecurityConfig {
                 .httpBasic(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Async dispatches (e.g. a notification stream completing) were authorized on the original request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(PUBLIC_PATHS_GENERAL).permitAll() // Permit general public paths for any method
                         .requestMatchers(HttpMethod.GET, PUBLIC_PATHS_GET_ONLY).permitAll() // Permit specific GET paths
                         .anyRequest().authenticated() // All other requests need authentication
                 )
                 .userDetailsService(userDetailsService)
                 .authenticationProvider(authenticationProvider)
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // Runs first, so throttled requests never reach token checks or the database
+                .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class)
+                // Same position, added later: sheds what the rate limiter let through, still before any token work
+                .addFilterBefore(concurrencyLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -0,0 +1,219 @@
+package com.app.merrbioapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one slow client from holding up everyone else's outbound traffic.
+ * <p>
+ * Every WebSocket session is wrapped so the time spent in the actual socket write is known. A session whose
+ * current write has been running longer than the lag threshold counts as lagging. Outbound messages for a lagging
+ * session that carry a {@value #COALESCE_KEY_HEADER} header are held back, and only the latest per destination and
+ * key is kept; they are flushed once the socket drains. Sessions stuck beyond the send time limit are closed even
+ * if nothing else is sent to them, and the client resumes through sequence gap fill when it reconnects.
+ */
+@Component
+@Slf4j
+public class SlowConsumerGuard implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    /**
+     * Native header marking a message as superseded by a later one with the same destination and key
+     */
+    public static final String COALESCE_KEY_HEADER = "coalesce-key";
+
+    private final Map<String, GuardedSession> sessions = new ConcurrentHashMap<>();
+
+    // Lazy: the outbound channel is built from the configurer this interceptor is registered on
+    @Autowired
+    @Lazy
+    @Qualifier("clientOutboundChannel")
+    private MessageChannel clientOutboundChannel;
+
+    @Value("${app.websocket.outbound.lag-threshold-ms:1000}")
+    private long lagThresholdMs;
+
+    @Value("${app.websocket.transport.send-time-limit-ms:10000}")
+    private long sendTimeLimitMs;
+
+    private final Timer sendLatency;
+    private final Counter coalescedMessages;
+    private final Counter evictedSessions;
+
+    public SlowConsumerGuard(MeterRegistry meterRegistry) {
+        this.sendLatency = Timer.builder("websocket.outbound.send.latency")
+                .description("Time spent writing one frame to a client socket")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.coalescedMessages = Counter.builder("websocket.outbound.coalesced")
+                .description("Outbound messages replaced by a newer one while the session was lagging")
+                .register(meterRegistry);
+        this.evictedSessions = Counter.builder("websocket.sessions.evicted")
+                .description("Sessions closed because their socket stopped draining")
+                .register(meterRegistry);
+        Gauge.builder("websocket.sessions.lagging", sessions, this::countLagging)
+                .description("Sessions whose current socket write exceeds the lag threshold")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                GuardedSession guarded = new GuardedSession(session);
+                sessions.put(session.getId(), guarded);
+                super.afterConnectionEstablished(guarded);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        GuardedSession session = sessionId != null ? sessions.get(sessionId) : null;
+        if (session == null || !session.isLagging(System.nanoTime())) {
+            return message;
+        }
+        String coalesceKey = coalesceKeyOf(message);
+        if (coalesceKey == null) {
+            return message;
+        }
+        if (session.coalesced.put(coalesceKey, message) != null) {
+            coalescedMessages.increment();
+        }
+        return null;
+    }
+
+    /**
+     * Closes sessions whose socket write has been stuck past the send time limit. Spring only checks that limit
+     * when the next message is sent, so an idle but stuck session would otherwise hold its buffer indefinitely.
+     */
+    @Scheduled(fixedDelayString = "${app.websocket.outbound.sweep-ms:1000}")
+    public void evictStuckSessions() {
+        long now = System.nanoTime();
+        for (GuardedSession session : sessions.values()) {
+            long started = session.sendStartedNanos;
+            if (started != 0 && now - started > TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs)) {
+                evict(session);
+            } else if (started == 0 && !session.coalesced.isEmpty()) {
+                flush(session);
+            }
+        }
+    }
+
+    private void evict(GuardedSession session) {
+        if (sessions.remove(session.getId()) == null) {
+            return;
+        }
+        evictedSessions.increment();
+        log.warn("Closing slow WebSocket session {}: socket write stuck for more than {} ms", session.getId(), sendTimeLimitMs);
+        try {
+            session.getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("Failed to close session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private void flush(GuardedSession session) {
+        List<Message<?>> pending = new ArrayList<>(session.coalesced.size());
+        for (String key : List.copyOf(session.coalesced.keySet())) {
+            Message<?> message = session.coalesced.remove(key);
+            if (message != null) {
+                pending.add(message);
+            }
+        }
+        pending.forEach(clientOutboundChannel::send);
+    }
+
+    private String coalesceKeyOf(Message<?> message) {
+        String coalesceKey = NativeMessageHeaderAccessor.getFirstNativeHeader(
+                COALESCE_KEY_HEADER, message.getHeaders());
+        if (coalesceKey == null) {
+            return null;
+        }
+        Object destination = message.getHeaders().get(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        if (destination == null) {
+            destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        }
+        return destination + "|" + coalesceKey;
+    }
+
+    private int countLagging(Map<String, GuardedSession> sessions) {
+        long now = System.nanoTime();
+        int lagging = 0;
+        for (GuardedSession session : sessions.values()) {
+            if (session.isLagging(now)) {
+                lagging++;
+            }
+        }
+        return lagging;
+    }
+
+    /**
+     * Session handed to the STOMP handler. Spring's concurrent send decorator wraps it and calls
+     * {@link #sendMessage} from one thread at a time, so this sees each real socket write.
+     */
+    private class GuardedSession extends WebSocketSessionDecorator {
+
+        private final Map<String, Message<?>> coalesced = new ConcurrentHashMap<>();
+        private volatile long sendStartedNanos;
+
+        GuardedSession(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        boolean isLagging(long now) {
+            long started = sendStartedNanos;
+            return started != 0 && now - started > TimeUnit.MILLISECONDS.toNanos(lagThresholdMs);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            long started = System.nanoTime();
+            sendStartedNanos = started;
+            try {
+                super.sendMessage(message);
+            } finally {
+                sendStartedNanos = 0;
+                sendLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+            if (!coalesced.isEmpty()) {
+                flush(this);
+            }
+        }
+    }
+}
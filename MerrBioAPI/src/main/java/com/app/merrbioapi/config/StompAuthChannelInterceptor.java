@@ -0,0 +1,78 @@
+package com.app.merrbioapi.config;
+
+import com.app.merrbioapi.service.UserPrincipalService;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Authenticates a STOMP session on its CONNECT frame. The JWT comes from the {@code Authorization} native
+ * header or from the {@code token} query parameter captured during the handshake. Sessions can outlive the
+ * token, so the user is checked against current state once here, through the principal cache, and every later
+ * frame of the session reuses the resulting {@link UserPrincipal}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    public static final String HANDSHAKE_TOKEN_ATTRIBUTE = "merrbio.handshakeToken";
+
+    private final JwtService jwtService;
+    private final UserPrincipalService userPrincipalService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+
+        Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+        String token = resolveToken(accessor, sessionAttributes);
+        if (token == null) {
+            return message;
+        }
+
+        try {
+            String email = jwtService.verifyAccessToken(token).subject();
+            UserPrincipal principal = userPrincipalService.get(email).orElse(null);
+
+            if (principal != null) {
+                accessor.setUser(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+                if (sessionAttributes != null) {
+                    sessionAttributes.put(UserPrincipal.SESSION_ATTRIBUTE, principal);
+                    sessionAttributes.remove(HANDSHAKE_TOKEN_ATTRIBUTE);
+                }
+            }
+        } catch (JwtException e) {
+            log.debug("Rejected STOMP CONNECT token: {}", e.getMessage());
+        }
+
+        return message;
+    }
+
+    private String resolveToken(StompHeaderAccessor accessor, Map<String, Object> sessionAttributes) {
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+        if (sessionAttributes != null) {
+            Object handshakeToken = sessionAttributes.get(HANDSHAKE_TOKEN_ATTRIBUTE);
+            if (handshakeToken instanceof String tokenValue && !tokenValue.isEmpty()) {
+                return tokenValue;
+            }
+        }
+        return null;
+    }
+}
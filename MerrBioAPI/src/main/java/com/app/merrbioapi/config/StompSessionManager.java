@@ -0,0 +1,300 @@
+package com.app.merrbioapi.config;
+
+import com.app.merrbioapi.util.HashedTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds and reaps STOMP sessions so a node's memory stays predictable under connection storms.
+ * <p>
+ * Every session reserves a fixed estimate of its memory against a node budget. Handshakes are refused with 503
+ * once the node is at its session cap or budget. On CONNECT the session is tied to its user; beyond the per-user
+ * cap the user's oldest session is closed, since that is usually a tab or device that went away. A hashed timing
+ * wheel expires sessions without inbound traffic: a session whose client promised heartbeats is reaped after a
+ * few missed ones, other sessions after the longer idle timeout, and sockets that never sent CONNECT after the
+ * connect timeout. Live counts are exposed as metrics.
+ */
+@Component
+@Slf4j
+public class StompSessionManager implements HandshakeInterceptor, WebSocketHandlerDecoratorFactory, ChannelInterceptor {
+
+    // Missed heartbeats tolerated before a session counts as dead
+    private static final int MISSED_HEARTBEATS = 3;
+
+    @Value("${app.websocket.sessions.max-per-node:20000}")
+    private int maxPerNode;
+
+    @Value("${app.websocket.sessions.max-per-user:5}")
+    private int maxPerUser;
+
+    @Value("${app.websocket.sessions.memory-budget-mb:512}")
+    private long memoryBudgetMb;
+
+    @Value("${app.websocket.sessions.estimated-session-bytes:32768}")
+    private long estimatedSessionBytes;
+
+    @Value("${app.websocket.sessions.connect-timeout-ms:30000}")
+    private long connectTimeoutMs;
+
+    @Value("${app.websocket.sessions.idle-timeout-ms:1800000}")
+    private long idleTimeoutMs;
+
+    @Value("${app.websocket.sessions.reap-tick-ms:1000}")
+    private long reapTickMs;
+
+    @Value("${app.websocket.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    private final Map<String, ManagedSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<ManagedSession>> sessionsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger admitted = new AtomicInteger();
+    private HashedTimingWheel<String> idleWheel;
+
+    private final Counter rejectedSessions;
+    private final Counter evictedSessions;
+    private final Counter reapedSessions;
+
+    public StompSessionManager(MeterRegistry meterRegistry) {
+        this.rejectedSessions = Counter.builder("websocket.sessions.rejected")
+                .description("Handshakes or sessions refused because the node was at its session cap or memory budget")
+                .register(meterRegistry);
+        this.evictedSessions = Counter.builder("websocket.sessions.user.evicted")
+                .description("Oldest sessions closed because their user opened more than the per-user cap")
+                .register(meterRegistry);
+        this.reapedSessions = Counter.builder("websocket.sessions.reaped")
+                .description("Sessions closed because no inbound frame arrived within their idle deadline")
+                .register(meterRegistry);
+        Gauge.builder("websocket.sessions.active", admitted, AtomicInteger::get)
+                .description("STOMP sessions open on this node")
+                .register(meterRegistry);
+        Gauge.builder("websocket.sessions.reserved.bytes", admitted, count -> (double) count.get() * estimatedSessionBytes)
+                .description("Memory reserved for open sessions against the node budget")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        // One rotation covers a heartbeat deadline; longer idle deadlines take a few rotations
+        long heartbeatDeadline = heartbeatMs * MISSED_HEARTBEATS;
+        idleWheel = new HashedTimingWheel<>(reapTickMs, (int) Math.max(64, heartbeatDeadline / reapTickMs + 1));
+    }
+
+    public int getActiveSessionCount() {
+        return admitted.get();
+    }
+
+    public int getUserSessionCount(String userName) {
+        Set<ManagedSession> userSessions = sessionsByUser.get(userName);
+        return userSessions != null ? userSessions.size() : 0;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        // Cheap early refusal before the upgrade; the reservation itself happens once the socket is open
+        if (!hasCapacity(admitted.get())) {
+            rejectedSessions.increment();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+        // Nothing to do after handshake
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                if (!reserve()) {
+                    rejectedSessions.increment();
+                    session.close(CloseStatus.SERVICE_OVERLOAD);
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                ManagedSession managed = new ManagedSession(session, now, connectTimeoutMs);
+                sessions.put(session.getId(), managed);
+                idleWheel.schedule(session.getId(), managed.deadline());
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                // Refused sessions never reached the handler behind this decorator
+                if (release(session.getId())) {
+                    super.afterConnectionClosed(session, closeStatus);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        ManagedSession session = sessionId != null ? sessions.get(sessionId) : null;
+        if (session == null) {
+            return message;
+        }
+        // Every frame, heartbeats included, proves the client is alive
+        session.lastActivity = System.currentTimeMillis();
+
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+            connected(session, accessor);
+        }
+        return message;
+    }
+
+    @Scheduled(fixedDelayString = "${app.websocket.sessions.reap-tick-ms:1000}")
+    public void reapIdleSessions() {
+        int reaped = idleWheel.advance(System.currentTimeMillis(), this::deadlineOf, this::reap);
+        if (reaped > 0) {
+            log.debug("Reaped {} idle WebSocket sessions", reaped);
+        }
+    }
+
+    private void connected(ManagedSession session, StompHeaderAccessor accessor) {
+        // Clients sending heartbeats must keep to the negotiated interval; others get the plain idle timeout
+        long[] heartbeat = accessor.getHeartbeat();
+        long clientInterval = heartbeat != null && heartbeat.length > 0 ? heartbeat[0] : 0;
+        session.idleTimeoutMs = clientInterval > 0
+                ? Math.max(clientInterval, heartbeatMs) * MISSED_HEARTBEATS
+                : idleTimeoutMs;
+
+        Principal user = accessor.getUser();
+        if (user == null || session.userName != null) {
+            return;
+        }
+        session.userName = user.getName();
+        // Added and capped under the map's lock so a concurrent release cannot unmap the set this session joins
+        List<ManagedSession> evicted = new ArrayList<>();
+        sessionsByUser.compute(user.getName(), (key, current) -> {
+            Set<ManagedSession> userSessions = current != null ? current : ConcurrentHashMap.newKeySet();
+            // A session released before its CONNECT got here must not be counted again
+            if (sessions.get(session.session.getId()) == session) {
+                userSessions.add(session);
+            }
+            if (userSessions.size() > maxPerUser) {
+                userSessions.stream()
+                        .sorted(Comparator.comparingLong(managed -> managed.connectedAt))
+                        .limit(userSessions.size() - maxPerUser)
+                        .forEach(evicted::add);
+            }
+            return userSessions.isEmpty() ? null : userSessions;
+        });
+        for (ManagedSession stale : evicted) {
+            evictedSessions.increment();
+            close(stale, CloseStatus.POLICY_VIOLATION.withReason("Too many sessions"));
+        }
+    }
+
+    private long deadlineOf(String sessionId) {
+        ManagedSession session = sessions.get(sessionId);
+        return session != null ? session.deadline() : -1;
+    }
+
+    private void reap(String sessionId) {
+        ManagedSession session = sessions.get(sessionId);
+        if (session != null) {
+            reapedSessions.increment();
+            log.debug("Closing WebSocket session {}: no inbound frame for {} ms", sessionId, session.idleTimeoutMs);
+            close(session, CloseStatus.SESSION_NOT_RELIABLE);
+        }
+    }
+
+    private void close(ManagedSession session, CloseStatus status) {
+        try {
+            session.session.close(status);
+        } catch (IOException e) {
+            log.debug("Failed to close session {}: {}", session.session.getId(), e.getMessage());
+        }
+    }
+
+    private boolean reserve() {
+        while (true) {
+            int current = admitted.get();
+            if (!hasCapacity(current)) {
+                return false;
+            }
+            if (admitted.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean release(String sessionId) {
+        ManagedSession session = sessions.remove(sessionId);
+        if (session == null) {
+            return false;
+        }
+        admitted.decrementAndGet();
+        if (session.userName != null) {
+            sessionsByUser.computeIfPresent(session.userName, (key, userSessions) -> {
+                userSessions.remove(session);
+                return userSessions.isEmpty() ? null : userSessions;
+            });
+        }
+        return true;
+    }
+
+    private boolean hasCapacity(int current) {
+        return current < maxPerNode && (current + 1L) * estimatedSessionBytes <= memoryBudgetMb * 1024 * 1024;
+    }
+
+    private static final class ManagedSession {
+        private final WebSocketSession session;
+        private final long connectedAt;
+        private volatile String userName;
+        private volatile long lastActivity;
+        private volatile long idleTimeoutMs;
+
+        ManagedSession(WebSocketSession session, long now, long idleTimeoutMs) {
+            this.session = session;
+            this.connectedAt = now;
+            this.lastActivity = now;
+            this.idleTimeoutMs = idleTimeoutMs;
+        }
+
+        long deadline() {
+            return lastActivity + idleTimeoutMs;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.app.merrbioapi.config;
+
+import com.app.merrbioapi.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory denylist of access tokens that were revoked before they expired.
+ * <p>
+ * Tokens can be revoked one by one ({@code jti}), per refresh token session ({@code sid}) or for a whole user
+ * ({@code uid}). An entry is kept only until every token it covers has expired, so the list stays as small as
+ * the number of revocations in one access token lifetime. Lookups go through a Bloom filter first: with nothing
+ * revoked the check is a single map size read, and a token matching no entry is almost always turned away by the
+ * filter without touching the map. Revocations are shared with other nodes over the {@link RevocationChannel}.
+ * <p>
+ * Token issue times have one second resolution, so a token issued in the same second as a revocation counts as
+ * revoked too.
+ */
+@Component
+@Slf4j
+public class TokenDenylist {
+
+    private final RevocationChannel channel;
+    private final long accessTokenTtlMs;
+
+    @Value("${app.security.revocation.expected-entries:10000}")
+    private int expectedEntries;
+
+    @Value("${app.security.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private final Map<RevocationKey, TokenRevocation> revocations = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private int filterCapacity;
+    private String nodeId;
+
+    private final Counter rejectedTokens;
+
+    public TokenDenylist(RevocationChannel channel, JwtProperties jwtProperties, MeterRegistry meterRegistry) {
+        this.channel = channel;
+        this.accessTokenTtlMs = jwtProperties.getAccessToken().getExpirationMs();
+        this.rejectedTokens = Counter.builder("security.jwt.revoked.rejected")
+                .description("Requests refused because their access token had been revoked")
+                .register(meterRegistry);
+        Gauge.builder("security.jwt.revocations", revocations, Map::size)
+                .description("Revocations held until the tokens they cover expire")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        rebuildFilter(expectedEntries);
+        nodeId = UUID.randomUUID().toString();
+        channel.join(nodeId, this::apply);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        channel.leave(nodeId);
+    }
+
+    public void revokeToken(UUID tokenId, Instant expiresAt) {
+        revoke(TokenRevocation.Scope.TOKEN, tokenId, expiresAt);
+    }
+
+    public void revokeSession(UUID sessionId) {
+        revoke(TokenRevocation.Scope.SESSION, sessionId, Instant.now().plusMillis(accessTokenTtlMs));
+    }
+
+    public void revokeUser(UUID userId) {
+        revoke(TokenRevocation.Scope.USER, userId, Instant.now().plusMillis(accessTokenTtlMs));
+    }
+
+    /**
+     * Whether a verified access token has been revoked
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        if (revocations.isEmpty()) {
+            return false;
+        }
+        Instant issuedAt = token.issuedAt();
+        boolean revoked = matches(TokenRevocation.Scope.TOKEN, token.tokenId(), issuedAt)
+                || matches(TokenRevocation.Scope.SESSION, token.sessionId(), issuedAt)
+                || matches(TokenRevocation.Scope.USER, token.userId(), issuedAt);
+        if (revoked) {
+            rejectedTokens.increment();
+        }
+        return revoked;
+    }
+
+    /**
+     * Drops entries whose tokens have all expired. The filter cannot forget keys, so it is rebuilt from what is left.
+     */
+    @Scheduled(fixedDelayString = "${app.security.revocation.purge-ms:60000}")
+    public synchronized void purgeExpired() {
+        Instant now = Instant.now();
+        if (revocations.values().removeIf(revocation -> revocation.isExpired(now))) {
+            rebuildFilter(Math.max(expectedEntries, revocations.size() * 2));
+        }
+    }
+
+    private void revoke(TokenRevocation.Scope scope, UUID id, Instant expiresAt) {
+        if (id == null) {
+            return;
+        }
+        TokenRevocation revocation = TokenRevocation.builder()
+                .scope(scope)
+                .id(id)
+                // Matches the resolution of the issued-at claim
+                .revokedAt(Instant.now().truncatedTo(ChronoUnit.SECONDS))
+                .expiresAt(expiresAt)
+                .originNodeId(nodeId)
+                .build();
+        apply(revocation);
+        channel.publish(revocation);
+        log.debug("Revoked access tokens of {} {}", scope, id);
+    }
+
+    private synchronized void apply(TokenRevocation revocation) {
+        if (revocation.isExpired(Instant.now())) {
+            return;
+        }
+        RevocationKey key = new RevocationKey(revocation.getScope(), revocation.getId());
+        revocations.merge(key, revocation, (current, incoming) ->
+                incoming.getRevokedAt().isAfter(current.getRevokedAt()) ? incoming : current);
+        if (revocations.size() > filterCapacity) {
+            // Keep the false positive rate in check as the list grows
+            rebuildFilter(revocations.size() * 2);
+        } else {
+            filter.add(high(key.scope(), key.id()), key.id().getLeastSignificantBits());
+        }
+    }
+
+    private boolean matches(TokenRevocation.Scope scope, UUID id, Instant issuedAt) {
+        if (id == null || !filter.mightContain(high(scope, id), id.getLeastSignificantBits())) {
+            return false;
+        }
+        TokenRevocation revocation = revocations.get(new RevocationKey(scope, id));
+        // Tokens without an issue time cannot prove they are newer than the revocation
+        return revocation != null && (issuedAt == null || !issuedAt.isAfter(revocation.getRevokedAt()));
+    }
+
+    private void rebuildFilter(int capacity) {
+        BloomFilter rebuilt = new BloomFilter(capacity, falsePositiveRate);
+        revocations.keySet().forEach(key -> rebuilt.add(high(key.scope(), key.id()), key.id().getLeastSignificantBits()));
+        filter = rebuilt;
+        filterCapacity = capacity;
+    }
+
+    // Salted by scope so the same id revoked as a user does not hit a token or session lookup
+    private static long high(TokenRevocation.Scope scope, UUID id) {
+        return id.getMostSignificantBits() ^ (scope.ordinal() + 1) * 0x9E3779B97F4A7C15L;
+    }
+
+    private record RevocationKey(TokenRevocation.Scope scope, UUID id) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.app.merrbioapi.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One entry of the access token denylist, as exchanged over the {@link RevocationChannel}. Access tokens matching
+ * {@code scope} and {@code id} that were issued at or before {@code revokedAt} are rejected until
+ * {@code expiresAt}, by which time every such token has expired on its own.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class TokenRevocation implements Serializable {
+
+    public enum Scope {
+        /** One access token, by its {@code jti} */
+        TOKEN,
+        /** Every access token issued for a refresh token session, by its {@code sid} */
+        SESSION,
+        /** Every access token of a user, by its {@code uid} */
+        USER
+    }
+
+    private final Scope scope;
+    private final UUID id;
+    private final Instant revokedAt;
+    private final Instant expiresAt;
+    private final String originNodeId;
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
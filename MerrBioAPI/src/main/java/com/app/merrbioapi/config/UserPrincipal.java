@@ -0,0 +1,62 @@
+package com.app.merrbioapi.config;
+
+import com.app.merrbioapi.model.entity.User;
+import com.app.merrbioapi.model.entity.UserInfo;
+import com.app.merrbioapi.model.enums.Role;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable identity of an authenticated user. REST requests build it from the access token claims and STOMP
+ * sessions resolve it once on CONNECT and keep it in the session attributes, so neither loads the user per
+ * request. {@link #getName()} is the user id, which is also the key used for user destinations.
+ */
+@Getter
+public final class UserPrincipal implements Principal, Serializable {
+
+    public static final String SESSION_ATTRIBUTE = "merrbio.principal";
+
+    private final UUID userId;
+    private final String email;
+    private final Role role;
+    private final String displayName;
+    // Set only for farmers
+    private final UUID farmerId;
+
+    public UserPrincipal(UUID userId, String email, Role role, String displayName, UUID farmerId) {
+        this.userId = userId;
+        this.email = email;
+        this.role = role;
+        this.displayName = displayName != null ? displayName : email;
+        this.farmerId = farmerId;
+    }
+
+    public static UserPrincipal from(User user, UUID farmerId) {
+        UserInfo userInfo = user.getUserInfo();
+        String displayName = userInfo != null
+                ? userInfo.getFirstName() + " " + userInfo.getLastName()
+                : user.getEmail();
+        return new UserPrincipal(user.getId(), user.getEmail(), user.getRole(), displayName, farmerId);
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(role.name()));
+    }
+
+    @Override
+    public String getName() {
+        return userId.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "UserPrincipal{" + userId + ", " + role + "}";
+    }
+}
@@ -0,0 +1,53 @@
+package com.app.merrbioapi.config;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Claims of a token whose signature and expiry have been checked. Immutable, so one instance can be shared
+ * by every request that presents the same token. The ids the {@link TokenDenylist} matches on are parsed once
+ * here rather than on every revocation check; each is null if the claim is missing or not a UUID.
+ */
+public record VerifiedToken(String subject, Instant issuedAt, Instant expiresAt, Map<String, Object> claims,
+                            UUID tokenId, UUID sessionId, UUID userId) {
+
+    public VerifiedToken(String subject, Instant issuedAt, Instant expiresAt, Map<String, Object> claims) {
+        this(subject, issuedAt, expiresAt, claims,
+                parseUuid(claims.get(Claims.ID)),
+                parseUuid(claims.get(JwtService.CLAIM_SESSION_ID)),
+                parseUuid(claims.get(JwtService.CLAIM_USER_ID)));
+    }
+
+    static VerifiedToken from(Claims claims) {
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                Collections.unmodifiableMap(new HashMap<>(claims)));
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+
+    public <T> T claim(String name, Class<T> type) {
+        Object value = claims.get(name);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    private static UUID parseUuid(Object value) {
+        if (!(value instanceof String text)) {
+            return null;
+        }
+        try {
+            return UUID.fromString(text);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
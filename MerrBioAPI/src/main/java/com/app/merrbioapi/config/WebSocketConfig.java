@@ -1,105 +1,255 @@
 package com.app.merrbioapi.config;
 
+import com.app.merrbioapi.service.ChatResumeListener;
+import com.app.merrbioapi.service.ClusterMessagingService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.server.HandshakeInterceptor;
-import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.Map;
 
 @Configuration
 @EnableWebSocketMessageBroker
+// Run before the Spring Security interceptors so the CONNECT user is set when they read it
+@Order(Ordered.HIGHEST_PRECEDENCE + 99)
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Autowired
-    private JwtService jwtService;
+    private StompAuthChannelInterceptor stompAuthChannelInterceptor;
 
+    // Lazy: presence publishes through the messaging template, which is built from this configurer
     @Autowired
-    private UserDetailsService userDetailsService;
+    @Lazy
+    private PresenceChannelInterceptor presenceChannelInterceptor;
+
+    // Lazy for the same reason: the chat replay sends through the messaging template
+    @Autowired
+    @Lazy
+    private ChatResumeListener chatResumeListener;
+
+    @Autowired
+    @Lazy
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Autowired
+    private ObjectProvider<ClusterMessagingService> clusterMessagingServiceProvider;
+
+    @Autowired
+    private SlowConsumerGuard slowConsumerGuard;
+
+    @Autowired
+    private StompSessionManager stompSessionManager;
+
+    @Value("${app.websocket.inbound.core-pool-size:4}")
+    private int inboundCorePoolSize;
+
+    @Value("${app.websocket.inbound.max-pool-size:16}")
+    private int inboundMaxPoolSize;
+
+    @Value("${app.websocket.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    @Value("${app.websocket.outbound.core-pool-size:4}")
+    private int outboundCorePoolSize;
+
+    @Value("${app.websocket.outbound.max-pool-size:16}")
+    private int outboundMaxPoolSize;
+
+    @Value("${app.websocket.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    @Value("${app.websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${app.websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${app.websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.websocket.transport.time-to-first-message-ms:30000}")
+    private int timeToFirstMessageMs;
+
+    @Value("${app.websocket.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Value("${app.websocket.sockjs.disconnect-delay-ms:5000}")
+    private long sockJsDisconnectDelayMs;
+
+    // simple: single node; backplane: simple brokers linked by a BrokerBackplane; relay: external STOMP broker
+    @Value("${app.websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${app.websocket.broker.relay-host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.broker.relay-port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.broker.relay-login:guest}")
+    private String relayLogin;
+
+    @Value("${app.websocket.broker.relay-passcode:guest}")
+    private String relayPasscode;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable a simple in-memory message broker for destinations prefixed with /topic or /queue
-        config.enableSimpleBroker("/topic", "/queue");
-        
+        if ("relay".equals(brokerMode)) {
+            // External STOMP broker shared by all nodes. Unresolved user destinations and the user registry are
+            // broadcast through it, so convertAndSendToUser reaches sessions held by any node.
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else {
+            // Enable a simple in-memory message broker for destinations prefixed with /topic or /queue.
+            // Heartbeats in both directions keep presence fresh and let silent sessions expire.
+            config.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[]{heartbeatMs, heartbeatMs})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+
+            // In backplane mode the local brokers of all nodes are linked through the cluster service
+            ClusterMessagingService clusterMessagingService = clusterMessagingServiceProvider.getIfAvailable();
+            if (clusterMessagingService != null) {
+                config.configureBrokerChannel().interceptors(clusterMessagingService);
+            }
+        }
+
         // Messages from client to application will be prefixed with /app
         config.setApplicationDestinationPrefixes("/app");
-        
+
         // Point-to-point messaging with /user prefix
         config.setUserDestinationPrefix("/user");
+
+        // Deliver to each session in publish order even though the outbound channel has several threads
+        config.setPreservePublishOrder(true);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Authenticates the session once on CONNECT and caches the principal for later frames,
+        // then applies the per-user session cap and records activity for idle reaping and presence.
+        // Chat resume replays missed messages once a SUBSCRIBE to the message queue has been handled.
+        registration.interceptors(stompAuthChannelInterceptor, stompSessionManager, presenceChannelInterceptor,
+                chatResumeListener);
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Holds back superseded messages for sessions whose socket is not draining
+        registration.interceptors(slowConsumerGuard);
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registry) {
+        // A session exceeding the buffer or time limit is closed instead of piling up memory.
+        // Admission and idle reaping wrap everything else so refused sessions never reach the handlers.
+        registry.setMessageSizeLimit(messageSizeLimit)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setTimeToFirstMessage(timeToFirstMessageMs)
+                .setDecoratorFactories(slowConsumerGuard, stompSessionManager);
+    }
+
+    @Bean
+    public MeterBinder webSocketChannelMetrics(
+            @Qualifier("clientInboundChannelExecutor") ThreadPoolTaskExecutor inboundExecutor,
+            @Qualifier("clientOutboundChannelExecutor") ThreadPoolTaskExecutor outboundExecutor) {
+        return registry -> {
+            Gauge.builder("websocket.inbound.queue.depth", inboundExecutor,
+                            executor -> executor.getThreadPoolExecutor().getQueue().size())
+                    .description("Inbound STOMP frames waiting for a thread")
+                    .register(registry);
+            Gauge.builder("websocket.outbound.queue.depth", outboundExecutor,
+                            executor -> executor.getThreadPoolExecutor().getQueue().size())
+                    .description("Outbound STOMP frames waiting for a thread")
+                    .register(registry);
+        };
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        HandshakeInterceptor tokenInterceptor = new HandshakeInterceptor() {
+            @Override
+            public boolean beforeHandshake(
+                    ServerHttpRequest request,
+                    ServerHttpResponse response,
+                    WebSocketHandler wsHandler,
+                    Map<String, Object> attributes) {
+                String query = request.getURI().getQuery();
+
+                if (query != null) {
+                    Map<String, String> queryParams = UriComponentsBuilder
+                        .fromUriString(request.getURI().toString())
+                        .build()
+                        .getQueryParams()
+                        .toSingleValueMap();
+
+                    String token = queryParams.get("token");
+                    if (token != null && !token.isEmpty()) {
+                        // Verified on the STOMP CONNECT frame by StompAuthChannelInterceptor
+                        attributes.put(StompAuthChannelInterceptor.HANDSHAKE_TOKEN_ATTRIBUTE, token);
+                    }
+                }
+                return true; // Allow the handshake to proceed
+            }
+
+            @Override
+            public void afterHandshake(
+                    ServerHttpRequest request,
+                    ServerHttpResponse response,
+                    WebSocketHandler wsHandler,
+                    Exception exception) {
+                // Nothing to do after handshake
+            }
+        };
+
+        // Node capacity is checked first so refused handshakes cost as little as possible
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
-                .addInterceptors(new HandshakeInterceptor() {
-                    @Override
-                    public boolean beforeHandshake(
-                            ServerHttpRequest request,
-                            ServerHttpResponse response,
-                            WebSocketHandler wsHandler,
-                            Map<String, Object> attributes) {
-                        String query = request.getURI().getQuery();
-                        String token = null;
-                        
-                        if (query != null) {
-                            Map<String, String> queryParams = UriComponentsBuilder
-                                .fromUriString(request.getURI().toString())
-                                .build()
-                                .getQueryParams()
-                                .toSingleValueMap();
-                            
-                            token = queryParams.get("token");
-                        }
-                        
-                        if (token != null && !token.isEmpty()) {
-                            try {
-                                // Use correct method for extracting username
-                                String username = jwtService.extractUsername(token);
-                                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                                
-                                // Use correct method for validating token
-                                if (jwtService.isAccessTokenValid(token, userDetails)) {
-                                    Authentication auth = new UsernamePasswordAuthenticationToken(
-                                            userDetails, null, userDetails.getAuthorities());
-                                    SecurityContextHolder.getContext().setAuthentication(auth);
-                                    attributes.put("SPRING_SECURITY_CONTEXT", SecurityContextHolder.getContext());
-                                    return true;
-                                }
-                            } catch (Exception e) {
-                                System.err.println("Error processing token: " + e.getMessage());
-                            }
-                        }
-                        return true; // Allow the handshake to proceed
-                    }
+                .addInterceptors(stompSessionManager, tokenInterceptor)
+                .withSockJS()
+                // SockJS frames keep polling transports and proxies alive independently of STOMP heartbeats
+                .setHeartbeatTime(heartbeatMs)
+                .setDisconnectDelay(sockJsDisconnectDelayMs);
 
-                    @Override
-                    public void afterHandshake(
-                            ServerHttpRequest request,
-                            ServerHttpResponse response,
-                            WebSocketHandler wsHandler,
-                            Exception exception) {
-                        // Nothing to do after handshake
-                    }
-                })
-                .withSockJS();
-        
         // Add a raw WebSocket endpoint without SockJS for testing
         registry.addEndpoint("/ws")
-                .setAllowedOriginPatterns("*");
+                .setAllowedOriginPatterns("*")
+                .addInterceptors(stompSessionManager, tokenInterceptor);
     }
-}
\ No newline at end of file
+}
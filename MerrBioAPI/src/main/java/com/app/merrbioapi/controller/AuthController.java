@@ -1,5 +1,6 @@
 package com.app.merrbioapi.controller;
 
+import com.app.merrbioapi.config.UserPrincipal;
 import com.app.merrbioapi.model.dto.request.AuthenticationRequest;
 import com.app.merrbioapi.model.dto.request.CustomerRegisterRequest;
 import com.app.merrbioapi.model.dto.request.FarmerRegisterRequest;
@@ -15,6 +16,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -23,7 +25,6 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 
 
 @RestController
@@ -42,11 +43,14 @@ public class AuthController {
         @ApiResponse(responseCode = "200", description = "Successful authentication", 
                      content = @Content(schema = @Schema(implementation = AuthenticationResponse.class))),
         @ApiResponse(responseCode = "400", description = "Invalid credentials"),
-        @ApiResponse(responseCode = "401", description = "Unauthorized")
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "429", description = "Too many attempts from this address or for this account"),
+        @ApiResponse(responseCode = "503", description = "Authentication temporarily overloaded")
     })
     @PostMapping("/login")
-    public ResponseEntity<AuthenticationResponse> authenticateUser(@Valid @RequestBody AuthenticationRequest request) {
-        return ResponseEntity.ok(authService.authenticate(request));
+    public ResponseEntity<AuthenticationResponse> authenticateUser(@Valid @RequestBody AuthenticationRequest request,
+                                                                   HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(authService.authenticate(request, httpRequest.getRemoteAddr()));
     }
 
     @Operation(summary = "Register new customer", description = "Create new customer account and return JWT tokens")
@@ -54,11 +58,14 @@ public class AuthController {
             @ApiResponse(responseCode = "200", description = "Successful customer registration",
                     content = @Content(schema = @Schema(implementation = AuthenticationResponse.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input data"),
-            @ApiResponse(responseCode = "409", description = "Email or phone number already exists")
+            @ApiResponse(responseCode = "409", description = "Email or phone number already exists"),
+            @ApiResponse(responseCode = "429", description = "Too many attempts from this address"),
+            @ApiResponse(responseCode = "503", description = "Authentication temporarily overloaded")
     })
     @PostMapping("/register/customer")
-    public ResponseEntity<AuthenticationResponse> registerCustomer(@Valid @RequestBody CustomerRegisterRequest request) {
-        return ResponseEntity.ok(authService.registerCustomer(request));
+    public ResponseEntity<AuthenticationResponse> registerCustomer(@Valid @RequestBody CustomerRegisterRequest request,
+                                                                   HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(authService.registerCustomer(request, httpRequest.getRemoteAddr()));
     }
 
     @Operation(summary = "Register new farmer", description = "Create new farmer account and return JWT tokens")
@@ -66,11 +73,14 @@ public class AuthController {
             @ApiResponse(responseCode = "200", description = "Successful farmer registration",
                     content = @Content(schema = @Schema(implementation = AuthenticationResponse.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input data"),
-            @ApiResponse(responseCode = "409", description = "Email or phone number already exists")
+            @ApiResponse(responseCode = "409", description = "Email or phone number already exists"),
+            @ApiResponse(responseCode = "429", description = "Too many attempts from this address"),
+            @ApiResponse(responseCode = "503", description = "Authentication temporarily overloaded")
     })
     @PostMapping("/register/farmer")
-    public ResponseEntity<AuthenticationResponse> registerFarmer(@Valid @RequestBody FarmerRegisterRequest request) {
-        return ResponseEntity.ok(authService.registerFarmer(request));
+    public ResponseEntity<AuthenticationResponse> registerFarmer(@Valid @RequestBody FarmerRegisterRequest request,
+                                                                 HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(authService.registerFarmer(request, httpRequest.getRemoteAddr()));
     }
 
     @Operation(summary = "Refresh token", description = "Get new access token using refresh token")
@@ -105,8 +115,8 @@ public class AuthController {
     public ResponseEntity<?> logoutAllDevices() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
-        if (authentication != null && authentication.getPrincipal() instanceof UserDetails userDetails) {
-            authService.logoutAll(userDetails.getUsername());
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            authService.logoutAll(principal.getEmail());
             return ResponseEntity.ok("Logged out from all devices");
         }
 
@@ -1,16 +1,20 @@
 package com.app.merrbioapi.controller;
 
+import com.app.merrbioapi.config.CurrentUser;
+import com.app.merrbioapi.model.dto.chat.ChatMessageDto;
+import com.app.merrbioapi.model.dto.chat.ChatSearchHitDto;
 import com.app.merrbioapi.model.dto.chat.ConversationRequestDto;
 import com.app.merrbioapi.model.dto.chat.ConversationResponseDto;
-import com.app.merrbioapi.model.entity.User;
-import com.app.merrbioapi.repository.UserRepository;
+import com.app.merrbioapi.model.dto.chat.PresenceDto;
+import com.app.merrbioapi.service.ChatSearchService;
 import com.app.merrbioapi.service.ChatService;
+import com.app.merrbioapi.service.PresenceService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -24,52 +28,78 @@ import java.util.UUID;
 public class ChatController {
 
     private final ChatService chatService;
-    private final UserRepository userRepository;
+    private final PresenceService presenceService;
+    private final ChatSearchService chatSearchService;
 
     @Operation(summary = "Start a new conversation", description = "Create a new conversation with another user")
     @PostMapping("/conversations")
     public ResponseEntity<ConversationResponseDto> startConversation(
-            @RequestBody ConversationRequestDto request,
-            Authentication authentication) {
-        String userEmail = authentication.getName();
-        UUID userId = getUserIdFromAuthentication(authentication);
+            @RequestBody ConversationRequestDto request) {
+        UUID userId = CurrentUser.id();
         ConversationResponseDto conversation = chatService.startConversation(userId, request);
         return ResponseEntity.ok(conversation);
     }
 
     @Operation(summary = "Get all user conversations", description = "Get all conversations for the authenticated user")
     @GetMapping("/conversations")
-    public ResponseEntity<List<ConversationResponseDto>> getUserConversations(
-            Authentication authentication) {
-        UUID userId = getUserIdFromAuthentication(authentication);
+    public ResponseEntity<List<ConversationResponseDto>> getUserConversations() {
+        UUID userId = CurrentUser.id();
         return ResponseEntity.ok(chatService.getUserConversations(userId));
     }
 
     @Operation(summary = "Get conversation details", description = "Get a specific conversation by ID")
     @GetMapping("/conversations/{conversationId}")
     public ResponseEntity<ConversationResponseDto> getConversation(
-            @PathVariable UUID conversationId,
-            Authentication authentication) {
-        UUID userId = getUserIdFromAuthentication(authentication);
+            @PathVariable UUID conversationId) {
+        UUID userId = CurrentUser.id();
         return ResponseEntity.ok(chatService.getConversation(userId, conversationId));
     }
 
+    @Operation(summary = "Get conversation messages",
+            description = "Get a page of messages ordered by sequence number. Pass afterSeq to fetch messages missed " +
+                    "since the last seen sequence, or beforeSeq to page back through older history.")
+    @GetMapping("/conversations/{conversationId}/messages")
+    public ResponseEntity<List<ChatMessageDto>> getMessages(
+            @PathVariable UUID conversationId,
+            @RequestParam(required = false) Long afterSeq,
+            @RequestParam(required = false) Long beforeSeq,
+            @RequestParam(defaultValue = "50") int limit) {
+        UUID userId = CurrentUser.id();
+        return ResponseEntity.ok(chatService.getMessages(userId, conversationId, afterSeq, beforeSeq, limit));
+    }
+
+    @Operation(summary = "Search messages",
+            description = "Full-text search over the messages of the authenticated user's conversations. " +
+                    "A message matches when it contains every word of the query; newest matches come first.")
+    @GetMapping("/search")
+    public ResponseEntity<Slice<ChatSearchHitDto>> searchMessages(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        UUID userId = CurrentUser.id();
+        return ResponseEntity.ok(chatSearchService.search(userId, q, page, size));
+    }
+
     @Operation(summary = "Mark conversation as read", description = "Mark all messages in a conversation as read")
     @PostMapping("/conversations/{conversationId}/read")
     public ResponseEntity<Void> markConversationAsRead(
-            @PathVariable UUID conversationId,
-            Authentication authentication) {
-        UUID userId = getUserIdFromAuthentication(authentication);
+            @PathVariable UUID conversationId) {
+        UUID userId = CurrentUser.id();
         chatService.markConversationAsRead(userId, conversationId);
         return ResponseEntity.ok().build();
     }
 
-    private UUID getUserIdFromAuthentication(Authentication authentication) {
-        String userEmail = authentication.getName();
-        User user = userRepository.findByEmail(userEmail);
-        if (user == null) {
-            throw new IllegalStateException("User not found");
+    @Operation(summary = "Get user presence",
+            description = "Get whether the given conversation partners are currently connected. Ids of users " +
+                    "without a conversation with the caller are left out. Live changes are pushed to " +
+                    "/user/queue/presence for conversation partners, so this is only needed for the initial state.")
+    @GetMapping("/presence")
+    public ResponseEntity<List<PresenceDto>> getPresence(
+            @RequestParam List<UUID> userIds) {
+        if (userIds.size() > 100) {
+            throw new IllegalArgumentException("At most 100 user ids can be queried at once");
         }
-        return user.getId();
+        UUID userId = CurrentUser.id();
+        return ResponseEntity.ok(presenceService.getPresence(userId, userIds));
     }
 }
\ No newline at end of file
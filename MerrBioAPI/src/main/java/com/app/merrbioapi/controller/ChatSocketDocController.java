@@ -32,7 +32,11 @@ public class ChatSocketDocController {
                     "2. Use STOMP protocol over the WebSocket connection\n" +
                     "3. Subscribe to `/user/queue/messages` to receive messages addressed to you\n" +
                     "4. Send messages to `/app/chat.sendMessage` with appropriate payload\n" +
-                    "5. Mark messages as read by sending to `/app/chat.markRead`",
+                    "5. Mark messages as read by sending to `/app/chat.markRead`\n\n" +
+                    "Every message carries a per-conversation `sequence`. When reconnecting, send a `lastSeq` header " +
+                    "on CONNECT or on the SUBSCRIBE to `/user/queue/messages`, formatted as " +
+                    "`conversationId:sequence,conversationId:sequence`, and only the missed messages are replayed. " +
+                    "Larger gaps can be filled with `GET /chat/conversations/{id}/messages?afterSeq=`.",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -90,7 +94,8 @@ public class ChatSocketDocController {
                                                     name = "Send Message Payload",
                                                     value = "{\n" +
                                                             "  \"conversationId\": \"123e4567-e89b-12d3-a456-426614174000\",\n" +
-                                                            "  \"content\": \"Hello, this is a test message!\"\n" +
+                                                            "  \"content\": \"Hello, this is a test message!\",\n" +
+                                                            "  \"clientMessageId\": \"c0a8012e-5f3b-4d1a-9b7e-2f6d8a4c1e90\"\n" +
                                                             "}"
                                             )
                                     }
@@ -103,6 +108,7 @@ public class ChatSocketDocController {
         Map<String, Object> payload = new HashMap<>();
         payload.put("conversationId", "123e4567-e89b-12d3-a456-426614174000");
         payload.put("content", "Hello, this is a test message!");
+        payload.put("clientMessageId", "c0a8012e-5f3b-4d1a-9b7e-2f6d8a4c1e90");
         return payload;
     }
     
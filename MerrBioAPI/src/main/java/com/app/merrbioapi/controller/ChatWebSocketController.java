@@ -1,8 +1,7 @@
 package com.app.merrbioapi.controller;
 
+import com.app.merrbioapi.config.UserPrincipal;
 import com.app.merrbioapi.model.dto.chat.ChatMessageDto;
-import com.app.merrbioapi.model.entity.User;
-import com.app.merrbioapi.repository.UserRepository;
 import com.app.merrbioapi.service.ChatService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -10,7 +9,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.annotation.SendToUser;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 
@@ -24,30 +23,30 @@ import java.util.UUID;
 public class ChatWebSocketController {
 
     private final ChatService chatService;
-    private final UserRepository userRepository;
 
 
     @Operation(
             summary = "Send a message",
             description = "Send a message to a conversation using WebSocket. " +
                     "Connect to /ws endpoint with JWT token and send message to /app/chat.sendMessage. " +
-                    "Payload should include conversationId (String) and content (String)."
+                    "Payload should include conversationId (String) and content (String), and may include a " +
+                    "client-generated clientMessageId (String) so that retried sends are stored only once."
     )
     @MessageMapping("/chat.sendMessage")
     @SendToUser("/queue/reply")
     public ChatMessageDto sendMessage(
             @Payload Map<String, Object> payload,
-            Authentication authentication) {
+            @AuthenticationPrincipal UserPrincipal principal) {
         
-        if (authentication == null) {
+        if (principal == null) {
             throw new IllegalStateException("Not authenticated");
         }
         
-        UUID userId = getUserIdFromAuthentication(authentication);
         UUID conversationId = UUID.fromString((String) payload.get("conversationId"));
         String content = (String) payload.get("content");
+        String clientMessageId = (String) payload.get("clientMessageId");
         
-        return chatService.sendMessage(userId, conversationId, content);
+        return chatService.sendMessage(principal, conversationId, content, clientMessageId);
     }
 
     /**
@@ -62,27 +61,14 @@ public class ChatWebSocketController {
     @MessageMapping("/chat.markRead")
     public void markMessagesRead(
             @Payload Map<String, Object> payload,
-            Authentication authentication) {
+            @AuthenticationPrincipal UserPrincipal principal) {
         
-        if (authentication == null) {
+        if (principal == null) {
             throw new IllegalStateException("Not authenticated");
         }
         
-        UUID userId = getUserIdFromAuthentication(authentication);
         UUID conversationId = UUID.fromString((String) payload.get("conversationId"));
         
-        chatService.markConversationAsRead(userId, conversationId);
-    }
-    
-    /**
-     * Helper method to get user ID from authentication
-     */
-    private UUID getUserIdFromAuthentication(Authentication authentication) {
-        String userEmail = authentication.getName();
-        User user = userRepository.findByEmail(userEmail);
-        if (user == null) {
-            throw new IllegalStateException("User not found");
-        }
-        return user.getId();
+        chatService.markConversationAsRead(principal.getUserId(), conversationId);
     }
 }
\ No newline at end of file
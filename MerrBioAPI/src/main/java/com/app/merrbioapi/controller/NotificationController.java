@@ -0,0 +1,111 @@
+package com.app.merrbioapi.controller;
+
+import com.app.merrbioapi.config.CurrentUser;
+import com.app.merrbioapi.model.dto.response.NotificationResponse;
+import com.app.merrbioapi.service.NotificationInboxService;
+import com.app.merrbioapi.service.NotificationStreamService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/notifications")
+@RequiredArgsConstructor
+@Tag(name = "Notifications", description = "Notification inbox operations")
+@SecurityRequirement(name = "Bearer Authentication")
+public class NotificationController {
+    private final NotificationInboxService inboxService;
+    private final NotificationStreamService streamService;
+
+    @GetMapping
+    @Operation(summary = "Get notifications", description = "Retrieve the authenticated user's notifications, newest first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Notifications retrieved successfully"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<Page<NotificationResponse>> getNotifications(
+            @Parameter(description = "Page number (zero-based)")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Number of items per page")
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(inboxService.getNotifications(CurrentUser.id(), page, size));
+    }
+
+    @GetMapping("/unread-count")
+    @Operation(summary = "Get unread count", description = "Number of unread notifications of the authenticated user")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Unread count retrieved successfully"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<Map<String, Integer>> getUnreadCount() {
+        return ResponseEntity.ok(Map.of("unread", inboxService.getUnreadCount(CurrentUser.id())));
+    }
+
+    @PostMapping("/{notificationId}/read")
+    @Operation(summary = "Mark notification as read", description = "Mark one of the authenticated user's notifications as read")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Notification marked as read"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "404", description = "Notification not found")
+    })
+    public ResponseEntity<Void> markRead(
+            @Parameter(description = "ID of the notification", required = true)
+            @PathVariable UUID notificationId) {
+        inboxService.markRead(CurrentUser.id(), notificationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/read-all")
+    @Operation(summary = "Mark all notifications as read", description = "Mark every notification of the authenticated user as read")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Notifications marked as read"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<Void> markAllRead() {
+        inboxService.markAllRead(CurrentUser.id());
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream notifications",
+            description = "Server-Sent Events stream of the authenticated user's notifications. Send the last received " +
+                    "event id as Last-Event-ID to resume; without it, notifications not yet delivered are replayed.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stream opened"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public SseEmitter stream(
+            @Parameter(description = "Id of the last notification received")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return streamService.open(CurrentUser.id(), parseEventId(lastEventId));
+    }
+
+    private UUID parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(lastEventId.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
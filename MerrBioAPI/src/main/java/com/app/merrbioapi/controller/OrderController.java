@@ -1,8 +1,10 @@
 package com.app.merrbioapi.controller;
 
 import com.app.merrbioapi.model.dto.request.OrderCreateRequest;
+import com.app.merrbioapi.model.dto.response.FarmerOrderBoardSnapshot;
 import com.app.merrbioapi.model.dto.response.OrderResponse;
 import com.app.merrbioapi.model.enums.OrderStatus;
+import com.app.merrbioapi.service.FarmerOrderBoardService;
 import com.app.merrbioapi.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -35,6 +37,7 @@ import java.util.UUID;
 @SecurityRequirement(name = "Bearer Authentication")
 public class OrderController {
     private final OrderService orderService;
+    private final FarmerOrderBoardService farmerOrderBoardService;
 
     @PostMapping
     @PreAuthorize("hasAuthority('CUSTOMER')")
@@ -95,6 +98,21 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getFarmerOrders(page, size));
     }
 
+    @GetMapping("/farmer-orders/board")
+    @PreAuthorize("hasAuthority('FARMER')")
+    @Operation(summary = "Get farmer's order board snapshot",
+            description = "Retrieve the first page of the authenticated farmer's orders with the board sequence number. " +
+                    "New and changed orders are then pushed to /user/queue/farmer-orders with increasing sequence numbers.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Board snapshot retrieved successfully"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized - requires farmer role")
+    })
+    public ResponseEntity<FarmerOrderBoardSnapshot> getFarmerOrderBoard(
+            @Parameter(description = "Number of orders in the snapshot")
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(farmerOrderBoardService.getSnapshot(size));
+    }
+
     @PutMapping("/{orderId}/accept")
     @PreAuthorize("hasAuthority('FARMER')")
     @Operation(summary = "Accept order", description = "Accept an order as a farmer. Only the farmer whose products are in the order can accept it.")
@@ -1,7 +1,7 @@
 package com.app.merrbioapi.controller;
 
+import com.app.merrbioapi.config.UserPrincipal;
 import com.app.merrbioapi.model.dto.response.UserProfileResponse;
-import com.app.merrbioapi.model.entity.User; // Import your User entity
 import com.app.merrbioapi.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -38,9 +38,9 @@ public class UserController {
     })
     @GetMapping("/me")
     public ResponseEntity<UserProfileResponse> getCurrentUserProfile(
-            @AuthenticationPrincipal User user
+            @AuthenticationPrincipal UserPrincipal principal
     ) {
-        UserProfileResponse userProfile = userService.getUserProfileById(user.getId());
+        UserProfileResponse userProfile = userService.getUserProfileById(principal.getUserId());
         return ResponseEntity.ok(userProfile);
     }
 
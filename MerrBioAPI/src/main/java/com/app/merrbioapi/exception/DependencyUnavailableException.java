@@ -0,0 +1,11 @@
+package com.app.merrbioapi.exception;
+
+/**
+ * Thrown when a call to an external dependency is refused by its circuit breaker or bulkhead, or times out
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    public DependencyUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.app.merrbioapi.exception;
+
+import lombok.Getter;
+
+@Getter
+public class TooManyAttemptsException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TooManyAttemptsException(long retryAfterSeconds) {
+        super("Too many attempts. Please try again later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
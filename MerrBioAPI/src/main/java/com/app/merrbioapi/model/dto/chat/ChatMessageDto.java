@@ -19,5 +19,7 @@ public class ChatMessageDto {
     private String senderName;
     private String content;
     private UUID conversationId;
+    private Long sequence;
+    private String clientMessageId;
     private Instant timestamp;
 }
\ No newline at end of file
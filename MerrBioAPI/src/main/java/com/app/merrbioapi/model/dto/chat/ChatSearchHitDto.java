@@ -0,0 +1,20 @@
+package com.app.merrbioapi.model.dto.chat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSearchHitDto {
+    private UUID conversationId;
+    private String conversationTitle;
+    private UUID partnerId;
+    private String partnerName;
+    private ChatMessageDto message;
+}
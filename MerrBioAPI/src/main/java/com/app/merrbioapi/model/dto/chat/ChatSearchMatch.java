@@ -0,0 +1,17 @@
+package com.app.merrbioapi.model.dto.chat;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * A message matching every term of a search, as found in the search index
+ */
+@Getter
+@AllArgsConstructor
+public class ChatSearchMatch {
+    private UUID messageId;
+    private UUID conversationId;
+    private Long sequence;
+}
@@ -0,0 +1,19 @@
+package com.app.merrbioapi.model.dto.chat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceDto {
+    private UUID userId;
+    private boolean online;
+    private Instant lastSeen;
+}
@@ -0,0 +1,21 @@
+package com.app.merrbioapi.model.dto.chat;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One line of an unread-message digest: how many messages a recipient has not read in one conversation
+ */
+@Getter
+@AllArgsConstructor
+public class UnreadConversationDigest {
+    private UUID recipientId;
+    private String recipientEmail;
+    private UUID conversationId;
+    private String conversationTitle;
+    private Long unreadCount;
+    private Instant latestMessageAt;
+}
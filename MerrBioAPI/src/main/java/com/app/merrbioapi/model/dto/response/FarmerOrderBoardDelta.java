@@ -0,0 +1,18 @@
+package com.app.merrbioapi.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FarmerOrderBoardDelta {
+    private String epoch;
+    private long sequence;
+    private OrderResponse order;
+}
@@ -0,0 +1,19 @@
+package com.app.merrbioapi.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Page;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FarmerOrderBoardSnapshot {
+    private String epoch;
+    private long sequence;
+    private Page<OrderResponse> orders;
+}
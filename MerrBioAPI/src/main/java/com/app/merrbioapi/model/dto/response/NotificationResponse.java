@@ -0,0 +1,23 @@
+package com.app.merrbioapi.model.dto.response;
+
+import com.app.merrbioapi.model.enums.NotificationType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationResponse {
+    private UUID id;
+    private NotificationType type;
+    private String title;
+    private String message;
+    private boolean read;
+    private Instant createdAt;
+}
@@ -0,0 +1,23 @@
+package com.app.merrbioapi.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangeResponse {
+    private UUID productId;
+    private Double price;
+    private Boolean isInStock;
+    private Double availableQuantity;
+    private Double minimumOrderQuantity;
+    private boolean deleted;
+    private Instant updatedAt;
+}
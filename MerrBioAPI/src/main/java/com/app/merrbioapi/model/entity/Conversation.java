@@ -2,6 +2,7 @@ package com.app.merrbioapi.model.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -30,11 +31,11 @@ import java.util.List;
 @Builder
 public class Conversation extends BaseEntity {
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "initiator_id", nullable = false)
     private User initiator;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "recipient_id", nullable = false)
     private User recipient;
 
@@ -44,10 +45,22 @@ public class Conversation extends BaseEntity {
     @OneToMany(mappedBy = "conversation")
     private List<Message> messages;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product relatedProduct;
 
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
+
+    /**
+     * Sequence number of the last message appended to this conversation
+     */
+    @Column(name = "last_sequence")
+    private Long lastSequence;
+
+    /**
+     * Highest sequence number moved to the cold archive; messages up to it are no longer in the message table
+     */
+    @Column(name = "archived_through_sequence")
+    private Long archivedThroughSequence;
 }
\ No newline at end of file
@@ -2,9 +2,12 @@ package com.app.merrbioapi.model.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -23,7 +26,15 @@ import java.time.LocalDateTime;
 @DynamicUpdate
 @SQLDelete(sql = "UPDATE message SET deleted = true, deleted_at = now() WHERE id = ?")
 @SQLRestriction("deleted = false")
-@Table(name = "message")
+@Table(name = "message",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_message_conversation_sequence", columnNames = {"conversation_id", "sequence_number"}),
+                @UniqueConstraint(name = "uk_message_client_id", columnNames = {"conversation_id", "sender_id", "client_message_id"})
+        },
+        indexes = {
+                @Index(name = "idx_message_conversation_sequence", columnList = "conversation_id, sequence_number"),
+                @Index(name = "idx_message_search_pending", columnList = "search_indexed, created_at")
+        })
 @Getter
 @Setter
 @AllArgsConstructor
@@ -31,20 +42,38 @@ import java.time.LocalDateTime;
 @Builder
 public class Message extends BaseEntity {
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_id", nullable = false)
     private User sender;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "conversation_id", nullable = false)
     private Conversation conversation;
 
     @Column(name = "content", nullable = false, length = 2000)
     private String content;
 
+    /**
+     * Monotonic position of this message within its conversation, assigned under the conversation row lock
+     */
+    @Column(name = "sequence_number")
+    private Long sequence;
+
+    /**
+     * Optional id generated by the sending client so retried sends are not stored twice
+     */
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;
+
     @Column(name = "is_read", nullable = false)
     private Boolean isRead = false;
     
     @Column(name = "last_notification_sent")
     private LocalDateTime lastNotificationSent;
+
+    /**
+     * Whether the content has been added to the chat search index
+     */
+    @Column(name = "search_indexed", nullable = false)
+    private Boolean searchIndexed = false;
 }
\ No newline at end of file
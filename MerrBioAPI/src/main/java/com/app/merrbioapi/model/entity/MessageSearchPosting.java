@@ -0,0 +1,50 @@
+package com.app.merrbioapi.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One entry of the chat search inverted index: {@code term} occurs in a message visible to {@code userId}.
+ * Each message is posted once per participant, so a search is a lookup on (user, term) without joining
+ * conversations. Postings survive archiving, which keeps archived history searchable.
+ */
+@Entity
+@Table(name = "message_search_posting",
+        indexes = @Index(name = "idx_search_posting_lookup", columnList = "user_id, term, created_at"))
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageSearchPosting implements Persistable<MessageSearchPostingId> {
+
+    @EmbeddedId
+    private MessageSearchPostingId id;
+
+    @Column(name = "conversation_id", nullable = false)
+    private UUID conversationId;
+
+    @Column(name = "sequence_number")
+    private Long sequence;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    /**
+     * Postings are only ever inserted (re-indexing deletes first), so skip the select that merge would issue
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
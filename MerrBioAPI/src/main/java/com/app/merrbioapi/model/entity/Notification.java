@@ -0,0 +1,71 @@
+package com.app.merrbioapi.model.entity;
+
+import com.app.merrbioapi.model.enums.NotificationType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Entry of a user's notification inbox. Rows are appended in batches and only ever change their read and
+ * delivered flags, so the id is assigned up front and pushed to the client before the row is written.
+ */
+@Entity
+@Table(name = "notification",
+        indexes = {
+                @Index(name = "idx_notification_user_created", columnList = "user_id, created_at"),
+                @Index(name = "idx_notification_created", columnList = "created_at")
+        })
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class Notification implements Persistable<UUID> {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 32)
+    private NotificationType type;
+
+    @Column(name = "title", nullable = false)
+    private String title;
+
+    @Column(name = "message", length = 1000)
+    private String message;
+
+    @Column(name = "is_read", nullable = false)
+    private boolean read;
+
+    /**
+     * Whether the notification reached a live session; undelivered ones are replayed on the next subscribe
+     */
+    @Column(name = "delivered", nullable = false)
+    private boolean delivered;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Override
+    public boolean isNew() {
+        // Rows are only inserted through the inbox; updates use bulk queries
+        return true;
+    }
+}
@@ -0,0 +1,29 @@
+package com.app.merrbioapi.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Unread notification count per user, so badges never have to count the inbox
+ */
+@Entity
+@Table(name = "notification_counter")
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+}
@@ -75,4 +75,8 @@ public class Product extends BaseEntity {
 
     @Column(name = "thumbnail_url")
     private String thumbnailUrl;
+
+    // Images were accepted while moderation was unavailable and still have to be checked
+    @Column(name = "moderation_pending", nullable = false)
+    private boolean moderationPending;
 }
\ No newline at end of file
@@ -2,10 +2,11 @@ package com.app.merrbioapi.model.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
-import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -15,8 +16,15 @@ import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.Instant;
 
+/**
+ * Refresh token session. Only the SHA-256 digest of the token is stored, in a fixed-width column behind a
+ * unique index; the token itself is handed to the client once, when the session is created.
+ */
 @Entity
-@Table(name = "refresh_token")
+@Table(name = "refresh_session", indexes = {
+        @Index(name = "idx_refresh_session_user", columnList = "user_id, revoked, created_at"),
+        @Index(name = "idx_refresh_session_expiry", columnList = "expiry_date")
+})
 @DynamicUpdate
 @Getter
 @Setter
@@ -25,10 +33,14 @@ import java.time.Instant;
 @Builder
 public class RefreshToken extends BaseEntity {
 
-    @Column(nullable = false, unique = true)
+    @Column(name = "token_hash", nullable = false, unique = true, columnDefinition = "BINARY(32)")
+    private byte[] tokenHash;
+
+    // Plain token, only set on a session that was just created
+    @Transient
     private String token;
 
-    @Column(nullable = false)
+    @Column(name = "expiry_date", nullable = false)
     private Instant expiryDate;
 
     @ManyToOne
@@ -45,4 +57,4 @@ public class RefreshToken extends BaseEntity {
     public boolean isValid() {
         return !revoked && !isExpired();
     }
-}
\ No newline at end of file
+}
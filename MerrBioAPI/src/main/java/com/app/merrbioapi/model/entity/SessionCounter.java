@@ -0,0 +1,29 @@
+package com.app.merrbioapi.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Number of unrevoked refresh token sessions per user, so the session cap never has to load or count them
+ */
+@Entity
+@Table(name = "session_counter")
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SessionCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "active_count", nullable = false)
+    private int activeCount;
+}
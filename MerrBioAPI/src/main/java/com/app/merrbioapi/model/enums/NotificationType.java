@@ -0,0 +1,7 @@
+package com.app.merrbioapi.model.enums;
+
+public enum NotificationType {
+    GENERAL,
+    ORDER_STATUS,
+    CHAT_MESSAGE
+}
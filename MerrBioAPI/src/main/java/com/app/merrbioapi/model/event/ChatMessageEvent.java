@@ -0,0 +1,18 @@
+package com.app.merrbioapi.model.event;
+
+import com.app.merrbioapi.model.dto.chat.ChatMessageDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published when a chat message has been stored. Delivery listeners react to it
+ * only after the surrounding transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class ChatMessageEvent {
+    private final UUID recipientId;
+    private final ChatMessageDto message;
+}
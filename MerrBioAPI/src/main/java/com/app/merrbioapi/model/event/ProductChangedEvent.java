@@ -0,0 +1,21 @@
+package com.app.merrbioapi.model.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published when the price or availability of a product may have changed. Live product topics pick it up
+ * only after the surrounding transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+    private final UUID productId;
+    private final Double price;
+    private final Boolean inStock;
+    private final Double availableQuantity;
+    private final Double minimumOrderQuantity;
+    private final boolean deleted;
+}
@@ -0,0 +1,17 @@
+package com.app.merrbioapi.model.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published by every write to what a {@link com.app.merrbioapi.config.UserPrincipal} or a user profile is built
+ * from: the user's credentials, role, enabled state, personal info or farmer profile. Cached principals and
+ * profiles of that user are dropped once the publishing transaction commits, or at once outside a transaction.
+ */
+@Getter
+@AllArgsConstructor
+public class UserChangedEvent {
+    private final UUID userId;
+}
@@ -2,11 +2,15 @@ package com.app.merrbioapi.repository;
 
 import com.app.merrbioapi.model.entity.Conversation;
 import com.app.merrbioapi.model.entity.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -25,4 +29,33 @@ public interface ConversationRepository extends JpaRepository<Conversation, UUID
            "c.isActive = true AND (c.initiator.id = :userId OR c.recipient.id = :userId) " +
            "ORDER BY c.createdAt DESC")
     List<Conversation> findActiveConversationsByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Conversations with both participants and their profiles loaded, for building display names
+     */
+    @Query("SELECT c FROM Conversation c " +
+           "JOIN FETCH c.initiator i LEFT JOIN FETCH i.userInfo " +
+           "JOIN FETCH c.recipient r LEFT JOIN FETCH r.userInfo " +
+           "WHERE c.id IN :conversationIds")
+    List<Conversation> findAllWithParticipantsByIdIn(@Param("conversationIds") Collection<UUID> conversationIds);
+
+    /**
+     * Loads a conversation while holding a row lock so message sequence numbers are handed out in order
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Conversation c WHERE c.id = :conversationId")
+    Optional<Conversation> findByIdForUpdate(@Param("conversationId") UUID conversationId);
+
+    /**
+     * Next chunk of conversations, ordered by id, created before message sequence numbers were introduced
+     */
+    @Query("SELECT c.id FROM Conversation c WHERE c.lastSequence IS NULL AND c.id > :afterId ORDER BY c.id")
+    List<UUID> findUnsequencedIds(@Param("afterId") UUID afterId, Pageable pageable);
+
+    /**
+     * Ids of the users the given user has an active conversation with
+     */
+    @Query("SELECT CASE WHEN c.initiator.id = :userId THEN c.recipient.id ELSE c.initiator.id END " +
+           "FROM Conversation c WHERE c.isActive = true AND (c.initiator.id = :userId OR c.recipient.id = :userId)")
+    List<UUID> findPartnerIds(@Param("userId") UUID userId);
 }
\ No newline at end of file
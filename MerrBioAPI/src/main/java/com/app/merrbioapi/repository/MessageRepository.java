@@ -1,7 +1,9 @@
 package com.app.merrbioapi.repository;
 
+import com.app.merrbioapi.model.dto.chat.UnreadConversationDigest;
 import com.app.merrbioapi.model.entity.Conversation;
 import com.app.merrbioapi.model.entity.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -9,8 +11,11 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -21,6 +26,46 @@ public interface MessageRepository extends JpaRepository<Message, UUID> {
     @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId ORDER BY m.createdAt ASC")
     List<Message> findByConversationIdOrderByCreatedAtAsc(@Param("conversationId") UUID conversationId);
     
+    Optional<Message> findByConversationIdAndSenderIdAndClientMessageId(UUID conversationId, UUID senderId, String clientMessageId);
+
+    /**
+     * Messages of a conversation after the given sequence number, oldest first. Used for gap fill on reconnect.
+     */
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId AND m.sequence > :afterSequence " +
+           "ORDER BY m.sequence ASC")
+    List<Message> findAfterSequence(@Param("conversationId") UUID conversationId,
+                                    @Param("afterSequence") long afterSequence,
+                                    Pageable pageable);
+
+    /**
+     * Messages of a conversation before the given sequence number, newest first. Used for paging back through history.
+     */
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId AND m.sequence < :beforeSequence " +
+           "ORDER BY m.sequence DESC")
+    List<Message> findBeforeSequence(@Param("conversationId") UUID conversationId,
+                                     @Param("beforeSequence") long beforeSequence,
+                                     Pageable pageable);
+
+    /**
+     * Highest sequence number handed out in a conversation, counting soft-deleted rows, or 0 if there is none
+     */
+    @Query(value = "SELECT COALESCE(MAX(sequence_number), 0) FROM message WHERE conversation_id = :conversationId",
+           nativeQuery = true)
+    long findMaxSequence(@Param("conversationId") UUID conversationId);
+
+    /**
+     * Numbers the messages of a conversation that predate sequence numbers, in creation order after
+     * {@code afterSequence}. Soft-deleted rows are numbered too so archiving can remove them by sequence.
+     */
+    @Modifying
+    @Query(value = "UPDATE message m JOIN (" +
+                   "SELECT id, ROW_NUMBER() OVER (ORDER BY created_at, id) AS position FROM message " +
+                   "WHERE conversation_id = :conversationId AND sequence_number IS NULL) numbered " +
+                   "ON m.id = numbered.id SET m.sequence_number = :afterSequence + numbered.position",
+           nativeQuery = true)
+    int assignMissingSequences(@Param("conversationId") UUID conversationId,
+                               @Param("afterSequence") long afterSequence);
+
     @Modifying
     @Transactional
     @Query("UPDATE Message m SET m.isRead = true WHERE m.conversation.id = :conversationId AND m.sender.id != :userId")
@@ -30,17 +75,98 @@ public interface MessageRepository extends JpaRepository<Message, UUID> {
     long countUnreadMessages(@Param("conversationId") UUID conversationId, @Param("userId") UUID userId);
     
     /**
-     * Find unread messages that are older than the given time and haven't had a notification sent recently
+     * Messages created before the given time that have not reached the search index yet, oldest first
      */
-    @Query("SELECT m FROM Message m WHERE m.isRead = false AND m.createdAt < :cutoffTime " +
-           "AND (m.lastNotificationSent IS NULL OR m.lastNotificationSent < :cutoffTime)")
-    List<Message> findUnreadMessagesOlderThan(@Param("cutoffTime") LocalDateTime cutoffTime);
-    
+    @Query("SELECT m FROM Message m JOIN FETCH m.conversation " +
+           "WHERE m.searchIndexed = false AND m.createdAt < :createdBefore " +
+           "ORDER BY m.createdAt ASC")
+    List<Message> findSearchPending(@Param("createdBefore") Instant createdBefore, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Message m SET m.searchIndexed = true WHERE m.id IN :messageIds")
+    int markSearchIndexed(@Param("messageIds") Collection<UUID> messageIds);
+
+    /**
+     * Conversations holding live messages older than the cutoff that are not yet archived
+     */
+    @Query("SELECT DISTINCT m.conversation.id FROM Message m WHERE m.createdAt < :cutoff " +
+           "AND m.sequence > COALESCE(m.conversation.archivedThroughSequence, 0)")
+    List<UUID> findArchivableConversationIds(@Param("cutoff") Instant cutoff, Pageable pageable);
+
+    /**
+     * Oldest unarchived messages of a conversation created before the cutoff, oldest first
+     */
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId " +
+           "AND m.sequence > :afterSequence AND m.createdAt < :cutoff " +
+           "ORDER BY m.sequence ASC")
+    List<Message> findArchivable(@Param("conversationId") UUID conversationId,
+                                 @Param("afterSequence") long afterSequence,
+                                 @Param("cutoff") Instant cutoff,
+                                 Pageable pageable);
+
+    /**
+     * Physically removes archived rows, including soft-deleted ones that the entity restriction hides
+     */
+    @Modifying
+    @Query(value = "DELETE FROM message WHERE conversation_id = :conversationId " +
+                   "AND sequence_number <= :throughSequence", nativeQuery = true)
+    int deleteThroughSequence(@Param("conversationId") UUID conversationId,
+                              @Param("throughSequence") long throughSequence);
+
+    /**
+     * Physically removes up to {@code limit} rows, lowest id first, that were soft-deleted before the cutoff
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM message WHERE deleted = true AND deleted_at < :cutoff ORDER BY id LIMIT :limit",
+           nativeQuery = true)
+    int purgeSoftDeleted(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    /**
+     * Next chunk of users, ordered by id, who have unread messages that are due for a reminder.
+     * A message is addressed to whichever participant of its conversation did not send it.
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId AND EXISTS (" +
+           "SELECT 1 FROM Message m JOIN m.conversation c WHERE m.isRead = false AND m.createdAt < :createdBefore " +
+           "AND (m.lastNotificationSent IS NULL OR m.lastNotificationSent < :notifiedBefore) " +
+           "AND ((c.initiator.id = u.id AND m.sender.id = c.recipient.id) " +
+           "OR (c.recipient.id = u.id AND m.sender.id = c.initiator.id))) " +
+           "ORDER BY u.id")
+    List<UUID> findReminderRecipientIds(@Param("afterId") UUID afterId,
+                                        @Param("createdBefore") Instant createdBefore,
+                                        @Param("notifiedBefore") LocalDateTime notifiedBefore,
+                                        Pageable pageable);
+
+    /**
+     * Per recipient and conversation, the number of unread messages that are due for a reminder
+     */
+    @Query("SELECT new com.app.merrbioapi.model.dto.chat.UnreadConversationDigest(" +
+           "u.id, u.email, c.id, c.title, COUNT(m), MAX(m.createdAt)) " +
+           "FROM Message m JOIN m.conversation c JOIN User u ON " +
+           "((c.initiator.id = u.id AND m.sender.id = c.recipient.id) " +
+           "OR (c.recipient.id = u.id AND m.sender.id = c.initiator.id)) " +
+           "WHERE u.id IN :recipientIds AND m.isRead = false AND m.createdAt < :createdBefore " +
+           "AND (m.lastNotificationSent IS NULL OR m.lastNotificationSent < :notifiedBefore) " +
+           "GROUP BY u.id, u.email, c.id, c.title " +
+           "ORDER BY u.id")
+    List<UnreadConversationDigest> findUnreadDigests(@Param("recipientIds") Collection<UUID> recipientIds,
+                                                     @Param("createdBefore") Instant createdBefore,
+                                                     @Param("notifiedBefore") LocalDateTime notifiedBefore);
+
     /**
-     * Update the last notification sent time for a message
+     * Stamps every reminder-due message addressed to the given recipients in a single statement
      */
     @Modifying
     @Transactional
-    @Query("UPDATE Message m SET m.lastNotificationSent = :sentTime WHERE m.id = :messageId")
-    void updateNotificationSentTime(@Param("messageId") UUID messageId, @Param("sentTime") LocalDateTime sentTime);
+    @Query("UPDATE Message m SET m.lastNotificationSent = :sentTime " +
+           "WHERE m.isRead = false AND m.createdAt < :createdBefore " +
+           "AND (m.lastNotificationSent IS NULL OR m.lastNotificationSent < :notifiedBefore) " +
+           "AND EXISTS (SELECT 1 FROM Conversation c WHERE c.id = m.conversation.id " +
+           "AND ((c.initiator.id IN :recipientIds AND m.sender.id = c.recipient.id) " +
+           "OR (c.recipient.id IN :recipientIds AND m.sender.id = c.initiator.id)))")
+    int markRemindersSent(@Param("recipientIds") Collection<UUID> recipientIds,
+                          @Param("createdBefore") Instant createdBefore,
+                          @Param("notifiedBefore") LocalDateTime notifiedBefore,
+                          @Param("sentTime") LocalDateTime sentTime);
 }
\ No newline at end of file
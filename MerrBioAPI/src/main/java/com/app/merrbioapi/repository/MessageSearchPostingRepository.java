@@ -0,0 +1,61 @@
+package com.app.merrbioapi.repository;
+
+import com.app.merrbioapi.model.dto.chat.ChatSearchMatch;
+import com.app.merrbioapi.model.entity.MessageSearchPosting;
+import com.app.merrbioapi.model.entity.MessageSearchPostingId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+@Repository
+public interface MessageSearchPostingRepository extends JpaRepository<MessageSearchPosting, MessageSearchPostingId> {
+
+    /**
+     * Messages visible to the user that contain all of the given terms, newest first
+     */
+    @Query("SELECT new com.app.merrbioapi.model.dto.chat.ChatSearchMatch(p.id.messageId, p.conversationId, p.sequence) " +
+           "FROM MessageSearchPosting p " +
+           "WHERE p.id.userId = :userId AND p.id.term IN :terms " +
+           "GROUP BY p.id.messageId, p.conversationId, p.sequence, p.createdAt " +
+           "HAVING COUNT(p) = :termCount " +
+           "ORDER BY p.createdAt DESC, p.id.messageId")
+    Slice<ChatSearchMatch> findMatches(@Param("userId") UUID userId,
+                                       @Param("terms") Collection<String> terms,
+                                       @Param("termCount") long termCount,
+                                       Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MessageSearchPosting p WHERE p.id.messageId IN :messageIds")
+    int deleteByMessageIds(@Param("messageIds") Collection<UUID> messageIds);
+
+    /**
+     * Removes the postings of soft-deleted messages in a conversation up to the given sequence, which archiving
+     * drops instead of moving to a segment
+     */
+    @Modifying
+    @Query(value = "DELETE p FROM message_search_posting p JOIN message m ON m.id = p.message_id " +
+                   "WHERE m.conversation_id = :conversationId AND m.sequence_number <= :throughSequence " +
+                   "AND m.deleted = true", nativeQuery = true)
+    int deleteOfDeletedThroughSequence(@Param("conversationId") UUID conversationId,
+                                       @Param("throughSequence") long throughSequence);
+
+    /**
+     * Removes the postings of the messages {@link MessageRepository#purgeSoftDeleted} is about to remove with
+     * the same arguments; both must run in one transaction
+     */
+    @Modifying
+    @Query(value = "DELETE p FROM message_search_posting p JOIN (" +
+                   "SELECT id FROM message WHERE deleted = true AND deleted_at < :cutoff ORDER BY id LIMIT :limit) m " +
+                   "ON m.id = p.message_id", nativeQuery = true)
+    int deleteOfPurgeable(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+}
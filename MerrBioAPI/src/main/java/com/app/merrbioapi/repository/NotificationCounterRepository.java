@@ -0,0 +1,35 @@
+package com.app.merrbioapi.repository;
+
+import com.app.merrbioapi.model.entity.NotificationCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface NotificationCounterRepository extends JpaRepository<NotificationCounter, UUID> {
+
+    @Modifying
+    @Query(value = "INSERT INTO notification_counter (user_id, unread_count) VALUES (:userId, :delta) " +
+                   "ON DUPLICATE KEY UPDATE unread_count = unread_count + :delta", nativeQuery = true)
+    int increment(@Param("userId") UUID userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE NotificationCounter c SET c.unreadCount = c.unreadCount - 1 WHERE c.userId = :userId AND c.unreadCount > 0")
+    int decrement(@Param("userId") UUID userId);
+
+    @Modifying
+    @Query("UPDATE NotificationCounter c SET c.unreadCount = 0 WHERE c.userId = :userId")
+    int reset(@Param("userId") UUID userId);
+
+    /**
+     * Takes purged unread notifications off the user's counter
+     */
+    @Modifying
+    @Query(value = "UPDATE notification_counter SET unread_count = GREATEST(unread_count - :delta, 0) " +
+                   "WHERE user_id = :userId", nativeQuery = true)
+    int decrementBy(@Param("userId") UUID userId, @Param("delta") int delta);
+}
@@ -0,0 +1,53 @@
+package com.app.merrbioapi.repository;
+
+import com.app.merrbioapi.model.entity.Notification;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface NotificationRepository extends JpaRepository<Notification, UUID> {
+
+    Page<Notification> findByUserId(UUID userId, Pageable pageable);
+
+    @Query("SELECT n FROM Notification n WHERE n.userId = :userId AND n.delivered = false ORDER BY n.createdAt ASC")
+    List<Notification> findUndelivered(@Param("userId") UUID userId, Pageable pageable);
+
+    @Query("SELECT n FROM Notification n WHERE n.userId = :userId " +
+            "AND (n.createdAt > :createdAt OR (n.createdAt = :createdAt AND n.id > :id)) " +
+            "ORDER BY n.createdAt ASC, n.id ASC")
+    List<Notification> findAfter(@Param("userId") UUID userId,
+                                 @Param("createdAt") Instant createdAt,
+                                 @Param("id") UUID id,
+                                 Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.delivered = true WHERE n.id IN :ids")
+    int markDelivered(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true WHERE n.id = :id AND n.userId = :userId AND n.read = false")
+    int markRead(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true WHERE n.userId = :userId AND n.read = false")
+    int markAllRead(@Param("userId") UUID userId);
+
+    /**
+     * Next chunk of notifications older than the cutoff, locked so they cannot be marked read while they are purged
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT n FROM Notification n WHERE n.createdAt < :cutoff ORDER BY n.createdAt ASC")
+    List<Notification> findOlderThanForUpdate(@Param("cutoff") Instant cutoff, Pageable pageable);
+}
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -29,6 +30,16 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
     @Query("SELECT DISTINCT o FROM Order o JOIN o.orderItems oi WHERE oi.product.farmer.id = :farmerId")
     Page<Order> findOrdersByFarmerId(@Param("farmerId") UUID farmerId, Pageable pageable);
     
+    // Order with everything needed to map it and find its farmers, in one query
+    @Query("SELECT DISTINCT o FROM Order o " +
+            "JOIN FETCH o.customer " +
+            "JOIN FETCH o.orderItems oi " +
+            "JOIN FETCH oi.product p " +
+            "JOIN FETCH p.farmer f " +
+            "LEFT JOIN FETCH f.user " +
+            "WHERE o.id = :orderId")
+    Optional<Order> findWithItemsById(@Param("orderId") UUID orderId);
+
     // Find orders by status
     List<Order> findByOrderStatus(OrderStatus status);
     
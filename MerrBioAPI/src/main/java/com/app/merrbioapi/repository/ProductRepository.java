@@ -9,20 +9,30 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, UUID> {
-    List<Product> findByFarmerId(UUID farmerId);
+    // Public lookups leave out products whose images are still waiting for moderation
+    Optional<Product> findByIdAndModerationPendingFalse(UUID id);
 
-    @Query("SELECT p FROM Product p JOIN p.category pc WHERE pc.category.id = :categoryId")
+    List<Product> findByModerationPendingFalse();
+
+    List<Product> findByFarmerIdAndModerationPendingFalse(UUID farmerId);
+
+    @Query("SELECT p.id FROM Product p WHERE p.moderationPending = true ORDER BY p.id")
+    List<UUID> findModerationPendingIds(Pageable pageable);
+
+    @Query("SELECT p FROM Product p JOIN p.category pc WHERE pc.category.id = :categoryId AND p.moderationPending = false")
     List<Product> findByCategoryId(@Param("categoryId") UUID categoryId);
 
-    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%'))")
+    @Query("SELECT p FROM Product p WHERE (LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND p.moderationPending = false")
     List<Product> searchProducts(@Param("keyword") String keyword);
     @Query(value = "SELECT DISTINCT p FROM Product p " +
             "LEFT JOIN p.category pc " +
             "WHERE p.isInStock = true " +  // Always filter for in-stock products
+            "AND p.moderationPending = false " +
             "AND (:query IS NULL OR (LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :query, '%')))) " +
             "AND (:farmerId IS NULL OR p.farmer.id = :farmerId) " +
             "AND (:categoryId IS NULL OR EXISTS (SELECT 1 FROM p.category pc2 WHERE pc2.category.id = :categoryId)) " +
@@ -44,6 +54,7 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
     @Query(value = "SELECT DISTINCT p FROM Product p " +
             "LEFT JOIN p.category pc " +
             "WHERE p.isInStock = true " +  // Always filter for in-stock products
+            "AND p.moderationPending = false " +
             "AND (:query IS NULL OR (LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :query, '%')))) " +
             "AND (:farmerId IS NULL OR p.farmer.id = :farmerId) " +
             "AND (:#{#categoryIds == null || #categoryIds.isEmpty()} = true OR EXISTS (SELECT 1 FROM p.category pc2 WHERE pc2.category.id IN :categoryIds)) " +
@@ -3,6 +3,7 @@ package com.app.merrbioapi.repository;
 import com.app.merrbioapi.model.entity.RefreshToken;
 import com.app.merrbioapi.model.entity.User;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -16,17 +17,51 @@ import java.util.UUID;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
-    Optional<RefreshToken> findByToken(String token);
+
+    // Expired sessions, and revoked ones whose access tokens have all expired
+    String PURGEABLE = "(r.expiryDate < :now OR (r.revoked = true AND r.updatedAt < :revokedBefore))";
+
+    @Query("SELECT r FROM RefreshToken r JOIN FETCH r.user WHERE r.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHash(@Param("tokenHash") byte[] tokenHash);
 
     List<RefreshToken> findAllByUser(User user);
 
+    /**
+     * Revokes the session only if it is still valid, so of two requests presenting the same token only one wins
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true, r.updatedAt = :now " +
+           "WHERE r.id = :id AND r.revoked = false AND r.expiryDate > :now")
+    int consume(@Param("id") UUID id, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true, r.updatedAt = :now WHERE r.id = :id AND r.revoked = false")
+    int revokeById(@Param("id") UUID id, @Param("now") Instant now);
+
+    /**
+     * Ids of the user's unrevoked sessions, oldest first
+     */
+    @Query("SELECT r.id FROM RefreshToken r WHERE r.user.id = :userId AND r.revoked = false ORDER BY r.createdAt")
+    List<UUID> findOldestActiveIds(@Param("userId") UUID userId, Pageable pageable);
+
     @Modifying
-    @Query("UPDATE RefreshToken rt SET rt.revoked = true WHERE rt.user = :user AND rt.revoked = false")
-    void revokeAllUserTokens(@Param("user") User user);
+    @Query("UPDATE RefreshToken rt SET rt.revoked = true, rt.updatedAt = :now WHERE rt.user = :user AND rt.revoked = false")
+    int revokeAllUserTokens(@Param("user") User user, @Param("now") Instant now);
+
+    @Query("SELECT r.id FROM RefreshToken r ORDER BY r.id")
+    List<UUID> findIds(Pageable pageable);
+
+    @Query("SELECT r.id FROM RefreshToken r WHERE r.id > :after ORDER BY r.id")
+    List<UUID> findIdsAfter(@Param("after") UUID after, Pageable pageable);
+
+    @Query("SELECT DISTINCT r.user.id FROM RefreshToken r WHERE r.id >= :from AND r.id <= :to AND " + PURGEABLE)
+    List<UUID> findPurgeableUserIds(@Param("from") UUID from, @Param("to") UUID to,
+                                    @Param("now") Instant now, @Param("revokedBefore") Instant revokedBefore);
 
     @Modifying
-    @Query("DELETE FROM RefreshToken rt WHERE rt.expiryDate < :now")
-    void deleteAllExpiredTokens(@Param("now") Instant now);
+    @Query("DELETE FROM RefreshToken r WHERE r.id >= :from AND r.id <= :to AND " + PURGEABLE)
+    int deletePurgeable(@Param("from") UUID from, @Param("to") UUID to,
+                        @Param("now") Instant now, @Param("revokedBefore") Instant revokedBefore);
 
     @Query("SELECT r FROM RefreshToken r WHERE r.user = :user AND r.revoked = false AND r.expiryDate > :now")
     List<RefreshToken> findActiveTokensByUser(@Param("user") User user, @Param("now") Instant now);
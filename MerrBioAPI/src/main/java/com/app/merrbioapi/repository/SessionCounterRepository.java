@@ -0,0 +1,57 @@
+package com.app.merrbioapi.repository;
+
+import com.app.merrbioapi.model.entity.SessionCounter;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SessionCounterRepository extends JpaRepository<SessionCounter, UUID> {
+
+    /**
+     * Creates an empty counter for the user unless one exists, so there is always a row to lock
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO session_counter (user_id, active_count) VALUES (:userId, 0)", nativeQuery = true)
+    int createIfAbsent(@Param("userId") UUID userId);
+
+    /**
+     * Loads the counter while holding its row lock, which serializes session creation per user
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM SessionCounter c WHERE c.userId = :userId")
+    Optional<SessionCounter> findByIdForUpdate(@Param("userId") UUID userId);
+
+    /**
+     * Takes a session slot if the user is below the cap; returns 0 at the cap or if the user has no counter yet
+     */
+    @Modifying
+    @Query("UPDATE SessionCounter c SET c.activeCount = c.activeCount + 1 WHERE c.userId = :userId AND c.activeCount < :max")
+    int tryAcquire(@Param("userId") UUID userId, @Param("max") int max);
+
+    @Modifying
+    @Query("UPDATE SessionCounter c SET c.activeCount = c.activeCount - 1 WHERE c.userId = :userId AND c.activeCount > 0")
+    int release(@Param("userId") UUID userId);
+
+    @Modifying
+    @Query("UPDATE SessionCounter c SET c.activeCount = 0 WHERE c.userId = :userId")
+    int reset(@Param("userId") UUID userId);
+
+    /**
+     * Re-derives the counters of the given users from the sessions table
+     */
+    @Modifying
+    @Query(value = "UPDATE session_counter c SET c.active_count = " +
+                   "(SELECT COUNT(*) FROM refresh_session r WHERE r.user_id = c.user_id AND r.revoked = false) " +
+                   "WHERE c.user_id IN (:userIds)",
+            nativeQuery = true)
+    int recount(@Param("userIds") Collection<UUID> userIds);
+}
@@ -1,5 +1,7 @@
 package com.app.merrbioapi.repository;
 
+import com.app.merrbioapi.config.UserPrincipal;
+import com.app.merrbioapi.model.dto.response.UserProfileResponse;
 import com.app.merrbioapi.model.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -8,15 +10,42 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
     User findByEmail(String email);
     boolean existsByEmail(String email);
-    @Query("SELECT u FROM User u JOIN u.userInfo ui WHERE " +
+
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.userInfo WHERE u.email = :email")
+    Optional<User> findWithInfoByEmail(@Param("email") String email);
+
+    // Identity, display name and farmer id in one round trip
+    @Query("SELECT new com.app.merrbioapi.config.UserPrincipal(u.id, u.email, u.role, " +
+            "CONCAT(ui.firstName, ' ', ui.lastName), f.id) " +
+            "FROM User u LEFT JOIN u.userInfo ui LEFT JOIN Farmer f ON f.user = u " +
+            "WHERE u.email = :email")
+    Optional<UserPrincipal> findPrincipalByEmail(@Param("email") String email);
+
+    // User, info and farm fields in one round trip; farm fields are null for non-farmers
+    @Query("SELECT new com.app.merrbioapi.model.dto.response.UserProfileResponse(u.id, u.email, u.role, " +
+            "ui.firstName, ui.lastName, ui.birthDate, ui.phoneNumber, ui.gender, " +
+            "f.farmName, f.farmLocation, f.bio, f.isVerified) " +
+            "FROM User u JOIN u.userInfo ui LEFT JOIN Farmer f ON f.user = u " +
+            "WHERE u.id = :userId")
+    Optional<UserProfileResponse> findProfileById(@Param("userId") UUID userId);
+
+    @Query(value = "SELECT new com.app.merrbioapi.model.dto.response.UserProfileResponse(u.id, u.email, u.role, " +
+            "ui.firstName, ui.lastName, ui.birthDate, ui.phoneNumber, ui.gender, " +
+            "f.farmName, f.farmLocation, f.bio, f.isVerified) " +
+            "FROM User u JOIN u.userInfo ui LEFT JOIN Farmer f ON f.user = u WHERE " +
+            "(:search IS NULL OR LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(ui.firstName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(ui.lastName) LIKE LOWER(CONCAT('%', :search, '%')))",
+            countQuery = "SELECT COUNT(u) FROM User u JOIN u.userInfo ui WHERE " +
             "(:search IS NULL OR LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
             "LOWER(ui.firstName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
             "LOWER(ui.lastName) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<User> findBySearchTerm(@Param("search") String search, Pageable pageable);
+    Page<UserProfileResponse> findProfilesBySearchTerm(@Param("search") String search, Pageable pageable);
 }
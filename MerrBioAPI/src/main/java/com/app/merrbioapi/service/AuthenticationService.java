@@ -1,12 +1,13 @@
 package com.app.merrbioapi.service;
 
 import com.app.merrbioapi.config.JwtService;
+import com.app.merrbioapi.config.TokenDenylist;
+import com.app.merrbioapi.config.UserPrincipal;
 import com.app.merrbioapi.exception.AccessDeniedException;
 import com.app.merrbioapi.exception.EmailAlreadyExistsException;
 import com.app.merrbioapi.exception.InvalidCredentialsException;
 import com.app.merrbioapi.exception.PhoneNumberAlreadyExistsException;
 import com.app.merrbioapi.exception.SessionNotFoundException;
-import com.app.merrbioapi.exception.TokenRefreshException;
 import com.app.merrbioapi.model.dto.request.AuthenticationRequest;
 import com.app.merrbioapi.model.dto.request.BaseRegisterRequest;
 import com.app.merrbioapi.model.dto.request.CustomerRegisterRequest;
@@ -22,11 +23,13 @@ import com.app.merrbioapi.model.entity.RefreshToken;
 import com.app.merrbioapi.model.entity.User;
 import com.app.merrbioapi.model.entity.UserInfo;
 import com.app.merrbioapi.model.enums.Role;
+import com.app.merrbioapi.model.event.UserChangedEvent;
 import com.app.merrbioapi.repository.FarmerRepository;
 import com.app.merrbioapi.repository.RefreshTokenRepository;
 import com.app.merrbioapi.repository.UserInfoRepository;
 import com.app.merrbioapi.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -54,13 +57,20 @@ public class AuthenticationService {
     private final PasswordEncoder passwordEncoder;
     private final RefreshTokenRepository refreshTokenRepository;
     private final FarmerRepository farmerRepository;
-
-    @Transactional
-    public AuthenticationResponse authenticate(AuthenticationRequest request) {
+    private final UserPrincipalService userPrincipalService;
+    private final TokenDenylist tokenDenylist;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LoginThrottle loginThrottle;
+
+    // Not transactional: no connection is held while the password is verified on the hashing pool
+    public AuthenticationResponse authenticate(AuthenticationRequest request, String clientAddress) {
+        loginThrottle.acquire(request.getEmail(), clientAddress);
         UserDetails userDetails = authenticateAndGetUserDetails(request.getEmail(), request.getPassword());
+        loginThrottle.recordSuccess(request.getEmail(), clientAddress);
 
-        String accessToken = jwtService.generateAccessToken(userDetails);
-        RefreshToken refreshToken = refreshTokenService.createRefreshToken(userDetails.getUsername());
+        UserPrincipal principal = loadPrincipal(userDetails.getUsername());
+        RefreshToken refreshToken = refreshTokenService.createRefreshToken(principal.getUserId());
+        String accessToken = jwtService.generateAccessToken(principal, refreshToken.getId());
 
         return AuthenticationResponse.builder()
                 .accessToken(accessToken)
@@ -69,7 +79,8 @@ public class AuthenticationService {
     }
 
     @Transactional
-    public AuthenticationResponse registerCustomer(CustomerRegisterRequest request) {
+    public AuthenticationResponse registerCustomer(CustomerRegisterRequest request, String clientAddress) {
+        loginThrottle.acquire(null, clientAddress);
         // 1. Validate uniqueness
         checkEmailAndPhoneNumber(request.getEmail(), request.getPhoneNumber());
 
@@ -77,8 +88,8 @@ public class AuthenticationService {
         User savedUser = createUserAndInfo(request, Role.CUSTOMER);
 
         // 3. Generate tokens (registration implies login)
-        String accessToken = jwtService.generateAccessToken(savedUser);
-        RefreshToken refreshToken = refreshTokenService.createRefreshToken(savedUser.getEmail());
+        RefreshToken refreshToken = refreshTokenService.createRefreshToken(savedUser.getId());
+        String accessToken = jwtService.generateAccessToken(principalOf(savedUser, request, null), refreshToken.getId());
 
         return AuthenticationResponse.builder()
                 .accessToken(accessToken)
@@ -107,6 +118,7 @@ public class AuthenticationService {
                 .gender(request.getGender())
                 .build();
         userInfoRepository.save(userInfo);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getId()));
 
         // Optional: Link UserInfo back to User if needed for immediate access,
         // though FetchType.LAZY is often preferred.
@@ -117,7 +129,8 @@ public class AuthenticationService {
 
 
     @Transactional
-    public AuthenticationResponse registerFarmer(FarmerRegisterRequest request) {
+    public AuthenticationResponse registerFarmer(FarmerRegisterRequest request, String clientAddress) {
+        loginThrottle.acquire(null, clientAddress);
         // 1. Validate uniqueness
         checkEmailAndPhoneNumber(request.getEmail(), request.getPhoneNumber());
         // Optionally check farm name uniqueness if required
@@ -134,11 +147,13 @@ public class AuthenticationService {
                 .bio(request.getBio())
                 .isVerified(false) // Default verification status
                 .build();
-        farmerRepository.save(farmer);
+        Farmer savedFarmer = farmerRepository.save(farmer);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getId()));
 
         // 4. Generate tokens (registration implies login)
-        String accessToken = jwtService.generateAccessToken(savedUser);
-        RefreshToken refreshToken = refreshTokenService.createRefreshToken(savedUser.getEmail());
+        RefreshToken refreshToken = refreshTokenService.createRefreshToken(savedUser.getId());
+        String accessToken = jwtService.generateAccessToken(principalOf(savedUser, request, savedFarmer.getId()),
+                refreshToken.getId());
 
         return AuthenticationResponse.builder()
                 .accessToken(accessToken)
@@ -151,21 +166,15 @@ public class AuthenticationService {
     public TokenRefreshResponse refreshToken(TokenRefreshRequest request) {
         String requestRefreshToken = request.getRefreshToken();
 
-        return refreshTokenService.findByToken(requestRefreshToken)
-                .map(refreshTokenService::verifyExpiration)
-                .map(RefreshToken::getUser)
-                .map(user -> {
-                    String newAccessToken = jwtService.generateAccessToken(user);
-
-                    refreshTokenService.revokeRefreshToken(requestRefreshToken);
-                    RefreshToken newRefreshToken = refreshTokenService.createRefreshToken(user.getEmail());
-
-                    return TokenRefreshResponse.builder()
-                            .refreshToken(newRefreshToken.getToken())
-                            .accessToken(newAccessToken)
-                            .build();
-                })
-                .orElseThrow(() -> new TokenRefreshException(requestRefreshToken, "Refresh token not found in database"));
+        // Lookup, conditional revoke and insert of the successor; the session count does not change
+        RefreshToken newRefreshToken = refreshTokenService.rotate(requestRefreshToken);
+        String newAccessToken = jwtService.generateAccessToken(
+                loadPrincipal(newRefreshToken.getUser().getEmail()), newRefreshToken.getId());
+
+        return TokenRefreshResponse.builder()
+                .refreshToken(newRefreshToken.getToken())
+                .accessToken(newAccessToken)
+                .build();
     }
 
     @Transactional
@@ -178,6 +187,8 @@ public class AuthenticationService {
         User user = userRepository.findByEmail(email);
         if (user != null) {
             refreshTokenService.revokeAllUserTokens(user);
+            // Access tokens already handed out stop working now rather than at their expiry
+            tokenDenylist.revokeUser(user.getId());
         }
     }
 
@@ -213,7 +224,22 @@ public class AuthenticationService {
         }
 
         refreshTokenService.revokeTokenById(sessionId);
+        tokenDenylist.revokeSession(sessionId);
     }
+    private UserPrincipal loadPrincipal(String email) {
+        return userPrincipalService.load(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+    }
+
+    private UserPrincipal principalOf(User user, BaseRegisterRequest request, UUID farmerId) {
+        return new UserPrincipal(
+                user.getId(),
+                user.getEmail(),
+                user.getRole(),
+                request.getFirstName() + " " + request.getLastName(),
+                farmerId);
+    }
+
     private UserDetails authenticateAndGetUserDetails(String email, String password) {
         try{
             Authentication authentication = authenticationManager.authenticate(
@@ -223,6 +249,7 @@ public class AuthenticationService {
             SecurityContextHolder.getContext().setAuthentication(authentication);
             return (UserDetails) authentication.getPrincipal();
         } catch (AuthenticationException e){
+            // The attempt was already counted by the login throttle; only a success clears it
             throw new InvalidCredentialsException();
         }
     }
@@ -0,0 +1,36 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.model.event.ChatMessageEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Pushes stored chat messages to the recipient. Runs only after the message transaction has committed,
+ * so a client never receives a sequence number that could still be rolled back.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChatMessageDeliveryListener {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void handleChatMessage(ChatMessageEvent event) {
+        try {
+            messagingTemplate.convertAndSendToUser(
+                    event.getRecipientId().toString(),
+                    "/queue/messages",
+                    event.getMessage()
+            );
+        } catch (Exception e) {
+            // The message is stored; the recipient picks it up through gap fill on the next (re)subscribe
+            log.warn("Failed to push message {} to user {}: {}",
+                    event.getMessage().getId(), event.getRecipientId(), e.getMessage());
+        }
+    }
+}
@@ -1,17 +1,23 @@
 package com.app.merrbioapi.service;
 
-import com.app.merrbioapi.model.entity.Conversation;
-import com.app.merrbioapi.model.entity.Message;
-import com.app.merrbioapi.model.entity.User;
+import com.app.merrbioapi.model.dto.chat.UnreadConversationDigest;
 import com.app.merrbioapi.repository.MessageRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * Service responsible for scheduled notifications for unread messages
@@ -21,72 +27,106 @@ import java.util.List;
 @Slf4j
 public class ChatNotificationService {
 
+    private static final Duration REMINDER_DELAY = Duration.ofHours(6);
+    // Smallest id in the database ordering, used to start the keyset scan over recipients
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
     private final MessageRepository messageRepository;
     private final EmailService emailService;
-    
+    private final PresenceService presenceService;
+
+    @Value("${app.chat.reminders.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.chat.reminders.in-flight-expiry-ms:21600000}")
+    private long inFlightExpiryMs;
+
+    // Recipients whose digest is still queued or retrying, with when it was queued; they are skipped so a slow
+    // mail is not sent twice. Entries expire in case a digest's callbacks never run.
+    private final Map<UUID, Instant> digestsInFlight = new ConcurrentHashMap<>();
+
     /**
      * Checks for unread messages that haven't been replied to for 6 hours
-     * and sends email notifications to recipients
+     * and sends each recipient a single digest email covering all of their conversations.
+     * Recipients are processed in chunks: one aggregate query and one email per recipient per chunk,
+     * regardless of how many messages are pending. A recipient's messages are stamped as reminded only
+     * once their digest has actually been sent; a digest that is given up on leaves them due for the next run.
      * Runs every hour
      */
     @Scheduled(fixedRate = 3600000) // Run every hour (3600000 ms)
-    @Transactional(readOnly = true)
     public void sendUnreadMessageReminders() {
         log.info("Running scheduled check for unread messages");
-        LocalDateTime cutoffTime = LocalDateTime.now().minusHours(6);
-        
-        // Find messages that are:
-        // 1. Unread
-        // 2. Older than 6 hours
-        // 3. Have not had a notification sent recently
-        List<Message> unreadMessages = messageRepository.findUnreadMessagesOlderThan(cutoffTime);
-        
-        for (Message message : unreadMessages) {
-            User recipient = getRecipientUser(message);
-            User sender = message.getSender();
-            Conversation conversation = message.getConversation();
-            
-            // Send email notification
-            try {
-                sendMessageReminder(recipient, sender, message, conversation);
-                
-                // Mark that a notification was sent for this message
-                messageRepository.updateNotificationSentTime(message.getId(), LocalDateTime.now());
-            } catch (Exception e) {
-                log.error("Failed to send message reminder for message {}: {}", message.getId(), e.getMessage());
+        Instant createdBefore = Instant.now().minus(REMINDER_DELAY);
+        LocalDateTime notifiedBefore = LocalDateTime.now().minus(REMINDER_DELAY);
+        Instant queuedBefore = Instant.now().minusMillis(inFlightExpiryMs);
+        if (digestsInFlight.values().removeIf(queuedAt -> queuedAt.isBefore(queuedBefore))) {
+            log.warn("Digests queued before {} never settled; their recipients are due again", queuedBefore);
+        }
+
+        UUID afterId = FIRST_ID;
+        int digestsSent = 0;
+        while (true) {
+            List<UUID> recipientIds = messageRepository.findReminderRecipientIds(
+                    afterId, createdBefore, notifiedBefore, PageRequest.of(0, chunkSize));
+            if (recipientIds.isEmpty()) {
+                break;
+            }
+            afterId = recipientIds.get(recipientIds.size() - 1);
+
+            // Connected users see the messages in the app; they stay pending until they go offline
+            List<UUID> offlineIds = recipientIds.stream()
+                    .filter(id -> !presenceService.isOnline(id) && !digestsInFlight.containsKey(id))
+                    .toList();
+            if (!offlineIds.isEmpty()) {
+                digestsSent += sendDigests(offlineIds, createdBefore, notifiedBefore);
+            }
+
+            if (recipientIds.size() < chunkSize) {
+                break;
             }
         }
+        log.info("Queued {} unread message digests", digestsSent);
     }
-    
-    private User getRecipientUser(Message message) {
-        Conversation conversation = message.getConversation();
-        // If sender is the initiator, then recipient is the other user
-        return message.getSender().equals(conversation.getInitiator()) 
-                ? conversation.getRecipient() 
-                : conversation.getInitiator();
-    }
-    
-    private void sendMessageReminder(User recipient, User sender, Message message, Conversation conversation) {
-        String recipientEmail = recipient.getEmail();
-        String senderName = getSenderName(sender);
-        String messagePreview = message.getContent();
-        
-        // Trim message preview if too long
-        if (messagePreview.length() > 100) {
-            messagePreview = messagePreview.substring(0, 97) + "...";
+
+    private int sendDigests(List<UUID> recipientIds, Instant createdBefore, LocalDateTime notifiedBefore) {
+        Map<UUID, List<UnreadConversationDigest>> byRecipient = messageRepository
+                .findUnreadDigests(recipientIds, createdBefore, notifiedBefore).stream()
+                .collect(Collectors.groupingBy(UnreadConversationDigest::getRecipientId,
+                        LinkedHashMap::new, Collectors.toList()));
+
+        int sent = 0;
+        for (List<UnreadConversationDigest> conversations : byRecipient.values()) {
+            UUID recipientId = conversations.get(0).getRecipientId();
+            Instant queuedAt = Instant.now();
+            if (digestsInFlight.putIfAbsent(recipientId, queuedAt) != null) {
+                continue;
+            }
+            try {
+                emailService.sendUnreadDigest(conversations.get(0).getRecipientEmail(), conversations,
+                        () -> markReminded(recipientId, queuedAt, createdBefore, notifiedBefore),
+                        () -> digestsInFlight.remove(recipientId, queuedAt));
+                sent++;
+            } catch (Exception e) {
+                digestsInFlight.remove(recipientId, queuedAt);
+                log.error("Failed to send unread digest to user {}: {}", recipientId, e.getMessage());
+            }
         }
-        
-        // Get conversation title
-        String conversationTitle = conversation.getTitle();
-        
-        emailService.sendChatNotification(recipientEmail, senderName, messagePreview, conversationTitle);
-        log.info("Sent reminder email to {} about message from {}", recipientEmail, senderName);
+        return sent;
     }
-    
-    private String getSenderName(User user) {
-        if (user.getUserInfo() != null) {
-            return user.getUserInfo().getFirstName() + " " + user.getUserInfo().getLastName();
+
+    /**
+     * Runs on the mail thread once the recipient's digest has been sent. Messages that arrived after the
+     * digest was built are outside the bounds and stay due. Only this digest's own entry is cleared, in case it
+     * settles after expiring and a newer digest is already in flight.
+     */
+    private void markReminded(UUID recipientId, Instant queuedAt, Instant createdBefore,
+                              LocalDateTime notifiedBefore) {
+        try {
+            int stamped = messageRepository.markRemindersSent(
+                    List.of(recipientId), createdBefore, notifiedBefore, LocalDateTime.now());
+            log.debug("Marked {} messages as reminded for user {}", stamped, recipientId);
+        } finally {
+            digestsInFlight.remove(recipientId, queuedAt);
         }
-        return user.getEmail();
     }
-}
\ No newline at end of file
+}
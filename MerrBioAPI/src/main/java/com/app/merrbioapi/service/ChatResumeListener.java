@@ -0,0 +1,162 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.config.UserPrincipal;
+import com.app.merrbioapi.model.dto.chat.ChatMessageDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Implements the chat resume protocol. A client that reconnects sends a {@code lastSeq} header, either on
+ * CONNECT or on its SUBSCRIBE to {@code /user/queue/messages}, listing the last sequence number it has seen
+ * per conversation: {@code lastSeq: <conversationId>:<sequence>,<conversationId>:<sequence>}.
+ * Only the messages after those positions are replayed, and only to the subscribing session.
+ * <p>
+ * The replay starts once the SUBSCRIBE has been handled by the user destination handler, i.e. once the broker
+ * knows the subscription, so no replayed message is sent to a queue nobody listens on yet. Reading the missed
+ * messages runs on the chat replay executor rather than on the inbound channel's threads.
+ */
+@Component
+@Slf4j
+public class ChatResumeListener implements ExecutorChannelInterceptor {
+
+    static final String LAST_SEQ_HEADER = "lastSeq";
+    private static final String LAST_SEQ_ATTRIBUTE = "chat.lastSeq";
+    private static final String MESSAGES_DESTINATION = "/user/queue/messages";
+    private static final int MAX_CONVERSATIONS_PER_RESUME = 100;
+
+    private final ChatService chatService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Executor replayExecutor;
+
+    @Value("${app.chat.resume.max-replay-per-conversation:200}")
+    private int maxReplayPerConversation;
+
+    public ChatResumeListener(ChatService chatService,
+                              SimpMessagingTemplate messagingTemplate,
+                              @Qualifier("chatReplayExecutor") Executor replayExecutor) {
+        this.chatService = chatService;
+        this.messagingTemplate = messagingTemplate;
+        this.replayExecutor = replayExecutor;
+    }
+
+    @EventListener
+    public void handleConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String lastSeq = accessor.getFirstNativeHeader(LAST_SEQ_HEADER);
+        if (lastSeq != null && accessor.getSessionAttributes() != null) {
+            // Remember the positions until the client subscribes to its message queue
+            accessor.getSessionAttributes().put(LAST_SEQ_ATTRIBUTE, lastSeq);
+        }
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        // Called once per inbound handler; the user destination handler is the one that registers the queue
+        if (ex != null || !(handler instanceof UserDestinationMessageHandler)) {
+            return;
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.SUBSCRIBE
+                || !MESSAGES_DESTINATION.equals(accessor.getDestination())) {
+            return;
+        }
+
+        Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+        if (sessionAttributes == null) {
+            return;
+        }
+
+        String lastSeq = accessor.getFirstNativeHeader(LAST_SEQ_HEADER);
+        if (lastSeq == null) {
+            lastSeq = (String) sessionAttributes.remove(LAST_SEQ_ATTRIBUTE);
+        }
+
+        UserPrincipal principal = (UserPrincipal) sessionAttributes.get(UserPrincipal.SESSION_ATTRIBUTE);
+        if (lastSeq == null || principal == null) {
+            return;
+        }
+
+        Map<UUID, Long> positions = parseLastSeq(lastSeq);
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        String sessionId = accessor.getSessionId();
+        try {
+            replayExecutor.execute(() -> replay(principal, sessionId, positions));
+        } catch (TaskRejectedException e) {
+            // The client still has the paged history endpoint to fill the gap
+            log.warn("Chat replay queue is full, skipping replay to session {}", sessionId);
+        }
+    }
+
+    private void replay(UserPrincipal principal, String sessionId, Map<UUID, Long> positions) {
+        try {
+            List<ChatMessageDto> missed = chatService.getMissedMessages(principal.getUserId(), positions,
+                    maxReplayPerConversation);
+            log.debug("Replaying {} missed messages to session {}", missed.size(), sessionId);
+
+            for (ChatMessageDto message : missed) {
+                messagingTemplate.convertAndSendToUser(
+                        principal.getName(),
+                        "/queue/messages",
+                        message,
+                        sessionHeaders(sessionId)
+                );
+            }
+        } catch (Exception e) {
+            log.warn("Failed to replay missed messages to session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Targets a single session so other devices of the same user don't receive the replay.
+     */
+    private Map<String, Object> sessionHeaders(String sessionId) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        return headers.getMessageHeaders();
+    }
+
+    static Map<UUID, Long> parseLastSeq(String header) {
+        Map<UUID, Long> positions = new LinkedHashMap<>();
+        for (String entry : header.split(",")) {
+            if (positions.size() >= MAX_CONVERSATIONS_PER_RESUME) {
+                break;
+            }
+            int separator = entry.lastIndexOf(':');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                UUID conversationId = UUID.fromString(entry.substring(0, separator).trim());
+                long sequence = Long.parseLong(entry.substring(separator + 1).trim());
+                positions.put(conversationId, Math.max(0L, sequence));
+            } catch (IllegalArgumentException e) {
+                log.debug("Ignoring malformed lastSeq entry '{}'", entry);
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,130 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.model.dto.chat.ChatMessageDto;
+import com.app.merrbioapi.model.dto.chat.ChatSearchHitDto;
+import com.app.merrbioapi.model.dto.chat.ChatSearchMatch;
+import com.app.merrbioapi.model.entity.Conversation;
+import com.app.merrbioapi.model.entity.Message;
+import com.app.merrbioapi.model.entity.User;
+import com.app.merrbioapi.repository.ConversationRepository;
+import com.app.merrbioapi.repository.MessageRepository;
+import com.app.merrbioapi.repository.MessageSearchPostingRepository;
+import com.app.merrbioapi.util.SearchTokenizer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Searches the messages of the conversations a user takes part in, using the index kept by
+ * {@link MessageSearchIndexer}. A message matches when it contains every term of the query.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatSearchService {
+
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int MAX_PAGE_SIZE = 50;
+
+    private final MessageSearchPostingRepository postingRepository;
+    private final MessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+    private final MessageArchiveService messageArchiveService;
+
+    @Transactional(readOnly = true)
+    public Slice<ChatSearchHitDto> search(UUID userId, String query, int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        Set<String> terms = SearchTokenizer.tokenize(query).stream()
+                .limit(MAX_QUERY_TERMS)
+                .collect(Collectors.toSet());
+        if (terms.isEmpty()) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+
+        Slice<ChatSearchMatch> matches = postingRepository.findMatches(userId, terms, terms.size(), pageable);
+        if (!matches.hasContent()) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+
+        Map<UUID, Message> liveMessages = messageRepository.findAllById(
+                        matches.stream().map(ChatSearchMatch::getMessageId).toList()).stream()
+                .collect(Collectors.toMap(Message::getId, Function.identity()));
+        Map<UUID, Conversation> conversations = conversationRepository.findAllWithParticipantsByIdIn(
+                        matches.stream().map(ChatSearchMatch::getConversationId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Conversation::getId, Function.identity()));
+
+        List<ChatSearchHitDto> hits = new ArrayList<>();
+        for (ChatSearchMatch match : matches) {
+            Conversation conversation = conversations.get(match.getConversationId());
+            // Deleted conversations and messages stay in the index until purged; skip them
+            if (conversation == null) {
+                continue;
+            }
+            ChatMessageDto message = resolveMessage(match, conversation, liveMessages.get(match.getMessageId()));
+            if (message == null) {
+                continue;
+            }
+            hits.add(mapToSearchHit(userId, conversation, message));
+        }
+        return new SliceImpl<>(hits, pageable, matches.hasNext());
+    }
+
+    /**
+     * Live messages come from the table; anything already archived is read back from its segment
+     */
+    private ChatMessageDto resolveMessage(ChatSearchMatch match, Conversation conversation, Message live) {
+        if (live != null) {
+            return ChatMessageDto.builder()
+                    .id(live.getId())
+                    .senderId(live.getSender().getId())
+                    .content(live.getContent())
+                    .conversationId(match.getConversationId())
+                    .sequence(live.getSequence())
+                    .clientMessageId(live.getClientMessageId())
+                    .timestamp(live.getCreatedAt())
+                    .build();
+        }
+        if (match.getSequence() == null) {
+            return null;
+        }
+        List<ChatMessageDto> archived = messageArchiveService.readAfter(match.getConversationId(),
+                match.getSequence() - 1, MessageArchiveService.archivedThrough(conversation), 1);
+        if (archived.isEmpty() || !archived.get(0).getId().equals(match.getMessageId())) {
+            return null;
+        }
+        return archived.get(0);
+    }
+
+    private ChatSearchHitDto mapToSearchHit(UUID userId, Conversation conversation, ChatMessageDto message) {
+        User initiator = conversation.getInitiator();
+        User recipient = conversation.getRecipient();
+        User partner = initiator.getId().equals(userId) ? recipient : initiator;
+        message.setSenderName(getSenderName(message.getSenderId().equals(initiator.getId()) ? initiator : recipient));
+
+        return ChatSearchHitDto.builder()
+                .conversationId(conversation.getId())
+                .conversationTitle(conversation.getTitle())
+                .partnerId(partner.getId())
+                .partnerName(getSenderName(partner))
+                .message(message)
+                .build();
+    }
+
+    private String getSenderName(User user) {
+        if (user.getUserInfo() != null) {
+            return user.getUserInfo().getFirstName() + " " + user.getUserInfo().getLastName();
+        }
+        return user.getEmail();
+    }
+}
@@ -1,5 +1,6 @@
 package com.app.merrbioapi.service;
 
+import com.app.merrbioapi.config.UserPrincipal;
 import com.app.merrbioapi.exception.AccessDeniedException;
 import com.app.merrbioapi.exception.EntityNotFoundException;
 import com.app.merrbioapi.model.dto.chat.ChatMessageDto;
@@ -9,14 +10,15 @@ import com.app.merrbioapi.model.entity.Conversation;
 import com.app.merrbioapi.model.entity.Message;
 import com.app.merrbioapi.model.entity.Product;
 import com.app.merrbioapi.model.entity.User;
-import com.app.merrbioapi.model.entity.UserInfo;
+import com.app.merrbioapi.model.event.ChatMessageEvent;
 import com.app.merrbioapi.repository.ConversationRepository;
 import com.app.merrbioapi.repository.MessageRepository;
 import com.app.merrbioapi.repository.ProductRepository;
 import com.app.merrbioapi.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +26,7 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -33,11 +36,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ChatService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 200;
+
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MessageArchiveService messageArchiveService;
+    private final UserService userService;
+    private final MessageSequenceBackfill sequenceBackfill;
 
     @Transactional
     public ConversationResponseDto startConversation(UUID currentUserId, ConversationRequestDto request) {
@@ -72,6 +80,7 @@ public class ChatService {
                     .relatedProduct(relatedProduct)
                     .title(generateConversationTitle(currentUser, recipient, relatedProduct))
                     .isActive(true)
+                    .lastSequence(0L)
                     .messages(new ArrayList<>())
                     .build();
 
@@ -80,71 +89,186 @@ public class ChatService {
 
         // Send initial message if provided
         if (request.getInitialMessage() != null && !request.getInitialMessage().trim().isEmpty()) {
-            Message initialMessage = Message.builder()
-                    .conversation(conversation)
-                    .sender(currentUser)
-                    .content(request.getInitialMessage())
-                    .isRead(false)
-                    .build();
-
-            messageRepository.save(initialMessage);
-
-            // Send real-time notification via WebSocket
-            notifyRecipient(initialMessage);
+            Conversation locked = conversationRepository.findByIdForUpdate(conversation.getId())
+                    .orElseThrow(() -> new EntityNotFoundException("Conversation not found"));
+            appendMessage(locked, currentUser, getSenderName(currentUser), request.getInitialMessage(), null);
         }
 
         return mapToConversationResponseDto(conversation);
     }
 
+    /**
+     * Stores a message and schedules its delivery to the other participant once the transaction commits.
+     * When the client supplies a {@code clientMessageId} that was already stored, the original message is
+     * returned instead of creating a duplicate, so clients can safely retry sends after a reconnect.
+     * The sender comes from the principal cached on the STOMP session, so no user row is read here.
+     */
     @Transactional
-    public ChatMessageDto sendMessage(UUID currentUserId, UUID conversationId, String content) {
-        User currentUser = userRepository.findById(currentUserId)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-
-        Conversation conversation = conversationRepository.findById(conversationId)
+    public ChatMessageDto sendMessage(UserPrincipal sender, UUID conversationId, String content, String clientMessageId) {
+        // Lock the conversation row so concurrent senders get consecutive sequence numbers
+        Conversation conversation = conversationRepository.findByIdForUpdate(conversationId)
                 .orElseThrow(() -> new EntityNotFoundException("Conversation not found"));
 
         // Check if current user is part of the conversation
-        if (!conversation.getInitiator().equals(currentUser) && !conversation.getRecipient().equals(currentUser)) {
+        if (!isParticipant(conversation, sender.getUserId())) {
             throw new AccessDeniedException("You don't have permission to send messages in this conversation");
         }
 
+        if (clientMessageId != null && !clientMessageId.isBlank()) {
+            Optional<Message> existing = messageRepository.findByConversationIdAndSenderIdAndClientMessageId(
+                    conversationId, sender.getUserId(), clientMessageId);
+            if (existing.isPresent()) {
+                log.debug("Duplicate send of client message {} in conversation {}", clientMessageId, conversationId);
+                return mapToChatMessageDto(existing.get(), sender.getDisplayName());
+            }
+        }
+
+        User senderReference = userRepository.getReferenceById(sender.getUserId());
+        return appendMessage(conversation, senderReference, sender.getDisplayName(), content, clientMessageId);
+    }
+
+    /**
+     * Appends a message to a conversation that the caller has already locked with
+     * {@link ConversationRepository#findByIdForUpdate(UUID)}.
+     */
+    private ChatMessageDto appendMessage(Conversation conversation, User sender, String senderName,
+                                         String content, String clientMessageId) {
+        if (conversation.getLastSequence() == null) {
+            // Conversation from before sequence numbers; number its history first so the new message comes last
+            sequenceBackfill.backfill(conversation);
+        }
+        long sequence = conversation.getLastSequence() + 1;
+        conversation.setLastSequence(sequence);
+
         Message message = Message.builder()
                 .conversation(conversation)
-                .sender(currentUser)
+                .sender(sender)
                 .content(content)
+                .sequence(sequence)
+                .clientMessageId(clientMessageId != null && !clientMessageId.isBlank() ? clientMessageId : null)
                 .isRead(false)
+                .searchIndexed(false)
                 .build();
 
         messageRepository.save(message);
 
-        // Send real-time notification via WebSocket
-        notifyRecipient(message);
+        ChatMessageDto chatMessageDto = mapToChatMessageDto(message, senderName);
+        eventPublisher.publishEvent(new ChatMessageEvent(getRecipientId(message), chatMessageDto));
+        return chatMessageDto;
+    }
 
-        return mapToChatMessageDto(message);
+    private UUID getRecipientId(Message message) {
+        Conversation conversation = message.getConversation();
+        return conversation.getInitiator().getId().equals(message.getSender().getId())
+                ? conversation.getRecipient().getId()
+                : conversation.getInitiator().getId();
     }
 
-    private void notifyRecipient(Message message) {
-        User recipient = message.getConversation().getInitiator().equals(message.getSender()) 
-                ? message.getConversation().getRecipient() 
-                : message.getConversation().getInitiator();
+    /**
+     * Returns one page of a conversation's history in ascending sequence order. With {@code beforeSequence}
+     * the page ends just before that message (scrolling back); otherwise it starts right after
+     * {@code afterSequence} (gap fill).
+     */
+    @Transactional(readOnly = true)
+    public List<ChatMessageDto> getMessages(UUID userId, UUID conversationId, Long afterSequence,
+                                            Long beforeSequence, int limit) {
+        Conversation conversation = conversationRepository.findById(conversationId)
+                .orElseThrow(() -> new EntityNotFoundException("Conversation not found"));
 
-        ChatMessageDto chatMessageDto = mapToChatMessageDto(message);
+        if (!isParticipant(conversation, userId)) {
+            throw new AccessDeniedException("You don't have permission to view this conversation");
+        }
 
-        // Send via WebSocket to the specific user
-        messagingTemplate.convertAndSendToUser(
-                recipient.getId().toString(),
-                "/queue/messages",
-                chatMessageDto
-        );
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+        if (beforeSequence != null) {
+            return readBefore(conversation, beforeSequence, pageSize);
+        }
+        return readAfter(conversation, afterSequence != null ? afterSequence : 0L, pageSize);
     }
 
-    private String getSenderName(User user) {
-        if (user.getUserInfo() != null) {
-            UserInfo userInfo = user.getUserInfo();
-            return userInfo.getFirstName() + " " + userInfo.getLastName();
+    /**
+     * Collects the messages a reconnecting client missed. Conversations the user does not take part in
+     * are skipped silently, and each conversation contributes at most {@code limitPerConversation} messages;
+     * clients page through anything larger with {@link #getMessages}.
+     */
+    @Transactional(readOnly = true)
+    public List<ChatMessageDto> getMissedMessages(UUID userId, Map<UUID, Long> lastSequences, int limitPerConversation) {
+        List<ChatMessageDto> missed = new ArrayList<>();
+
+        for (Map.Entry<UUID, Long> entry : lastSequences.entrySet()) {
+            Optional<Conversation> conversation = conversationRepository.findById(entry.getKey());
+            if (conversation.isEmpty() || !isParticipant(conversation.get(), userId)) {
+                continue;
+            }
+            Long lastKnown = conversation.get().getLastSequence();
+            if (lastKnown == null || lastKnown <= entry.getValue()) {
+                continue;
+            }
+            missed.addAll(readAfter(conversation.get(), entry.getValue(), limitPerConversation));
         }
-        return user.getEmail();
+        return missed;
+    }
+
+    /**
+     * Messages after the given sequence, oldest first, reading the archive first when the range starts in it
+     */
+    private List<ChatMessageDto> readAfter(Conversation conversation, long afterSequence, int limit) {
+        long archivedThrough = MessageArchiveService.archivedThrough(conversation);
+        List<ChatMessageDto> result = new ArrayList<>();
+        if (afterSequence < archivedThrough) {
+            result.addAll(withSenderNames(conversation,
+                    messageArchiveService.readAfter(conversation.getId(), afterSequence, archivedThrough, limit)));
+        }
+        if (result.size() < limit) {
+            messageRepository.findAfterSequence(conversation.getId(), Math.max(afterSequence, archivedThrough),
+                            PageRequest.of(0, limit - result.size())).stream()
+                    .map(this::mapToChatMessageDto)
+                    .forEach(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * The last messages before the given sequence, oldest first, topping up from the archive once the table runs out
+     */
+    private List<ChatMessageDto> readBefore(Conversation conversation, long beforeSequence, int limit) {
+        List<Message> live = messageRepository.findBeforeSequence(conversation.getId(), beforeSequence, PageRequest.of(0, limit));
+        long archivedThrough = MessageArchiveService.archivedThrough(conversation);
+
+        List<ChatMessageDto> result = new ArrayList<>(limit);
+        if (live.size() < limit && archivedThrough > 0) {
+            result.addAll(withSenderNames(conversation, messageArchiveService.readBefore(
+                    conversation.getId(), beforeSequence, archivedThrough, limit - live.size())));
+        }
+        for (int i = live.size() - 1; i >= 0; i--) {
+            result.add(mapToChatMessageDto(live.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Archived messages carry only the sender id; the sender is always one of the two participants
+     */
+    private List<ChatMessageDto> withSenderNames(Conversation conversation, List<ChatMessageDto> messages) {
+        if (messages.isEmpty()) {
+            return messages;
+        }
+        User initiator = conversation.getInitiator();
+        String initiatorName = getSenderName(initiator);
+        String recipientName = getSenderName(conversation.getRecipient());
+        messages.forEach(message -> message.setSenderName(
+                message.getSenderId().equals(initiator.getId()) ? initiatorName : recipientName));
+        return messages;
+    }
+
+    private boolean isParticipant(Conversation conversation, UUID userId) {
+        return conversation.getInitiator().getId().equals(userId) || conversation.getRecipient().getId().equals(userId);
+    }
+
+    private String getSenderName(User user) {
+        // From the cached profile, so the user's info row is not loaded on every chat open
+        String displayName = userService.getDisplayName(user.getId());
+        return displayName != null ? displayName : user.getEmail();
     }
 
     @Transactional(readOnly = true)
@@ -157,14 +281,11 @@ public class ChatService {
 
     @Transactional(readOnly = true)
     public ConversationResponseDto getConversation(UUID userId, UUID conversationId) {
-        User currentUser = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new EntityNotFoundException("Conversation not found"));
 
         // Check if user is part of the conversation
-        if (!conversation.getInitiator().equals(currentUser) && !conversation.getRecipient().equals(currentUser)) {
+        if (!isParticipant(conversation, userId)) {
             throw new AccessDeniedException("You don't have permission to view this conversation");
         }
 
@@ -173,14 +294,11 @@ public class ChatService {
 
     @Transactional
     public void markConversationAsRead(UUID userId, UUID conversationId) {
-        User currentUser = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new EntityNotFoundException("Conversation not found"));
 
         // Check if user is part of the conversation
-        if (!conversation.getInitiator().equals(currentUser) && !conversation.getRecipient().equals(currentUser)) {
+        if (!isParticipant(conversation, userId)) {
             throw new AccessDeniedException("You don't have permission to access this conversation");
         }
 
@@ -200,12 +318,18 @@ public class ChatService {
     }
 
     private ChatMessageDto mapToChatMessageDto(Message message) {
+        return mapToChatMessageDto(message, getSenderName(message.getSender()));
+    }
+
+    private ChatMessageDto mapToChatMessageDto(Message message, String senderName) {
         return ChatMessageDto.builder()
                 .id(message.getId())
                 .senderId(message.getSender().getId())
-                .senderName(getSenderName(message.getSender()))
+                .senderName(senderName)
                 .content(message.getContent())
                 .conversationId(message.getConversation().getId())
+                .sequence(message.getSequence())
+                .clientMessageId(message.getClientMessageId())
                 .timestamp(message.getCreatedAt())
                 .build();
     }
@@ -0,0 +1,241 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.config.BackplaneFrame;
+import com.app.merrbioapi.config.BrokerBackplane;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the in-process STOMP broker over several nodes through a {@link BrokerBackplane}.
+ * <p>
+ * Registered as an interceptor on the broker channel, it sees every message the application publishes before
+ * the local broker does. Topic and plain queue messages are forwarded to all other nodes. {@code /user/...}
+ * messages go only to the nodes where that user has a session, looked up in a cluster-wide user registry
+ * that nodes keep in sync with join/leave frames and periodic snapshots. Received messages are re-published
+ * on the local broker channel, where user destinations resolve against local sessions as usual.
+ */
+@Service
+@ConditionalOnProperty(name = "app.websocket.broker.mode", havingValue = "backplane")
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterMessagingService implements ChannelInterceptor {
+
+    private static final String ORIGIN_HEADER = "merrbioOriginNode";
+    private static final String USER_PREFIX = "/user/";
+
+    private final BrokerBackplane backplane;
+
+    // Lazy: the broker channel is built from the configurer this interceptor is registered on
+    @Autowired
+    @Lazy
+    @Qualifier("brokerChannel")
+    private MessageChannel brokerChannel;
+
+    // Lazy: the stream service looks this service up to publish its own notifications
+    @Autowired
+    @Lazy
+    private NotificationStreamService notificationStreamService;
+
+    @Value("${app.websocket.broker.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${app.websocket.broker.snapshot-ms:5000}")
+    private long snapshotMs;
+
+    private String nodeId;
+    private final Map<String, AtomicInteger> localSessions = new ConcurrentHashMap<>();
+    private final Map<String, RemoteNode> remoteNodes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        nodeId = configuredNodeId != null && !configuredNodeId.isBlank() ? configuredNodeId : UUID.randomUUID().toString();
+        backplane.join(nodeId, this::receive);
+        backplane.publish(frame(BackplaneFrame.Type.NODE_JOINED).build(), null);
+        log.info("Joined broker backplane as node {}", nodeId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        backplane.publish(frame(BackplaneFrame.Type.NODE_LEFT).build(), null);
+        backplane.leave(nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Whether the user has a session on this or any other node
+     */
+    public boolean isConnectedAnywhere(String userName) {
+        return localSessions.containsKey(userName) || !nodesHosting(userName).isEmpty();
+    }
+
+    /**
+     * Hands a notification to the event streams held by every other node; a null user name means all users
+     */
+    public void publishStreamEvent(String userName, byte[] payload) {
+        backplane.publish(frame(BackplaneFrame.Type.STREAM_EVENT).userName(userName).payload(payload).build(), null);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || headers.containsKey(ORIGIN_HEADER)
+                // Already resolved to local sessions, or addressed to one specific local session
+                || headers.containsKey(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION)
+                || SimpMessageHeaderAccessor.getSessionId(headers) != null
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null) {
+            return message;
+        }
+
+        List<String> targets = null;
+        if (destination.startsWith(USER_PREFIX)) {
+            int end = destination.indexOf('/', USER_PREFIX.length());
+            if (end < 0) {
+                return message;
+            }
+            targets = nodesHosting(destination.substring(USER_PREFIX.length(), end));
+            if (targets.isEmpty()) {
+                return message;
+            }
+        }
+
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        backplane.publish(frame(BackplaneFrame.Type.MESSAGE)
+                .destination(destination)
+                .contentType(contentType != null ? contentType.toString() : null)
+                .payload(payload)
+                .build(), targets);
+        return message;
+    }
+
+    @EventListener
+    public void handleSessionConnected(SessionConnectedEvent event) {
+        String userName = userNameOf(event);
+        if (userName != null && localSessions.computeIfAbsent(userName, key -> new AtomicInteger()).incrementAndGet() == 1) {
+            backplane.publish(frame(BackplaneFrame.Type.USER_JOINED).userName(userName).build(), null);
+        }
+    }
+
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        String userName = userNameOf(event);
+        if (userName == null) {
+            return;
+        }
+        boolean last = localSessions.computeIfPresent(userName,
+                (key, count) -> count.decrementAndGet() <= 0 ? null : count) == null;
+        if (last) {
+            backplane.publish(frame(BackplaneFrame.Type.USER_LEFT).userName(userName).build(), null);
+        }
+    }
+
+    /**
+     * Re-announces local users, which repairs any lost join/leave frame, and forgets nodes that went silent
+     */
+    @Scheduled(fixedDelayString = "${app.websocket.broker.snapshot-ms:5000}")
+    public void publishSnapshot() {
+        backplane.publish(snapshot(), null);
+        long staleBefore = System.currentTimeMillis() - snapshotMs * 3;
+        remoteNodes.entrySet().removeIf(entry -> entry.getValue().lastSeen < staleBefore);
+    }
+
+    private void receive(BackplaneFrame frame) {
+        switch (frame.getType()) {
+            case MESSAGE -> deliver(frame);
+            case STREAM_EVENT -> notificationStreamService.deliverFromCluster(frame.getUserName(), frame.getPayload());
+            case USER_JOINED -> remoteNode(frame).users.add(frame.getUserName());
+            case USER_LEFT -> remoteNode(frame).users.remove(frame.getUserName());
+            case SNAPSHOT -> {
+                RemoteNode node = remoteNode(frame);
+                node.users.retainAll(frame.getUserNames());
+                node.users.addAll(frame.getUserNames());
+            }
+            case NODE_JOINED -> {
+                remoteNode(frame);
+                backplane.publish(snapshot(), List.of(frame.getOriginNodeId()));
+            }
+            case NODE_LEFT -> remoteNodes.remove(frame.getOriginNodeId());
+        }
+    }
+
+    private void deliver(BackplaneFrame frame) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(frame.getDestination());
+        if (frame.getContentType() != null) {
+            accessor.setContentType(MimeType.valueOf(frame.getContentType()));
+        }
+        accessor.setHeader(ORIGIN_HEADER, frame.getOriginNodeId());
+        brokerChannel.send(MessageBuilder.createMessage(frame.getPayload(), accessor.getMessageHeaders()));
+    }
+
+    private RemoteNode remoteNode(BackplaneFrame frame) {
+        RemoteNode node = remoteNodes.computeIfAbsent(frame.getOriginNodeId(), key -> new RemoteNode());
+        node.lastSeen = System.currentTimeMillis();
+        return node;
+    }
+
+    private List<String> nodesHosting(String userName) {
+        List<String> nodes = new ArrayList<>(1);
+        remoteNodes.forEach((id, node) -> {
+            if (node.users.contains(userName)) {
+                nodes.add(id);
+            }
+        });
+        return nodes;
+    }
+
+    private BackplaneFrame snapshot() {
+        return frame(BackplaneFrame.Type.SNAPSHOT).userNames(Set.copyOf(localSessions.keySet())).build();
+    }
+
+    private BackplaneFrame.BackplaneFrameBuilder frame(BackplaneFrame.Type type) {
+        return BackplaneFrame.builder().type(type).originNodeId(nodeId);
+    }
+
+    private String userNameOf(AbstractSubProtocolEvent event) {
+        Principal user = event.getUser();
+        return user != null ? user.getName() : null;
+    }
+
+    private static class RemoteNode {
+        private final Set<String> users = ConcurrentHashMap.newKeySet();
+        private volatile long lastSeen = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,106 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.config.DependencyGuard;
+import com.app.merrbioapi.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Catches up on moderation that was deferred while Rekognition was unavailable.
+ * <p>
+ * Each tick takes a batch of products flagged as pending and checks their stored images. Products that pass
+ * are cleared and products that fail are deleted with their files. The batch runs on the moderation executor,
+ * so the scheduler thread never waits on Rekognition, and a tick is skipped while the previous batch is still
+ * running or the Rekognition circuit is open. A batch stops at the first product it still cannot check.
+ */
+@Component
+@Slf4j
+public class DeferredModerationJob {
+
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final ImageModerationService imageModerationService;
+    private final DependencyGuard rekognitionGuard;
+    private final Executor moderationExecutor;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.image-moderation.deferred.batch-size:20}")
+    private int batchSize;
+
+    private final Counter clearedProducts;
+    private final Counter removedProducts;
+
+    public DeferredModerationJob(ProductRepository productRepository,
+                                 ProductService productService,
+                                 ImageModerationService imageModerationService,
+                                 @Qualifier("rekognitionGuard") DependencyGuard rekognitionGuard,
+                                 @Qualifier("moderationExecutor") Executor moderationExecutor,
+                                 MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.imageModerationService = imageModerationService;
+        this.rekognitionGuard = rekognitionGuard;
+        this.moderationExecutor = moderationExecutor;
+        this.clearedProducts = Counter.builder("moderation.deferred.cleared")
+                .description("Products whose deferred image moderation passed")
+                .register(meterRegistry);
+        this.removedProducts = Counter.builder("moderation.deferred.removed")
+                .description("Products deleted because deferred image moderation found inappropriate content")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.image-moderation.deferred.retry-ms:60000}")
+    public void moderatePending() {
+        if (!rekognitionGuard.isAvailable() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            moderationExecutor.execute(() -> {
+                try {
+                    moderateBatch();
+                } catch (RuntimeException e) {
+                    log.error("Deferred moderation batch failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+
+    private void moderateBatch() {
+        List<UUID> pendingIds = productRepository.findModerationPendingIds(PageRequest.of(0, batchSize));
+        for (UUID productId : pendingIds) {
+            ImageModerationService.Verdict verdict =
+                    imageModerationService.moderateStored(productService.getStoredImageUrls(productId));
+            switch (verdict) {
+                case SAFE -> {
+                    productService.completeModeration(productId);
+                    clearedProducts.increment();
+                }
+                case UNSAFE -> {
+                    log.warn("Removing product {}: deferred moderation found inappropriate content", productId);
+                    productService.removeUnsafeProduct(productId);
+                    removedProducts.increment();
+                }
+                case DEFERRED -> {
+                    // Still unavailable; the rest of the batch would fare no better
+                    return;
+                }
+            }
+        }
+    }
+}
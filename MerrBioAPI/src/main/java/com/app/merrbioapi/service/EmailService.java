@@ -1,56 +1,166 @@
 package com.app.merrbioapi.service;
 
+import com.app.merrbioapi.config.DependencyGuard;
+import com.app.merrbioapi.model.dto.chat.UnreadConversationDigest;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
 
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Sends emails on the mail server's own bounded pool.
+ * <p>
+ * Mails go through the {@link DependencyGuard} of the mail server, so a slow SMTP server only ties up mail
+ * threads. Mails that cannot be handed over because the circuit is open or the queue is full, or that fail to
+ * send, wait in a bounded backlog that is retried once the circuit lets calls through again. Callers that track
+ * delivery pass callbacks that run once the mail is sent or once it is given up on.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class EmailService {
 
     private final JavaMailSender mailSender;
+    private final DependencyGuard mailGuard;
 
     @Value("${spring.mail.username:noreply@merrbio.com}")
     private String fromEmail;
 
-    @Async
-    public void sendChatNotification(String toEmail, String senderName, String messagePreview, String conversationTitle) {
+    @Value("${app.mail.max-attempts:5}")
+    private int maxAttempts;
+
+    private final BlockingQueue<OutgoingEmail> backlog;
+
+    public EmailService(JavaMailSender mailSender,
+                        @Qualifier("mailGuard") DependencyGuard mailGuard,
+                        @Value("${app.mail.backlog-capacity:1000}") int backlogCapacity) {
+        this.mailSender = mailSender;
+        this.mailGuard = mailGuard;
+        this.backlog = new ArrayBlockingQueue<>(backlogCapacity);
+    }
+
+    /**
+     * Queues a digest of the recipient's unread conversations. Exactly one of {@code onSent} and
+     * {@code onDropped} runs, on a mail thread, once the mail has been handed to the server or abandoned.
+     */
+    public void sendUnreadDigest(String toEmail, List<UnreadConversationDigest> conversations,
+                                 Runnable onSent, Runnable onDropped) {
+        long totalUnread = conversations.stream().mapToLong(UnreadConversationDigest::getUnreadCount).sum();
+        String subject = "You have " + totalUnread + " unread message" + (totalUnread == 1 ? "" : "s") + " on MerrBio";
+
+        StringBuilder rows = new StringBuilder();
+        for (UnreadConversationDigest conversation : conversations) {
+            rows.append("<li style='margin: 8px 0;'><em>")
+                    .append(HtmlUtils.htmlEscape(conversation.getConversationTitle()))
+                    .append("</em>: <strong>")
+                    .append(conversation.getUnreadCount())
+                    .append("</strong> unread</li>");
+        }
+
+        String htmlContent =
+                "<div style='font-family: Arial, sans-serif; padding: 20px; max-width: 600px;'>" +
+                "<h2 style='color: #3a873a;'>You have unread messages on MerrBio</h2>" +
+                "<p>These conversations have messages you haven't read yet:</p>" +
+                "<ul style='background-color: #f5f5f5; padding: 15px 30px; border-radius: 5px; margin: 20px 0; color: #555;'>" +
+                rows +
+                "</ul>" +
+                "<p>Login to MerrBio to continue the conversation.</p>" +
+                "<a href='https://merrbio.com/messages' style='display: inline-block; " +
+                "background-color: #3a873a; color: white; padding: 10px 20px; " +
+                "text-decoration: none; border-radius: 5px; margin-top: 15px;'>" +
+                "View Messages</a>" +
+                "<p style='margin-top: 30px; font-size: 12px; color: #888;'>This is an automated message, please do not reply directly to this email.</p>" +
+                "</div>";
+
+        deliver(new OutgoingEmail(toEmail, subject, htmlContent, 0, onSent, onDropped));
+    }
+
+    /**
+     * Hands backlogged mails to the mail pool again while the circuit lets them through
+     */
+    @Scheduled(fixedDelayString = "${app.mail.retry-ms:30000}")
+    public void retryBacklog() {
+        int pending = backlog.size();
+        for (int i = 0; i < pending && mailGuard.isAvailable(); i++) {
+            OutgoingEmail email = backlog.poll();
+            if (email == null) {
+                return;
+            }
+            if (!submit(email)) {
+                keep(email);
+                return;
+            }
+        }
+    }
+
+    private void deliver(OutgoingEmail email) {
+        if (!submit(email)) {
+            keep(email);
+        }
+    }
+
+    private boolean submit(OutgoingEmail email) {
+        return mailGuard.submit(() -> send(email),
+                () -> runCallback(email.onSent(), email),
+                error -> {
+                    // Timed out, rejected by the server or failed before reaching it; a timed out mail may still
+                    // arrive, so a retry can deliver it twice
+                    log.error("Failed to send email to {}: {}", email.to(), error.getMessage());
+                    keep(email.retried());
+                });
+    }
+
+    private Void send(OutgoingEmail email) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
             helper.setFrom(fromEmail);
-            helper.setTo(toEmail);
-            helper.setSubject("Unread message from " + senderName + " on MerrBio");
-            
-            String htmlContent = 
-                    "<div style='font-family: Arial, sans-serif; padding: 20px; max-width: 600px;'>" +
-                    "<h2 style='color: #3a873a;'>You have an unread message on MerrBio</h2>" +
-                    "<p><strong>" + senderName + "</strong> has sent you a message in <em>" + conversationTitle + "</em> that you haven't read yet:</p>" +
-                    "<div style='background-color: #f5f5f5; padding: 15px; border-radius: 5px; margin: 20px 0;'>" +
-                    "<p style='margin: 0; color: #555;'><em>\"" + messagePreview + "\"</em></p>" +
-                    "</div>" +
-                    "<p>Login to MerrBio to continue the conversation.</p>" +
-                    "<a href='https://merrbio.com/messages' style='display: inline-block; " +
-                    "background-color: #3a873a; color: white; padding: 10px 20px; " +
-                    "text-decoration: none; border-radius: 5px; margin-top: 15px;'>" +
-                    "View Message</a>" +
-                    "<p style='margin-top: 30px; font-size: 12px; color: #888;'>This is an automated message, please do not reply directly to this email.</p>" +
-                    "</div>";
-            
-            helper.setText(htmlContent, true);
-            
+            helper.setTo(email.to());
+            helper.setSubject(email.subject());
+            helper.setText(email.html(), true);
+
             mailSender.send(message);
-            log.info("Chat notification email sent successfully to: {}", toEmail);
+            log.info("Email sent successfully to: {}", email.to());
+            return null;
         } catch (MessagingException e) {
-            log.error("Failed to send chat notification email to {}: {}", toEmail, e.getMessage());
+            throw new MailPreparationException(e);
+        }
+    }
+
+    private void keep(OutgoingEmail email) {
+        if (email.attempts() >= maxAttempts) {
+            log.error("Giving up on email to {} after {} attempts", email.to(), email.attempts());
+            runCallback(email.onDropped(), email);
+        } else if (!backlog.offer(email)) {
+            log.error("Email backlog is full, dropping email to {}", email.to());
+            runCallback(email.onDropped(), email);
+        }
+    }
+
+    private void runCallback(Runnable callback, OutgoingEmail email) {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            // The mail's own outcome stands; a failing callback must not resend or drop it
+            log.error("Delivery callback for email to {} failed: {}", email.to(), e.getMessage());
+        }
+    }
+
+    private record OutgoingEmail(String to, String subject, String html, int attempts,
+                                 Runnable onSent, Runnable onDropped) {
+
+        OutgoingEmail retried() {
+            return new OutgoingEmail(to, subject, html, attempts + 1, onSent, onDropped);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.config.CurrentUser;
+import com.app.merrbioapi.model.dto.response.FarmerOrderBoardDelta;
+import com.app.merrbioapi.model.dto.response.FarmerOrderBoardSnapshot;
+import com.app.merrbioapi.model.dto.response.OrderResponse;
+import com.app.merrbioapi.model.event.OrderEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live order board for farmers: one snapshot over REST, then every new or changed order pushed to
+ * {@code /user/queue/farmer-orders} as a delta.
+ * <p>
+ * Each farmer has a sequence number that grows with every delta. A snapshot carries the sequence it was taken
+ * at, so the client applies only deltas with a higher one (upserting by order id). A gap in the sequence, or a
+ * different epoch after this node restarted or the client reconnected to another node, means deltas were missed
+ * and the client takes a new snapshot.
+ * <p>
+ * A delta takes its sequence number and is published under the farmer's board lock, so deltas reach the broker
+ * in sequence order even though order events are handled on several threads. Boards of farmers without activity
+ * are dropped after a while; the next one starts a new epoch, so clients holding the old one resnapshot.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FarmerOrderBoardService {
+
+    public static final String BOARD_DESTINATION = "/queue/farmer-orders";
+
+    private final OrderService orderService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${app.orders.board.idle-ms:3600000}")
+    private long idleMs;
+
+    private final Map<UUID, Board> boards = new ConcurrentHashMap<>();
+
+    public FarmerOrderBoardSnapshot getSnapshot(int size) {
+        Board board = boardOf(CurrentUser.id());
+        String epoch;
+        long sequence;
+        // Read before the query: deltas racing with it carry a higher sequence and are re-applied by the client
+        synchronized (board) {
+            epoch = board.epoch;
+            sequence = board.sequence;
+        }
+        return FarmerOrderBoardSnapshot.builder()
+                .epoch(epoch)
+                .sequence(sequence)
+                .orders(orderService.getFarmerOrders(0, size))
+                .build();
+    }
+
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void handleOrderEvent(OrderEvent event) {
+        Map<UUID, OrderResponse> byFarmerUser = orderService.getOrderForFarmerUsers(event.getOrderId());
+        byFarmerUser.forEach((farmerUserId, order) -> {
+            Board board = boardOf(farmerUserId);
+            synchronized (board) {
+                FarmerOrderBoardDelta delta = FarmerOrderBoardDelta.builder()
+                        .epoch(board.epoch)
+                        .sequence(++board.sequence)
+                        .order(order)
+                        .build();
+                try {
+                    messagingTemplate.convertAndSendToUser(farmerUserId.toString(), BOARD_DESTINATION, delta);
+                } catch (Exception e) {
+                    // The gap in the sequence makes the client resnapshot
+                    log.warn("Failed to push order {} to farmer {}: {}", event.getOrderId(), farmerUserId, e.getMessage());
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.orders.board.idle-ms:3600000}")
+    public void evictIdleBoards() {
+        long idleBefore = System.currentTimeMillis() - idleMs;
+        // Per key compute, so a board touched since the scan is kept
+        boards.keySet().forEach(farmerUserId -> boards.computeIfPresent(farmerUserId,
+                (key, board) -> board.lastUsed < idleBefore ? null : board));
+    }
+
+    private Board boardOf(UUID farmerUserId) {
+        long now = System.currentTimeMillis();
+        return boards.compute(farmerUserId, (key, board) -> {
+            Board current = board != null ? board : new Board();
+            current.lastUsed = now;
+            return current;
+        });
+    }
+
+    private static class Board {
+        private final String epoch = UUID.randomUUID().toString();
+        private long sequence;
+        private volatile long lastUsed;
+    }
+}
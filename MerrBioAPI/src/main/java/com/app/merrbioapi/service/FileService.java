@@ -76,6 +76,27 @@ public class FileService {
     }
 
 
+    /**
+     * Reads a stored file back by its URL, or returns null if it no longer exists
+     */
+    public byte[] readFile(String filePath) {
+        if (filePath == null || filePath.isEmpty()) {
+            return null;
+        }
+
+        String filename = filePath.substring(filePath.lastIndexOf('/') + 1);
+        Path file = Paths.get(uploadDir).resolve(filename);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to read file " + filename, e);
+        }
+    }
+
+
     private String generateUniqueFilename(String extension) {
         return UUID.randomUUID().toString() + extension;
     }
@@ -1,10 +1,13 @@
 package com.app.merrbioapi.service;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.rekognition.AmazonRekognition;
 import com.amazonaws.services.rekognition.model.*;
+import com.app.merrbioapi.config.DependencyGuard;
+import com.app.merrbioapi.exception.DependencyUnavailableException;
 import com.app.merrbioapi.exception.ImageModerationException;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -14,14 +17,32 @@ import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
- * Service for checking images for inappropriate content using AWS Rekognition
+ * Service for checking images for inappropriate content using AWS Rekognition.
+ * <p>
+ * Rekognition is called through its {@link DependencyGuard}, so a slow or failing Rekognition costs at most the
+ * call timeout and, once the circuit opens, nothing at all. What happens to an image that could not be checked
+ * depends on the fallback: {@code defer} accepts it and leaves it for the {@link DeferredModerationJob},
+ * {@code reject} refuses the upload.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ImageModerationService {
 
+    public enum Verdict {
+        SAFE,
+        UNSAFE,
+        // Not checked because Rekognition was unavailable; to be checked later
+        DEFERRED
+    }
+
+    public enum Fallback {
+        DEFER,
+        REJECT
+    }
+
     private final AmazonRekognition rekognitionClient;
+    private final DependencyGuard rekognitionGuard;
+    private final FileService fileService;
 
     @Value("${app.image-moderation.enabled:true}")
     private boolean moderationEnabled;
@@ -29,54 +50,101 @@ public class ImageModerationService {
     @Value("${app.image-moderation.nudity-threshold:0.6}")
     private double nudityThreshold;
 
+    @Value("${app.image-moderation.fallback:DEFER}")
+    private Fallback fallback;
+
+    public ImageModerationService(AmazonRekognition rekognitionClient,
+                                  @Qualifier("rekognitionGuard") DependencyGuard rekognitionGuard,
+                                  FileService fileService) {
+        this.rekognitionClient = rekognitionClient;
+        this.rekognitionGuard = rekognitionGuard;
+        this.fileService = fileService;
+    }
+
     /**
      * Checks if an image contains inappropriate content
      * @param file The image file to check
-     * @return true if the image is safe, false if it contains inappropriate content
-     * @throws ImageModerationException if the moderation check fails
+     * @return whether the image is safe, unsafe, or deferred because Rekognition is unavailable
+     * @throws ImageModerationException if the image cannot be read, or Rekognition is unavailable and the
+     *                                  fallback is to reject
      */
-    public boolean isSafeImage(MultipartFile file) throws ImageModerationException {
+    public Verdict moderate(MultipartFile file) throws ImageModerationException {
         if (!moderationEnabled) {
             log.info("Image moderation is disabled. Skipping check.");
-            return true;
+            return Verdict.SAFE;
         }
 
         if (file == null || file.isEmpty()) {
-            return true;
+            return Verdict.SAFE;
         }
 
+        byte[] bytes;
         try {
-            byte[] bytes = file.getBytes();
-            ByteBuffer imageBytes = ByteBuffer.wrap(bytes);
+            bytes = file.getBytes();
+        } catch (IOException e) {
+            log.error("Error reading image file", e);
+            throw new ImageModerationException("Failed to read image file: " + e.getMessage());
+        }
+
+        try {
+            return detect(bytes);
+        } catch (DependencyUnavailableException | AmazonClientException e) {
+            if (fallback == Fallback.REJECT) {
+                throw new ImageModerationException("Failed to moderate image: " + e.getMessage());
+            }
+            log.warn("Deferring image moderation: {}", e.getMessage());
+            return Verdict.DEFERRED;
+        }
+    }
 
-            // Create Rekognition detect moderation labels request
-            DetectModerationLabelsRequest request = new DetectModerationLabelsRequest()
-                    .withImage(new Image().withBytes(imageBytes))
-                    .withMinConfidence(20F); // Set minimum confidence threshold
+    /**
+     * Checks images that were stored without moderation. Unsafe if any image is, deferred if any could not be
+     * checked yet.
+     */
+    public Verdict moderateStored(List<String> imageUrls) {
+        if (!moderationEnabled) {
+            return Verdict.SAFE;
+        }
+        Verdict verdict = Verdict.SAFE;
+        for (String imageUrl : imageUrls) {
+            byte[] bytes = fileService.readFile(imageUrl);
+            if (bytes == null) {
+                continue;
+            }
+            try {
+                if (detect(bytes) == Verdict.UNSAFE) {
+                    return Verdict.UNSAFE;
+                }
+            } catch (DependencyUnavailableException | AmazonClientException e) {
+                verdict = Verdict.DEFERRED;
+            }
+        }
+        return verdict;
+    }
 
-            // Call the API
-            DetectModerationLabelsResult result = rekognitionClient.detectModerationLabels(request);
-            List<ModerationLabel> labels = result.getModerationLabels();
+    private Verdict detect(byte[] bytes) {
+        ByteBuffer imageBytes = ByteBuffer.wrap(bytes);
 
-            log.info("Moderation labels detected: {}", labels.size());
+        // Create Rekognition detect moderation labels request
+        DetectModerationLabelsRequest request = new DetectModerationLabelsRequest()
+                .withImage(new Image().withBytes(imageBytes))
+                .withMinConfidence(20F); // Set minimum confidence threshold
 
-            // Check for explicit content
-            boolean containsExplicitContent = checkForExplicitContent(labels);
-            double maxNudityScore = getMaxNudityScore(labels);
+        // Call the API on Rekognition's own pool
+        DetectModerationLabelsResult result = rekognitionGuard.call(() -> rekognitionClient.detectModerationLabels(request));
+        List<ModerationLabel> labels = result.getModerationLabels();
 
-            log.info("Image moderation result - maxNudityScore: {}, containsExplicitContent: {}",
-                    maxNudityScore, containsExplicitContent);
+        log.info("Moderation labels detected: {}", labels.size());
 
-            // Determine if the image is safe based on threshold
-            return maxNudityScore < nudityThreshold && !containsExplicitContent;
+        // Check for explicit content
+        boolean containsExplicitContent = checkForExplicitContent(labels);
+        double maxNudityScore = getMaxNudityScore(labels);
 
-        } catch (AmazonRekognitionException e) {
-            log.error("Error from Rekognition service", e);
-            throw new ImageModerationException("Failed to moderate image: " + e.getMessage());
-        } catch (IOException e) {
-            log.error("Error reading image file", e);
-            throw new ImageModerationException("Failed to read image file: " + e.getMessage());
-        }
+        log.info("Image moderation result - maxNudityScore: {}, containsExplicitContent: {}",
+                maxNudityScore, containsExplicitContent);
+
+        // Determine if the image is safe based on threshold
+        return maxNudityScore < nudityThreshold && !containsExplicitContent ? Verdict.SAFE : Verdict.UNSAFE;
     }
 
     /**
@@ -0,0 +1,143 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.exception.TooManyAttemptsException;
+import com.app.merrbioapi.util.SlidingWindowCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sliding-window throttling in front of password hashing.
+ * <p>
+ * Every login and registration attempt counts against the client address, and every login attempt against the
+ * account as tried from that address, until a successful login clears it. Keying accounts per address means
+ * nobody can lock a user out by failing logins for their email from elsewhere; guessing at one account from many
+ * hosts is still bounded by each host's address window. Checking and counting is one atomic step per counter, so
+ * parallel attempts cannot slip past a limit before any of them is counted, and rejections happen before any hash
+ * is computed. Both maps are bounded; idle counters are swept periodically, and a new key that finds its map full
+ * evicts idle counters from a small sample instead of scanning the map. If none of them is idle, a new address is
+ * refused, while a new account falls back to the limit of the address it is tried from.
+ */
+@Service
+@Slf4j
+public class LoginThrottle {
+
+    private static final int EVICTION_SAMPLE = 8;
+
+    @Value("${app.security.login-throttle.window-ms:300000}")
+    private long windowMs;
+
+    @Value("${app.security.login-throttle.max-per-ip:50}")
+    private int maxPerIp;
+
+    @Value("${app.security.login-throttle.max-per-account:10}")
+    private int maxPerAccount;
+
+    @Value("${app.security.login-throttle.max-keys:100000}")
+    private int maxKeys;
+
+    private final Map<String, SlidingWindowCounter> attemptsByAddress = new ConcurrentHashMap<>();
+    private final Map<String, SlidingWindowCounter> attemptsByAccount = new ConcurrentHashMap<>();
+
+    private final Counter throttledAttempts;
+
+    public LoginThrottle(MeterRegistry meterRegistry) {
+        this.throttledAttempts = Counter.builder("security.login.throttled")
+                .description("Login or registration attempts refused by the per-address or per-account window")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts an attempt against the client address and, for logins, against the account from that address.
+     * Rejects it if either is at its limit.
+     */
+    public void acquire(String email, String clientAddress) {
+        long now = System.currentTimeMillis();
+        if (clientAddress != null) {
+            SlidingWindowCounter counter = counterFor(attemptsByAddress, clientAddress, now);
+            if (counter == null) {
+                // An address that is not counted could try without limit
+                refuse(windowMs);
+            }
+            take(counter, maxPerIp, now);
+        }
+        if (email != null) {
+            SlidingWindowCounter counter = counterFor(attemptsByAccount, accountKey(email, clientAddress), now);
+            if (counter != null) {
+                take(counter, maxPerAccount, now);
+            } else if (clientAddress == null) {
+                refuse(windowMs);
+            }
+            // Otherwise the address window still bounds the attempt
+        }
+    }
+
+    /**
+     * Clears the account's attempts from this address once the password was right
+     */
+    public void recordSuccess(String email, String clientAddress) {
+        attemptsByAccount.remove(accountKey(email, clientAddress));
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.login-throttle.sweep-ms:60000}")
+    public void sweepIdle() {
+        long now = System.currentTimeMillis();
+        attemptsByAddress.values().removeIf(counter -> counter.isIdle(now));
+        attemptsByAccount.values().removeIf(counter -> counter.isIdle(now));
+    }
+
+    private void take(SlidingWindowCounter counter, int limit, long now) {
+        if (!counter.tryIncrement(now, limit)) {
+            refuse(counter.millisUntilRoll(now));
+        }
+    }
+
+    private void refuse(long retryAfterMs) {
+        throttledAttempts.increment();
+        throw new TooManyAttemptsException(Math.max(1, (retryAfterMs + 999) / 1000));
+    }
+
+    /**
+     * Returns the key's counter, creating it if there is room, or null if the map is full of active counters
+     */
+    private SlidingWindowCounter counterFor(Map<String, SlidingWindowCounter> counters, String key, long now) {
+        SlidingWindowCounter counter = counters.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        if (counters.size() >= maxKeys && !evictIdle(counters, now)) {
+            log.debug("Login throttle is full, not tracking {}", key);
+            return null;
+        }
+        return counters.computeIfAbsent(key, k -> new SlidingWindowCounter(windowMs, now));
+    }
+
+    /**
+     * Drops the idle counters among a small sample of the map and returns whether there were any
+     */
+    private static boolean evictIdle(Map<String, SlidingWindowCounter> counters, long now) {
+        // Hash order is effectively random, so the first few entries are a fair sample
+        boolean evicted = false;
+        Iterator<SlidingWindowCounter> sample = counters.values().iterator();
+        for (int i = 0; i < EVICTION_SAMPLE && sample.hasNext(); i++) {
+            if (sample.next().isIdle(now)) {
+                sample.remove();
+                evicted = true;
+            }
+        }
+        return evicted;
+    }
+
+    private static String accountKey(String email, String clientAddress) {
+        String account = email.trim().toLowerCase(Locale.ROOT);
+        return clientAddress != null ? account + '|' + clientAddress : account;
+    }
+}
@@ -0,0 +1,83 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.repository.MessageRepository;
+import com.app.merrbioapi.repository.MessageSearchPostingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Nightly job that moves cold chat history to the archive and purges old soft-deleted messages.
+ * Each conversation is archived in its own transaction through {@link MessageArchiveService}; purged messages
+ * lose their search postings in the same transaction as their rows.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MessageArchiveJob {
+
+    private static final int CONVERSATION_PAGE_SIZE = 100;
+
+    private final MessageArchiveService messageArchiveService;
+    private final MessageRepository messageRepository;
+    private final MessageSearchPostingRepository postingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.chat.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.chat.archive.age-days:180}")
+    private long ageDays;
+
+    @Value("${app.chat.archive.batch-size:5000}")
+    private int batchSize;
+
+    @Scheduled(cron = "${app.chat.archive.cron:0 30 3 * * ?}")
+    public void archiveColdMessages() {
+        if (!enabled) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(Duration.ofDays(ageDays));
+
+        int archived = 0;
+        List<UUID> conversationIds;
+        do {
+            conversationIds = messageRepository.findArchivableConversationIds(
+                    cutoff, PageRequest.of(0, CONVERSATION_PAGE_SIZE));
+            int archivedInPage = 0;
+            for (UUID conversationId : conversationIds) {
+                try {
+                    archivedInPage += messageArchiveService.archiveConversation(conversationId, cutoff);
+                } catch (Exception e) {
+                    log.error("Failed to archive conversation {}: {}", conversationId, e.getMessage());
+                }
+            }
+            archived += archivedInPage;
+            // Stop when a page made no progress, so persistent failures cannot loop forever
+            if (archivedInPage == 0) {
+                break;
+            }
+        } while (!conversationIds.isEmpty());
+
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> {
+                postingRepository.deleteOfPurgeable(cutoff, batchSize);
+                return messageRepository.purgeSoftDeleted(cutoff, batchSize);
+            });
+            purged += deleted;
+        } while (deleted == batchSize);
+
+        log.info("Archived {} messages and purged {} soft-deleted messages older than {}", archived, purged, cutoff);
+    }
+}
@@ -0,0 +1,271 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.exception.FileStorageException;
+import com.app.merrbioapi.model.dto.chat.ChatMessageDto;
+import com.app.merrbioapi.model.entity.Conversation;
+import com.app.merrbioapi.model.entity.Message;
+import com.app.merrbioapi.repository.ConversationRepository;
+import com.app.merrbioapi.repository.MessageRepository;
+import com.app.merrbioapi.repository.MessageSearchPostingRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier for chat history.
+ * <p>
+ * Old messages are moved out of the {@code message} table into append-only segment files, one directory per
+ * conversation, named {@code <firstSequence>-<lastSequence>.seg}. {@link Conversation#getArchivedThroughSequence()}
+ * marks the boundary: everything at or below it lives on disk, everything above it in the database.
+ * <p>
+ * A segment is written before the transaction that moves the boundary commits, so a segment can briefly hold
+ * messages that are still live, or outlive a rollback until the next run removes it. Reads therefore take the
+ * committed boundary and never return anything above it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageArchiveService {
+
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final MessageSearchPostingRepository postingRepository;
+
+    @Value("${app.chat.archive.dir:${user.dir}/data/chat-archive}")
+    private String archiveDir;
+
+    @Value("${app.chat.archive.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${app.chat.archive.open-segments:256}")
+    private int openSegments;
+
+    // Segments are immutable, so a mapped segment can be shared until it is evicted
+    private Map<Path, MessageSegment> segmentCache;
+
+    @PostConstruct
+    void init() {
+        segmentCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, MessageSegment> eldest) {
+                return size() > openSegments;
+            }
+        });
+    }
+
+    /**
+     * Moves up to one batch of the conversation's messages created before the cutoff into a new segment,
+     * then deletes them from the database. Soft-deleted rows in the archived range are dropped, not archived,
+     * together with their search postings; postings of archived messages stay and resolve against the segment.
+     *
+     * @return number of messages archived
+     */
+    @Transactional
+    public int archiveConversation(UUID conversationId, Instant cutoff) {
+        // The row lock keeps two nodes from archiving the same range
+        Conversation conversation = conversationRepository.findByIdForUpdate(conversationId).orElse(null);
+        if (conversation == null) {
+            return 0;
+        }
+
+        long archivedThrough = archivedThrough(conversation);
+        List<Message> messages = messageRepository.findArchivable(
+                conversationId, archivedThrough, cutoff, PageRequest.of(0, batchSize));
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        long first = messages.get(0).getSequence();
+        long last = messages.get(messages.size() - 1).getSequence();
+        Path directory = conversationDirectory(conversationId);
+        try {
+            Files.createDirectories(directory);
+            removeUncommittedSegments(directory, archivedThrough);
+            MessageSegment.write(directory.resolve(segmentName(first, last)),
+                    messages.stream().map(this::toRecord).toList());
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to archive messages of conversation " + conversationId, e);
+        }
+
+        conversation.setArchivedThroughSequence(last);
+        postingRepository.deleteOfDeletedThroughSequence(conversationId, last);
+        messageRepository.deleteThroughSequence(conversationId, last);
+        log.debug("Archived {} messages of conversation {} ({}-{})", messages.size(), conversationId, first, last);
+        return messages.size();
+    }
+
+    /**
+     * Up to {@code limit} archived messages with a sequence greater than {@code afterSequence} and at most
+     * {@code archivedThrough}, the conversation's committed boundary, oldest first.
+     * Sender names are left for the caller to fill in.
+     */
+    public List<ChatMessageDto> readAfter(UUID conversationId, long afterSequence, long archivedThrough, int limit) {
+        List<ChatMessageDto> result = new ArrayList<>();
+        for (SegmentFile file : listSegments(conversationId)) {
+            if (file.last() <= afterSequence) {
+                continue;
+            }
+            if (file.first() > archivedThrough) {
+                break;
+            }
+            try {
+                for (MessageSegment.Record record : segment(file.path()).readAfter(afterSequence, limit - result.size())) {
+                    if (record.sequence() > archivedThrough) {
+                        return result;
+                    }
+                    result.add(toDto(conversationId, record));
+                }
+            } catch (IOException e) {
+                throw new FileStorageException("Failed to read archived messages of conversation " + conversationId, e);
+            }
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The last {@code limit} archived messages with a sequence lower than {@code beforeSequence} and at most
+     * {@code archivedThrough}, the conversation's committed boundary, oldest first.
+     * Sender names are left for the caller to fill in.
+     */
+    public List<ChatMessageDto> readBefore(UUID conversationId, long beforeSequence, long archivedThrough, int limit) {
+        long committedBefore = Math.min(beforeSequence, archivedThrough + 1);
+        List<SegmentFile> files = listSegments(conversationId);
+        List<List<MessageSegment.Record>> chunks = new ArrayList<>();
+        int collected = 0;
+        for (int i = files.size() - 1; i >= 0 && collected < limit; i--) {
+            SegmentFile file = files.get(i);
+            if (file.first() >= committedBefore) {
+                continue;
+            }
+            try {
+                List<MessageSegment.Record> chunk = segment(file.path()).readBefore(committedBefore, limit - collected);
+                chunks.add(chunk);
+                collected += chunk.size();
+            } catch (IOException e) {
+                throw new FileStorageException("Failed to read archived messages of conversation " + conversationId, e);
+            }
+        }
+
+        List<ChatMessageDto> result = new ArrayList<>(collected);
+        for (int i = chunks.size() - 1; i >= 0; i--) {
+            chunks.get(i).forEach(record -> result.add(toDto(conversationId, record)));
+        }
+        return result;
+    }
+
+    public static long archivedThrough(Conversation conversation) {
+        return conversation.getArchivedThroughSequence() != null ? conversation.getArchivedThroughSequence() : 0L;
+    }
+
+    private MessageSegment segment(Path path) throws IOException {
+        MessageSegment segment = segmentCache.get(path);
+        if (segment == null) {
+            segment = MessageSegment.open(path);
+            segmentCache.put(path, segment);
+        }
+        return segment;
+    }
+
+    private List<SegmentFile> listSegments(UUID conversationId) {
+        Path directory = conversationDirectory(conversationId);
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.map(SegmentFile::parse)
+                    .filter(file -> file != null)
+                    .sorted(Comparator.comparingLong(SegmentFile::first))
+                    .toList();
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to list archive of conversation " + conversationId, e);
+        }
+    }
+
+    /**
+     * Deletes segments left by a run whose transaction rolled back after the file was written
+     */
+    private void removeUncommittedSegments(Path directory, long archivedThrough) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                SegmentFile file = SegmentFile.parse(path);
+                if (file != null && file.last() > archivedThrough) {
+                    segmentCache.remove(path);
+                    Files.deleteIfExists(path);
+                } else if (path.getFileName().toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private Path conversationDirectory(UUID conversationId) {
+        return Paths.get(archiveDir).resolve(conversationId.toString());
+    }
+
+    private static String segmentName(long first, long last) {
+        // Zero padded so a directory listing sorts in sequence order
+        return String.format("%020d-%020d%s", first, last, MessageSegment.SUFFIX);
+    }
+
+    private MessageSegment.Record toRecord(Message message) {
+        return new MessageSegment.Record(
+                message.getSequence(),
+                message.getId(),
+                message.getSender().getId(),
+                message.getCreatedAt(),
+                message.getClientMessageId(),
+                message.getContent());
+    }
+
+    private ChatMessageDto toDto(UUID conversationId, MessageSegment.Record record) {
+        return ChatMessageDto.builder()
+                .id(record.id())
+                .senderId(record.senderId())
+                .content(record.content())
+                .conversationId(conversationId)
+                .sequence(record.sequence())
+                .clientMessageId(record.clientMessageId())
+                .timestamp(record.createdAt())
+                .build();
+    }
+
+    private record SegmentFile(Path path, long first, long last) {
+
+        static SegmentFile parse(Path path) {
+            String name = path.getFileName().toString();
+            if (!name.endsWith(MessageSegment.SUFFIX)) {
+                return null;
+            }
+            String[] bounds = name.substring(0, name.length() - MessageSegment.SUFFIX.length()).split("-");
+            if (bounds.length != 2) {
+                return null;
+            }
+            try {
+                return new SegmentFile(path, Long.parseLong(bounds[0]), Long.parseLong(bounds[1]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
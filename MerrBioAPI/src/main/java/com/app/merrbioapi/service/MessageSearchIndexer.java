@@ -0,0 +1,119 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.model.dto.chat.ChatMessageDto;
+import com.app.merrbioapi.model.entity.Conversation;
+import com.app.merrbioapi.model.entity.Message;
+import com.app.merrbioapi.model.entity.MessageSearchPosting;
+import com.app.merrbioapi.model.entity.MessageSearchPostingId;
+import com.app.merrbioapi.model.event.ChatMessageEvent;
+import com.app.merrbioapi.repository.MessageRepository;
+import com.app.merrbioapi.repository.MessageSearchPostingRepository;
+import com.app.merrbioapi.util.SearchTokenizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Maintains the chat search index. New messages are indexed asynchronously once their transaction has
+ * committed, so sending never waits on it. A periodic sweep picks up anything the async path missed
+ * (rejected task, restart) as well as messages written before the index existed. Indexing runs on its own
+ * executor so a backlog of postings never delays other async work, and each message or sweep batch writes its
+ * postings and its indexed flag in one transaction.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSearchIndexer {
+
+    // Leaves the async path time to finish before the sweep treats a message as missed
+    private static final Duration SWEEP_GRACE = Duration.ofMinutes(1);
+
+    private final MessageSearchPostingRepository postingRepository;
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.chat.search.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    @Async("searchIndexExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void handleChatMessage(ChatMessageEvent event) {
+        ChatMessageDto message = event.getMessage();
+        try {
+            List<MessageSearchPosting> postings = new ArrayList<>();
+            addPostings(postings, message.getId(), message.getConversationId(), message.getSequence(),
+                    message.getTimestamp(), message.getContent(), message.getSenderId(), event.getRecipientId());
+            transactionTemplate.executeWithoutResult(status -> {
+                postingRepository.saveAll(postings);
+                messageRepository.markSearchIndexed(List.of(message.getId()));
+            });
+        } catch (Exception e) {
+            // Left unmarked, so the sweep retries it
+            log.warn("Failed to index message {}: {}", message.getId(), e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.chat.search.sweep-ms:300000}", fixedDelayString = "${app.chat.search.sweep-ms:300000}")
+    public void indexPendingMessages() {
+        Instant createdBefore = Instant.now().minus(SWEEP_GRACE);
+        int indexed = 0;
+        List<Message> pending;
+        do {
+            pending = messageRepository.findSearchPending(createdBefore, PageRequest.of(0, sweepBatchSize));
+            if (pending.isEmpty()) {
+                break;
+            }
+            List<UUID> messageIds = pending.stream().map(Message::getId).toList();
+            List<MessageSearchPosting> postings = new ArrayList<>();
+            for (Message message : pending) {
+                Conversation conversation = message.getConversation();
+                addPostings(postings, message.getId(), conversation.getId(), message.getSequence(),
+                        message.getCreatedAt(), message.getContent(),
+                        conversation.getInitiator().getId(), conversation.getRecipient().getId());
+            }
+            try {
+                // Re-indexing is idempotent: drop whatever an earlier attempt left behind
+                transactionTemplate.executeWithoutResult(status -> {
+                    postingRepository.deleteByMessageIds(messageIds);
+                    postingRepository.saveAll(postings);
+                    messageRepository.markSearchIndexed(messageIds);
+                });
+                indexed += pending.size();
+            } catch (Exception e) {
+                log.error("Failed to index {} pending messages: {}", pending.size(), e.getMessage());
+                break;
+            }
+        } while (pending.size() == sweepBatchSize);
+
+        if (indexed > 0) {
+            log.info("Search sweep indexed {} messages", indexed);
+        }
+    }
+
+    private void addPostings(List<MessageSearchPosting> postings, UUID messageId, UUID conversationId, Long sequence,
+                             Instant createdAt, String content, UUID... participantIds) {
+        for (String term : SearchTokenizer.tokenize(content)) {
+            for (UUID participantId : participantIds) {
+                postings.add(MessageSearchPosting.builder()
+                        .id(new MessageSearchPostingId(participantId, term, messageId))
+                        .conversationId(conversationId)
+                        .sequence(sequence)
+                        .createdAt(createdAt)
+                        .build());
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.app.merrbioapi.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable, memory-mapped file holding a contiguous run of archived messages from one conversation.
+ * <p>
+ * Layout: deflate-compressed blocks of roughly {@value #BLOCK_TARGET_BYTES} raw bytes, then a sparse
+ * index with one entry per block (first/last sequence, offset, lengths), then a fixed-size footer
+ * pointing at the index. A lookup binary-searches the index and inflates only the blocks it needs.
+ */
+final class MessageSegment {
+
+    static final String SUFFIX = ".seg";
+
+    private static final int MAGIC = 0x4D425347; // "MBSG"
+    private static final int VERSION = 1;
+    private static final int BLOCK_TARGET_BYTES = 64 * 1024;
+    private static final int INDEX_ENTRY_BYTES = Long.BYTES * 3 + Integer.BYTES * 2;
+    private static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES * 2;
+
+    private final MappedByteBuffer buffer;
+    private final long[] firstSequences;
+    private final long[] lastSequences;
+    private final int[] offsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+
+    private MessageSegment(MappedByteBuffer buffer, long[] firstSequences, long[] lastSequences,
+                           int[] offsets, int[] compressedLengths, int[] rawLengths) {
+        this.buffer = buffer;
+        this.firstSequences = firstSequences;
+        this.lastSequences = lastSequences;
+        this.offsets = offsets;
+        this.compressedLengths = compressedLengths;
+        this.rawLengths = rawLengths;
+    }
+
+    record Record(long sequence, UUID id, UUID senderId, Instant createdAt, String clientMessageId, String content) {
+    }
+
+    /**
+     * Writes the records, which must be sorted by sequence, to {@code target}. The file only becomes
+     * visible under its final name once it is complete.
+     */
+    static void write(Path target, List<Record> records) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(BLOCK_TARGET_BYTES * 2);
+            DataOutputStream out = new DataOutputStream(raw);
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            DataOutputStream indexOut = new DataOutputStream(index);
+
+            long position = 0;
+            int blocks = 0;
+            long blockFirst = 0;
+            long blockLast = 0;
+            for (Record record : records) {
+                if (raw.size() == 0) {
+                    blockFirst = record.sequence();
+                }
+                writeRecord(out, record);
+                blockLast = record.sequence();
+
+                if (raw.size() >= BLOCK_TARGET_BYTES) {
+                    position += flushBlock(channel, deflater, raw, indexOut, blockFirst, blockLast, position);
+                    blocks++;
+                }
+            }
+            if (raw.size() > 0) {
+                position += flushBlock(channel, deflater, raw, indexOut, blockFirst, blockLast, position);
+                blocks++;
+            }
+
+            ByteBuffer tail = ByteBuffer.allocate(Integer.BYTES + index.size() + FOOTER_BYTES);
+            tail.putInt(blocks).put(index.toByteArray());
+            tail.putLong(position).putInt(VERSION).putInt(MAGIC).flip();
+            writeFully(channel, tail);
+            channel.force(true);
+        } finally {
+            deflater.end();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static MessageSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FOOTER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid message segment size " + size + ": " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            int footer = (int) size - FOOTER_BYTES;
+            long indexOffset = buffer.getLong(footer);
+            if (buffer.getInt(footer + Long.BYTES + Integer.BYTES) != MAGIC
+                    || buffer.getInt(footer + Long.BYTES) != VERSION) {
+                throw new IOException("Not a message segment: " + file);
+            }
+
+            int position = (int) indexOffset;
+            int blocks = buffer.getInt(position);
+            position += Integer.BYTES;
+            long[] firstSequences = new long[blocks];
+            long[] lastSequences = new long[blocks];
+            int[] offsets = new int[blocks];
+            int[] compressedLengths = new int[blocks];
+            int[] rawLengths = new int[blocks];
+            for (int i = 0; i < blocks; i++, position += INDEX_ENTRY_BYTES) {
+                firstSequences[i] = buffer.getLong(position);
+                lastSequences[i] = buffer.getLong(position + Long.BYTES);
+                offsets[i] = (int) buffer.getLong(position + Long.BYTES * 2);
+                compressedLengths[i] = buffer.getInt(position + Long.BYTES * 3);
+                rawLengths[i] = buffer.getInt(position + Long.BYTES * 3 + Integer.BYTES);
+            }
+            return new MessageSegment(buffer, firstSequences, lastSequences, offsets, compressedLengths, rawLengths);
+        }
+    }
+
+    /**
+     * Up to {@code limit} records with a sequence greater than {@code afterSequence}, ascending
+     */
+    List<Record> readAfter(long afterSequence, int limit) throws IOException {
+        List<Record> result = new ArrayList<>();
+        for (int block = firstBlockEndingAfter(afterSequence); block < firstSequences.length; block++) {
+            for (Record record : decodeBlock(block)) {
+                if (record.sequence() > afterSequence) {
+                    result.add(record);
+                    if (result.size() == limit) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The last {@code limit} records with a sequence lower than {@code beforeSequence}, ascending
+     */
+    List<Record> readBefore(long beforeSequence, int limit) throws IOException {
+        List<Record> reversed = new ArrayList<>();
+        // The first block reaching beforeSequence may still hold earlier records; everything after it is too new
+        int start = Math.min(firstBlockEndingAfter(beforeSequence - 1), firstSequences.length - 1);
+        for (int block = start; block >= 0 && reversed.size() < limit; block--) {
+            List<Record> records = decodeBlock(block);
+            for (int i = records.size() - 1; i >= 0 && reversed.size() < limit; i--) {
+                if (records.get(i).sequence() < beforeSequence) {
+                    reversed.add(records.get(i));
+                }
+            }
+        }
+        Collections.reverse(reversed);
+        return reversed;
+    }
+
+    /**
+     * Index of the first block whose last sequence is greater than {@code sequence}, or the block count
+     */
+    private int firstBlockEndingAfter(long sequence) {
+        int low = 0;
+        int high = lastSequences.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lastSequences[mid] > sequence) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private List<Record> decodeBlock(int block) throws IOException {
+        byte[] compressed = new byte[compressedLengths[block]];
+        buffer.get(offsets[block], compressed);
+
+        byte[] raw = new byte[rawLengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int inflated = 0;
+            while (inflated < raw.length && !inflater.finished()) {
+                int read = inflater.inflate(raw, inflated, raw.length - inflated);
+                if (read == 0 && inflater.needsInput()) {
+                    break;
+                }
+                inflated += read;
+            }
+            if (inflated != raw.length) {
+                throw new IOException("Truncated message segment block " + block);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt message segment block " + block, e);
+        } finally {
+            inflater.end();
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        List<Record> records = new ArrayList<>();
+        while (in.available() > 0) {
+            records.add(readRecord(in));
+        }
+        return records;
+    }
+
+    private static int flushBlock(FileChannel channel, Deflater deflater, ByteArrayOutputStream raw,
+                                  DataOutputStream indexOut, long firstSequence, long lastSequence,
+                                  long position) throws IOException {
+        byte[] input = raw.toByteArray();
+        raw.reset();
+
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 2 + 64);
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            compressed.write(chunk, 0, length);
+        }
+
+        writeFully(channel, ByteBuffer.wrap(compressed.toByteArray()));
+
+        indexOut.writeLong(firstSequence);
+        indexOut.writeLong(lastSequence);
+        indexOut.writeLong(position);
+        indexOut.writeInt(compressed.size());
+        indexOut.writeInt(input.length);
+        return compressed.size();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Record record) throws IOException {
+        out.writeLong(record.sequence());
+        out.writeLong(record.id().getMostSignificantBits());
+        out.writeLong(record.id().getLeastSignificantBits());
+        out.writeLong(record.senderId().getMostSignificantBits());
+        out.writeLong(record.senderId().getLeastSignificantBits());
+        out.writeLong(record.createdAt().getEpochSecond());
+        out.writeInt(record.createdAt().getNano());
+        out.writeBoolean(record.clientMessageId() != null);
+        if (record.clientMessageId() != null) {
+            out.writeUTF(record.clientMessageId());
+        }
+        // Content is capped at 2000 characters, well inside the 64 KB limit of writeUTF
+        out.writeUTF(record.content());
+    }
+
+    private static Record readRecord(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        UUID id = new UUID(in.readLong(), in.readLong());
+        UUID senderId = new UUID(in.readLong(), in.readLong());
+        Instant createdAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        String clientMessageId = in.readBoolean() ? in.readUTF() : null;
+        String content = in.readUTF();
+        return new Record(sequence, id, senderId, createdAt, clientMessageId, content);
+    }
+}
@@ -0,0 +1,87 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.model.entity.Conversation;
+import com.app.merrbioapi.repository.ConversationRepository;
+import com.app.merrbioapi.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Numbers the messages of conversations created before message sequence numbers existed.
+ * <p>
+ * Gap fill, history paging and archiving all select by sequence, so legacy rows without one would be invisible
+ * to them. After startup every such conversation is numbered under its row lock, one transaction each; a message
+ * sent to a conversation the sweep has not reached yet numbers it on the spot.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSequenceBackfill {
+
+    // Smallest id in the database ordering, used to start the keyset scan over conversations
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.chat.sequence-backfill.chunk-size:100}")
+    private int chunkSize;
+
+    /**
+     * Numbers the unnumbered messages of a conversation the caller has locked with
+     * {@link ConversationRepository#findByIdForUpdate(UUID)} and sets its last sequence.
+     */
+    public void backfill(Conversation conversation) {
+        long afterSequence = messageRepository.findMaxSequence(conversation.getId());
+        int assigned = messageRepository.assignMissingSequences(conversation.getId(), afterSequence);
+        conversation.setLastSequence(afterSequence + assigned);
+        if (assigned > 0) {
+            log.debug("Numbered {} legacy messages of conversation {}", assigned, conversation.getId());
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillLegacyConversations() {
+        UUID afterId = FIRST_ID;
+        int backfilled = 0;
+        while (true) {
+            List<UUID> conversationIds = conversationRepository.findUnsequencedIds(afterId, PageRequest.of(0, chunkSize));
+            if (conversationIds.isEmpty()) {
+                break;
+            }
+            afterId = conversationIds.get(conversationIds.size() - 1);
+
+            for (UUID conversationId : conversationIds) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> conversationRepository
+                            .findByIdForUpdate(conversationId)
+                            // A send may have numbered it since the id was read
+                            .filter(conversation -> conversation.getLastSequence() == null)
+                            .ifPresent(this::backfill));
+                    backfilled++;
+                } catch (Exception e) {
+                    log.warn("Failed to number messages of conversation {}: {}", conversationId, e.getMessage());
+                }
+            }
+
+            if (conversationIds.size() < chunkSize) {
+                break;
+            }
+        }
+        if (backfilled > 0) {
+            log.info("Numbered the messages of {} legacy conversations", backfilled);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.model.enums.NotificationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Smooths bursts of notifications before they reach {@link NotificationService}.
+ * <p>
+ * Notifications for the same user and type arriving within the coalescing window are merged into one
+ * (e.g. "5 of your orders were updated"). Each user then has a token bucket for live pushes; once it is empty,
+ * further notifications go straight to the inbox as undelivered and reach the client through the REST inbox or
+ * the replay on its next subscribe, instead of adding to the socket and broker load.
+ */
+@Service
+@Slf4j
+public class NotificationCoalescer {
+
+    private final NotificationService notificationService;
+    private final NotificationInboxService inboxService;
+
+    @Value("${app.notifications.coalesce.window-ms:2000}")
+    private long windowMs;
+
+    @Value("${app.notifications.rate.burst:5}")
+    private int burst;
+
+    @Value("${app.notifications.rate.per-minute:20}")
+    private int perMinute;
+
+    private final Map<PendingKey, Pending> pending = new ConcurrentHashMap<>();
+    private final Map<UUID, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final Counter coalescedNotifications;
+    private final Counter spilledNotifications;
+
+    public NotificationCoalescer(NotificationService notificationService,
+                                 NotificationInboxService inboxService,
+                                 MeterRegistry meterRegistry) {
+        this.notificationService = notificationService;
+        this.inboxService = inboxService;
+        this.coalescedNotifications = Counter.builder("notifications.coalesced")
+                .description("Notifications merged into an earlier one of the same user and type")
+                .register(meterRegistry);
+        this.spilledNotifications = Counter.builder("notifications.spilled")
+                .description("Notifications stored in the inbox without a live push because the user's rate was exceeded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a notification; it is delivered, possibly merged with others, once its window closes
+     */
+    public void submit(UUID userId, NotificationType type, String title, String message) {
+        pending.compute(new PendingKey(userId, type), (key, batch) -> {
+            if (batch == null) {
+                return new Pending(title, message, System.currentTimeMillis());
+            }
+            batch.count++;
+            batch.latestMessage = message;
+            coalescedNotifications.increment();
+            return batch;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.notifications.coalesce.tick-ms:250}")
+    public void flushDue() {
+        long now = System.currentTimeMillis();
+        pending.forEach((key, batch) -> {
+            // Removing by value keeps a batch that was reopened meanwhile
+            if (now - batch.openedAt >= windowMs && pending.remove(key, batch)) {
+                deliver(key, batch, now);
+            }
+        });
+        // Full buckets carry no state worth keeping
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pending.forEach((key, batch) -> {
+            if (pending.remove(key, batch)) {
+                inboxService.append(key.userId(), key.type(), titleOf(key.type(), batch), messageOf(key.type(), batch), false);
+            }
+        });
+        inboxService.flush();
+    }
+
+    private void deliver(PendingKey key, Pending batch, long now) {
+        String title = titleOf(key.type(), batch);
+        String message = messageOf(key.type(), batch);
+        TokenBucket bucket = buckets.computeIfAbsent(key.userId(), id -> new TokenBucket(burst, perMinute, now));
+        if (bucket.tryAcquire(now)) {
+            notificationService.sendNotificationToUser(key.userId(), key.type(), title, message);
+        } else {
+            spilledNotifications.increment();
+            log.debug("Notification rate exceeded for user {}, storing without push", key.userId());
+            inboxService.append(key.userId(), key.type(), title, message, false);
+        }
+    }
+
+    private String titleOf(NotificationType type, Pending batch) {
+        if (batch.count == 1) {
+            return batch.firstTitle;
+        }
+        return switch (type) {
+            case ORDER_STATUS -> "Order Status Updates";
+            case CHAT_MESSAGE -> "New Messages";
+            case GENERAL -> batch.firstTitle;
+        };
+    }
+
+    private String messageOf(NotificationType type, Pending batch) {
+        if (batch.count == 1) {
+            return batch.latestMessage;
+        }
+        return switch (type) {
+            case ORDER_STATUS -> batch.count + " of your orders were updated. Latest: " + batch.latestMessage;
+            case CHAT_MESSAGE -> "You have " + batch.count + " new messages";
+            case GENERAL -> batch.count + " new notifications. Latest: " + batch.latestMessage;
+        };
+    }
+
+    private record PendingKey(UUID userId, NotificationType type) {
+    }
+
+    /**
+     * Mutated only inside {@code pending.compute}, and read after it has been removed from the map
+     */
+    private static class Pending {
+        private final String firstTitle;
+        private final long openedAt;
+        private String latestMessage;
+        private int count = 1;
+
+        Pending(String firstTitle, String latestMessage, long openedAt) {
+            this.firstTitle = firstTitle;
+            this.latestMessage = latestMessage;
+            this.openedAt = openedAt;
+        }
+    }
+
+    private static class TokenBucket {
+        private final int capacity;
+        private final double tokensPerMs;
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(int capacity, int perMinute, long now) {
+            this.capacity = capacity;
+            this.tokensPerMs = perMinute / 60_000.0;
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            refill(now);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerMs);
+            refilledAt = now;
+        }
+    }
+}
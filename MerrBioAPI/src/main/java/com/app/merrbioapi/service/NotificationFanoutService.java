@@ -0,0 +1,265 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.config.PreEncodedStompEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.OrderedMessageChannelDecorator;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers notifications to many sessions without going through the broker's subscription matching.
+ * <p>
+ * Notification subscriptions are kept in an exact-match index (broadcast subscribers, and per-user subscribers
+ * keyed by user id) that is updated from subscribe events and read without locks. A notification is serialized
+ * once, then handed to the matching sessions in parallel batches through the client outbound channel, so the
+ * outbound interceptors such as {@link com.app.merrbioapi.config.SlowConsumerGuard} apply. Each session gets its
+ * own {@link OrderedMessageChannelDecorator}, which keeps notifications to one session in order across the
+ * channel's threads. The {@link PreEncodedStompEncoder} turns the shared payload into one STOMP frame per
+ * subscription id.
+ */
+@Service
+@Slf4j
+public class NotificationFanoutService {
+
+    public static final String BROADCAST_DESTINATION = "/topic/notifications";
+    public static final String USER_DESTINATION = "/user/queue/notifications";
+    // Older clients subscribe to their own id under this prefix
+    private static final String LEGACY_USER_DESTINATION_PREFIX = "/queue/notifications/";
+
+    private final ObjectMapper objectMapper;
+    private final Executor fanoutExecutor;
+
+    // Lazy: the handler is created by the WebSocket configuration, which starts after this service
+    @Autowired
+    @Lazy
+    @Qualifier("subProtocolWebSocketHandler")
+    private WebSocketHandler webSocketHandler;
+
+    // Lazy for the same reason
+    @Autowired
+    @Lazy
+    @Qualifier("clientOutboundChannel")
+    private MessageChannel clientOutboundChannel;
+
+    @Value("${app.notifications.fanout.batch-size:500}")
+    private int batchSize;
+
+    private final Map<SubscriptionKey, Target> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, Set<SubscriptionKey>> subscriptionsBySession = new ConcurrentHashMap<>();
+    private final Set<Target> broadcastTargets = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Set<Target>> userTargets = new ConcurrentHashMap<>();
+    private final Map<String, MessageChannel> outboundBySession = new ConcurrentHashMap<>();
+    private final Log channelLog = LogFactory.getLog(NotificationFanoutService.class);
+
+    private SubProtocolWebSocketHandler subProtocolHandler;
+
+    public NotificationFanoutService(ObjectMapper objectMapper,
+                                     @Qualifier("notificationFanoutExecutor") Executor fanoutExecutor) {
+        this.objectMapper = objectMapper;
+        this.fanoutExecutor = fanoutExecutor;
+    }
+
+    @EventListener
+    public void handleContextRefreshed(ContextRefreshedEvent event) {
+        if (WebSocketHandlerDecorator.unwrap(webSocketHandler) instanceof SubProtocolWebSocketHandler handler) {
+            for (SubProtocolHandler protocolHandler : handler.getProtocolHandlers()) {
+                if (protocolHandler instanceof StompSubProtocolHandler stompHandler) {
+                    stompHandler.setEncoder(new PreEncodedStompEncoder());
+                }
+            }
+            subProtocolHandler = handler;
+        }
+    }
+
+    /**
+     * Writes the payload to every session of the user subscribed to its notifications
+     */
+    public void sendToUser(UUID userId, Object payload) {
+        fanOut(userTargets.get(userId), payload);
+    }
+
+    /**
+     * Writes the payload to every session subscribed to {@value #BROADCAST_DESTINATION}
+     */
+    public void broadcast(Object payload) {
+        fanOut(broadcastTargets, payload);
+    }
+
+    /**
+     * Whether the user currently has a notification subscription on this node
+     */
+    public boolean hasSubscribers(UUID userId) {
+        return userTargets.containsKey(userId);
+    }
+
+    /**
+     * Writes the payload to one subscription of one session, e.g. to replay what it missed
+     */
+    public void sendToSubscription(String sessionId, String subscriptionId, String destination, Object payload) {
+        fanOut(List.of(new Target(sessionId, subscriptionId, destination, null)), payload);
+    }
+
+    /**
+     * Whether the destination is one the user may receive their own notifications on
+     */
+    public static boolean isOwnNotificationDestination(String destination, UUID userId) {
+        if (USER_DESTINATION.equals(destination)) {
+            return true;
+        }
+        // Only a user's own legacy queue counts, so nobody can listen in on someone else's notifications
+        return destination.startsWith(LEGACY_USER_DESTINATION_PREFIX)
+                && destination.substring(LEGACY_USER_DESTINATION_PREFIX.length()).equals(userId.toString());
+    }
+
+    @EventListener
+    public void handleSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        if (destination == null || sessionId == null || subscriptionId == null) {
+            return;
+        }
+
+        Target target;
+        if (BROADCAST_DESTINATION.equals(destination)) {
+            target = new Target(sessionId, subscriptionId, destination, null);
+            broadcastTargets.add(target);
+        } else {
+            UUID userId = userIdOf(event.getUser());
+            if (userId == null || !isOwnNotificationDestination(destination, userId)) {
+                return;
+            }
+            target = new Target(sessionId, subscriptionId, destination, userId);
+            userTargets.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(target);
+        }
+
+        SubscriptionKey key = new SubscriptionKey(sessionId, subscriptionId);
+        subscriptions.put(key, target);
+        subscriptionsBySession.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    @EventListener
+    public void handleUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        SubscriptionKey key = new SubscriptionKey(accessor.getSessionId(), accessor.getSubscriptionId());
+        remove(key);
+        Set<SubscriptionKey> sessionKeys = subscriptionsBySession.get(key.sessionId());
+        if (sessionKeys != null) {
+            sessionKeys.remove(key);
+        }
+    }
+
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        Set<SubscriptionKey> keys = subscriptionsBySession.remove(event.getSessionId());
+        if (keys != null) {
+            keys.forEach(this::remove);
+        }
+        outboundBySession.remove(event.getSessionId());
+    }
+
+    private void remove(SubscriptionKey key) {
+        Target target = subscriptions.remove(key);
+        if (target == null) {
+            return;
+        }
+        if (target.userId() == null) {
+            broadcastTargets.remove(target);
+        } else {
+            userTargets.computeIfPresent(target.userId(), (userId, targets) -> {
+                targets.remove(target);
+                return targets.isEmpty() ? null : targets;
+            });
+        }
+    }
+
+    private void fanOut(Collection<Target> targets, Object payload) {
+        if (targets == null || targets.isEmpty() || subProtocolHandler == null) {
+            return;
+        }
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Notification payload is not serializable", e);
+        }
+        // Same message id for every session, so the encoded frames are identical per subscription id
+        String frameKey = UUID.randomUUID().toString();
+
+        List<Target> snapshot = List.copyOf(targets);
+        for (int from = 0; from < snapshot.size(); from += batchSize) {
+            List<Target> batch = snapshot.subList(from, Math.min(from + batchSize, snapshot.size()));
+            fanoutExecutor.execute(() -> batch.forEach(target -> write(target, body, frameKey)));
+        }
+    }
+
+    private void write(Target target, byte[] body, String frameKey) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(target.sessionId());
+        accessor.setSubscriptionId(target.subscriptionId());
+        accessor.setDestination(target.destination());
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setNativeHeader("message-id", frameKey);
+        accessor.setHeader(PreEncodedStompEncoder.FRAME_KEY_HEADER, frameKey);
+        try {
+            outboundFor(target.sessionId()).send(MessageBuilder.createMessage(body, accessor.getMessageHeaders()));
+        } catch (Exception e) {
+            // Session closed meanwhile; its subscriptions go away with the disconnect event
+            log.debug("Failed to write notification to session {}: {}", target.sessionId(), e.getMessage());
+        }
+    }
+
+    private MessageChannel outboundFor(String sessionId) {
+        return outboundBySession.computeIfAbsent(sessionId,
+                id -> new OrderedMessageChannelDecorator(clientOutboundChannel, channelLog));
+    }
+
+    private UUID userIdOf(Principal principal) {
+        if (principal == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(principal.getName());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private record SubscriptionKey(String sessionId, String subscriptionId) {
+    }
+
+    private record Target(String sessionId, String subscriptionId, String destination, UUID userId) {
+    }
+}
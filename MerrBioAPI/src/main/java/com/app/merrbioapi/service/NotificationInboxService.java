@@ -0,0 +1,268 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.exception.EntityNotFoundException;
+import com.app.merrbioapi.model.dto.response.NotificationResponse;
+import com.app.merrbioapi.model.entity.Notification;
+import com.app.merrbioapi.model.entity.NotificationCounter;
+import com.app.merrbioapi.model.enums.NotificationType;
+import com.app.merrbioapi.repository.NotificationCounterRepository;
+import com.app.merrbioapi.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Persistent per-user notification inbox.
+ * <p>
+ * Appends are queued in memory and written in batches, together with one counter update per user, so a burst of
+ * notifications costs a handful of statements. A notification is only handed to its push callback once its batch
+ * has committed, so a client never sees an id it cannot mark read; a batch that fails to commit is queued again
+ * for a bounded number of flushes. Entries older than the TTL are purged nightly, one committed chunk at a time,
+ * and taken off the unread counters as they go.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationInboxService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationCounterRepository counterRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.notifications.inbox.flush-batch-size:1000}")
+    private int flushBatchSize;
+
+    @Value("${app.notifications.inbox.max-flush-attempts:10}")
+    private int maxFlushAttempts;
+
+    @Value("${app.notifications.inbox.ttl-days:30}")
+    private long ttlDays;
+
+    private final Queue<PendingNotification> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Queues a notification for storage and returns it with its id already assigned
+     */
+    public Notification append(UUID userId, NotificationType type, String title, String message, boolean delivered) {
+        return append(userId, type, title, message, delivered, null);
+    }
+
+    /**
+     * Queues a notification for storage and calls {@code onStored} with it once it is committed, on the thread
+     * that flushes it
+     */
+    public Notification append(UUID userId, NotificationType type, String title, String message, boolean delivered,
+                               Consumer<Notification> onStored) {
+        Notification notification = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .type(type)
+                .title(title)
+                .message(message)
+                .read(false)
+                .delivered(delivered)
+                .createdAt(Instant.now())
+                .build();
+        pending.add(new PendingNotification(notification, onStored, 0));
+        return notification;
+    }
+
+    @Scheduled(fixedDelayString = "${app.notifications.inbox.flush-ms:500}")
+    public void flush() {
+        List<PendingNotification> batch = new ArrayList<>();
+        PendingNotification next;
+        while (batch.size() < flushBatchSize && (next = pending.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Notification> notifications = batch.stream().map(PendingNotification::notification).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> store(notifications));
+        } catch (RuntimeException e) {
+            requeue(batch, e);
+            return;
+        }
+
+        for (PendingNotification stored : batch) {
+            if (stored.onStored() == null) {
+                continue;
+            }
+            try {
+                stored.onStored().accept(stored.notification());
+            } catch (RuntimeException e) {
+                log.warn("Failed to push notification {}: {}", stored.notification().getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Puts a batch whose transaction failed back in the queue for the next flush. Ids and timestamps were assigned
+     * on append, so the retry stores the same notifications in the same order.
+     */
+    private void requeue(List<PendingNotification> batch, RuntimeException cause) {
+        int dropped = 0;
+        for (PendingNotification failed : batch) {
+            if (failed.attempts() + 1 < maxFlushAttempts) {
+                pending.add(failed.retried());
+            } else {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            log.error("Dropping {} notifications after {} failed attempts to store them: {}",
+                    dropped, maxFlushAttempts, cause.getMessage());
+        } else {
+            log.warn("Failed to store {} notifications, retrying with the next flush: {}",
+                    batch.size(), cause.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        while (!pending.isEmpty()) {
+            flush();
+        }
+    }
+
+    private void store(List<Notification> batch) {
+        notificationRepository.saveAll(batch);
+
+        Map<UUID, Integer> unreadPerUser = new HashMap<>();
+        batch.forEach(notification -> unreadPerUser.merge(notification.getUserId(), 1, Integer::sum));
+        unreadPerUser.forEach(counterRepository::increment);
+        log.debug("Stored {} notifications for {} users", batch.size(), unreadPerUser.size());
+    }
+
+    @Transactional(readOnly = true)
+    public Page<NotificationResponse> getNotifications(UUID userId, int page, int size) {
+        PageRequest pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, MAX_PAGE_SIZE)),
+                Sort.by(Sort.Direction.DESC, "createdAt"));
+        return notificationRepository.findByUserId(userId, pageable).map(NotificationInboxService::toResponse);
+    }
+
+    @Transactional(readOnly = true)
+    public int getUnreadCount(UUID userId) {
+        return counterRepository.findById(userId)
+                .map(NotificationCounter::getUnreadCount)
+                .orElse(0);
+    }
+
+    @Transactional
+    public void markRead(UUID userId, UUID notificationId) {
+        if (notificationRepository.markRead(notificationId, userId) == 1) {
+            counterRepository.decrement(userId);
+        } else if (!notificationRepository.existsById(notificationId)) {
+            throw new EntityNotFoundException("Notification not found");
+        }
+    }
+
+    @Transactional
+    public void markAllRead(UUID userId) {
+        notificationRepository.markAllRead(userId);
+        counterRepository.reset(userId);
+    }
+
+    /**
+     * Returns the user's notifications that never reached a live session, oldest first, and marks them delivered
+     */
+    @Transactional
+    public List<NotificationResponse> takeUndelivered(UUID userId, int limit) {
+        List<Notification> undelivered = notificationRepository.findUndelivered(userId, PageRequest.of(0, limit));
+        if (undelivered.isEmpty()) {
+            return List.of();
+        }
+        notificationRepository.markDelivered(undelivered.stream().map(Notification::getId).toList());
+        return undelivered.stream().map(NotificationInboxService::toResponse).toList();
+    }
+
+    /**
+     * Returns the user's notifications stored after the given one, oldest first, or empty if that notification
+     * is unknown (e.g. already purged)
+     */
+    @Transactional(readOnly = true)
+    public Optional<List<NotificationResponse>> getAfter(UUID userId, UUID lastSeenId, int limit) {
+        return notificationRepository.findById(lastSeenId)
+                .filter(notification -> notification.getUserId().equals(userId))
+                .map(lastSeen -> notificationRepository.findAfter(userId, lastSeen.getCreatedAt(), lastSeen.getId(),
+                                PageRequest.of(0, limit)).stream()
+                        .map(NotificationInboxService::toResponse)
+                        .toList());
+    }
+
+    @Scheduled(cron = "${app.notifications.inbox.purge-cron:0 15 3 * * ?}")
+    public void purgeExpired() {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(ttlDays));
+        int purged = 0;
+        int deleted;
+        do {
+            // Each chunk commits on its own, so the purge never holds locks on more than one chunk
+            Integer chunk = transactionTemplate.execute(status -> purgeChunk(cutoff));
+            deleted = chunk != null ? chunk : 0;
+            purged += deleted;
+        } while (deleted == flushBatchSize);
+
+        log.info("Purged {} notifications older than {}", purged, cutoff);
+    }
+
+    /**
+     * Deletes one chunk of expired notifications and takes the unread ones off their users' counters in the same
+     * transaction, so counters only change for the users whose rows went away
+     */
+    private int purgeChunk(Instant cutoff) {
+        List<Notification> expired = notificationRepository.findOlderThanForUpdate(
+                cutoff, PageRequest.of(0, flushBatchSize));
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        Map<UUID, Integer> unreadPerUser = new HashMap<>();
+        expired.stream()
+                .filter(notification -> !notification.isRead())
+                .forEach(notification -> unreadPerUser.merge(notification.getUserId(), 1, Integer::sum));
+        notificationRepository.deleteAllInBatch(expired);
+        unreadPerUser.forEach(counterRepository::decrementBy);
+        return expired.size();
+    }
+
+    public static NotificationResponse toResponse(Notification notification) {
+        return NotificationResponse.builder()
+                .id(notification.getId())
+                .type(notification.getType())
+                .title(notification.getTitle())
+                .message(notification.getMessage())
+                .read(notification.isRead())
+                .createdAt(notification.getCreatedAt())
+                .build();
+    }
+
+    private record PendingNotification(Notification notification, Consumer<Notification> onStored, int attempts) {
+
+        PendingNotification retried() {
+            return new PendingNotification(notification, onStored, attempts + 1);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.config.UserPrincipal;
+import com.app.merrbioapi.model.dto.response.NotificationResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays notifications stored while the user had no live session as soon as one of their sessions
+ * subscribes to its notification queue. Only the subscribing session receives the replay.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationReplayListener {
+
+    private final NotificationInboxService inboxService;
+    private final NotificationFanoutService fanoutService;
+
+    @Value("${app.notifications.inbox.replay-limit:100}")
+    private int replayLimit;
+
+    @EventListener
+    public void handleSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+        String destination = accessor.getDestination();
+        if (sessionAttributes == null || destination == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        UserPrincipal principal = (UserPrincipal) sessionAttributes.get(UserPrincipal.SESSION_ATTRIBUTE);
+        if (principal == null || !NotificationFanoutService.isOwnNotificationDestination(destination, principal.getUserId())) {
+            return;
+        }
+
+        try {
+            // Store anything still queued so it is part of the replay
+            inboxService.flush();
+            List<NotificationResponse> undelivered = inboxService.takeUndelivered(principal.getUserId(), replayLimit);
+            if (!undelivered.isEmpty()) {
+                log.debug("Replaying {} notifications to session {}", undelivered.size(), accessor.getSessionId());
+            }
+            for (NotificationResponse notification : undelivered) {
+                fanoutService.sendToSubscription(accessor.getSessionId(), accessor.getSubscriptionId(), destination, notification);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to replay notifications to user {}: {}", principal.getUserId(), e.getMessage());
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.app.merrbioapi.service;
 
+import com.app.merrbioapi.model.dto.response.NotificationResponse;
+import com.app.merrbioapi.model.entity.Notification;
+import com.app.merrbioapi.model.enums.NotificationType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.UUID;
 
 @Service
@@ -13,68 +18,88 @@ import java.util.UUID;
 public class NotificationService {
 
     private final SimpMessagingTemplate messagingTemplate;
-    
+    private final NotificationFanoutService fanoutService;
+    private final NotificationInboxService inboxService;
+    private final NotificationStreamService streamService;
+
+    // Direct fan-out only sees this node's sessions; clustered brokers must route through the broker
+    @Value("${app.websocket.broker.mode:simple}")
+    private String brokerMode;
+
     /**
      * Send a notification to a specific user via WebSockets
-     * 
+     *
      * @param userId the ID of the user to notify
      * @param title the notification title
      * @param message the notification message
      */
     public void sendNotificationToUser(UUID userId, String title, String message) {
+        sendNotificationToUser(userId, NotificationType.GENERAL, title, message);
+    }
+
+    /**
+     * Store a notification in the user's inbox and, once it is stored, push it to their live WebSocket sessions
+     * and event streams. Users without either get it replayed when they next subscribe or open a stream.
+     *
+     * @param userId the ID of the user to notify
+     * @param type the kind of notification
+     * @param title the notification title
+     * @param message the notification message
+     */
+    public void sendNotificationToUser(UUID userId, NotificationType type, String title, String message) {
         try {
-            NotificationPayload payload = new NotificationPayload(title, message);
-            String destination = "/queue/notifications/" + userId;
-            
-            log.info("Sending notification to user {}: {}", userId, message);
-            messagingTemplate.convertAndSend(destination, payload);
+            // Across nodes we cannot tell whether the user is connected; the inbox replays it to be safe
+            boolean live = isSingleNode()
+                    && (fanoutService.hasSubscribers(userId) || streamService.hasStreams(userId));
+            inboxService.append(userId, type, title, message, live, stored -> push(userId, stored));
         } catch (Exception e) {
             log.error("Failed to send notification to user {}", userId, e);
         }
     }
-    
+
+    private void push(UUID userId, Notification notification) {
+        NotificationResponse payload = NotificationInboxService.toResponse(notification);
+
+        log.info("Sending notification to user {}: {}", userId, notification.getMessage());
+        if (isSingleNode()) {
+            fanoutService.sendToUser(userId, payload);
+        } else {
+            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/notifications", payload);
+            messagingTemplate.convertAndSend("/queue/notifications/" + userId, payload);
+        }
+        // Reaches streams on other nodes through the backplane when there is one
+        streamService.sendToUser(userId, payload);
+    }
+
     /**
      * Send a broadcast notification to all connected users
-     * 
+     *
      * @param title the notification title
      * @param message the notification message
      */
     public void sendBroadcastNotification(String title, String message) {
         try {
-            NotificationPayload payload = new NotificationPayload(title, message);
-            String destination = "/topic/notifications";
-            
+            // Broadcasts are transient announcements and are not stored per user
+            NotificationResponse payload = NotificationResponse.builder()
+                    .type(NotificationType.GENERAL)
+                    .title(title)
+                    .message(message)
+                    .createdAt(Instant.now())
+                    .build();
+
             log.info("Sending broadcast notification: {}", message);
-            messagingTemplate.convertAndSend(destination, payload);
+            if (isSingleNode()) {
+                fanoutService.broadcast(payload);
+            } else {
+                messagingTemplate.convertAndSend(NotificationFanoutService.BROADCAST_DESTINATION, payload);
+            }
+            streamService.broadcast(payload);
         } catch (Exception e) {
             log.error("Failed to send broadcast notification", e);
         }
     }
-    
-    /**
-     * Simple payload class for notifications
-     */
-    private static class NotificationPayload {
-        private final String title;
-        private final String message;
-        private final long timestamp;
-        
-        public NotificationPayload(String title, String message) {
-            this.title = title;
-            this.message = message;
-            this.timestamp = System.currentTimeMillis();
-        }
-        
-        public String getTitle() {
-            return title;
-        }
-        
-        public String getMessage() {
-            return message;
-        }
-        
-        public long getTimestamp() {
-            return timestamp;
-        }
+
+    private boolean isSingleNode() {
+        return "simple".equals(brokerMode);
     }
-}
\ No newline at end of file
+}
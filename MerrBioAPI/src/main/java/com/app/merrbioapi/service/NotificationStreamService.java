@@ -0,0 +1,313 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.model.dto.response.NotificationResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Server-Sent Events transport for clients that only receive notifications.
+ * <p>
+ * Streams are held as async servlet responses, so an idle stream costs a socket and a small emitter object but
+ * no thread and none of the STOMP session, heartbeat and subscription state. Every write, including the periodic
+ * heartbeat comment that detects dead sockets, runs on the shared notification writer pool. Each stream has its
+ * own queue that at most one pool thread drains at a time, so a stream sees its replay, live notifications and
+ * heartbeats in the order they were queued. Event ids are notification ids; a reconnecting client sends the last
+ * one as {@code Last-Event-ID} and gets everything stored after it. A notification pushed while the replay is
+ * read may arrive twice, so clients dedupe by id.
+ * <p>
+ * In backplane mode notifications are also published to the other nodes, which write them to the streams they
+ * hold. With an external relay broker, streams only see notifications sent from their own node.
+ */
+@Service
+@Slf4j
+public class NotificationStreamService {
+
+    private static final String EVENT_NAME = "notification";
+    private static final Supplier<SseEmitter.SseEventBuilder> HEARTBEAT = () -> SseEmitter.event().comment("heartbeat");
+
+    private final NotificationInboxService inboxService;
+    private final ObjectMapper objectMapper;
+    private final Executor writerPool;
+    private final ObjectProvider<ClusterMessagingService> clusterMessagingServiceProvider;
+
+    @Value("${app.notifications.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.notifications.stream.max-per-user:5}")
+    private int maxPerUser;
+
+    @Value("${app.notifications.inbox.replay-limit:100}")
+    private int replayLimit;
+
+    @Value("${app.notifications.fanout.batch-size:500}")
+    private int batchSize;
+
+    private final Map<UUID, List<Stream>> streams = new ConcurrentHashMap<>();
+
+    public NotificationStreamService(NotificationInboxService inboxService,
+                                     ObjectMapper objectMapper,
+                                     @Qualifier("notificationFanoutExecutor") Executor writerPool,
+                                     ObjectProvider<ClusterMessagingService> clusterMessagingServiceProvider) {
+        this.inboxService = inboxService;
+        this.objectMapper = objectMapper;
+        this.writerPool = writerPool;
+        this.clusterMessagingServiceProvider = clusterMessagingServiceProvider;
+    }
+
+    /**
+     * Opens a stream for the user and replays what they missed: everything after {@code lastEventId} when the
+     * client resumes, otherwise the notifications that never reached a live connection
+     */
+    public SseEmitter open(UUID userId, UUID lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        // Held until the replay is written, so live notifications queue up behind it
+        Stream stream = new Stream(userId, emitter, true);
+        emitter.onCompletion(() -> remove(stream));
+        emitter.onTimeout(() -> remove(stream));
+        emitter.onError(error -> remove(stream));
+
+        // Added under the map's lock so a concurrent remove cannot drop the list this stream joins
+        List<Stream> evicted = new ArrayList<>();
+        streams.compute(userId, (key, userStreams) -> {
+            List<Stream> list = userStreams != null ? userStreams : new CopyOnWriteArrayList<>();
+            list.add(stream);
+            // Oldest streams beyond the cap are usually tabs the user has long left
+            while (list.size() > maxPerUser) {
+                evicted.add(list.remove(0));
+            }
+            return list;
+        });
+        evicted.forEach(old -> old.emitter.complete());
+
+        // Store anything still queued so it is part of the replay
+        inboxService.flush();
+        List<Supplier<SseEmitter.SseEventBuilder>> replay = new ArrayList<>();
+        List<NotificationResponse> missed = lastEventId != null
+                ? inboxService.getAfter(userId, lastEventId, replayLimit)
+                        .orElseGet(() -> inboxService.takeUndelivered(userId, replayLimit))
+                : inboxService.takeUndelivered(userId, replayLimit);
+        for (NotificationResponse notification : missed) {
+            replay.add(notificationEvent(notification.getId(), serialize(notification)));
+        }
+        try {
+            writerPool.execute(() -> stream.drain(replay));
+        } catch (RejectedExecutionException e) {
+            // Without the replay the client would silently miss notifications; let it reconnect instead
+            log.warn("Notification writers are saturated, closing new stream of user {}", userId);
+            remove(stream);
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * Whether the user has an open stream on this node
+     */
+    public boolean hasStreams(UUID userId) {
+        return streams.containsKey(userId);
+    }
+
+    public void sendToUser(UUID userId, NotificationResponse notification) {
+        String data = serialize(notification);
+        sendToLocalStreams(userId, notification.getId(), data);
+        clusterMessagingServiceProvider.ifAvailable(cluster ->
+                cluster.publishStreamEvent(userId.toString(), data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public void broadcast(NotificationResponse notification) {
+        String data = serialize(notification);
+        broadcastToLocalStreams(notification.getId(), data);
+        clusterMessagingServiceProvider.ifAvailable(cluster ->
+                cluster.publishStreamEvent(null, data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Writes a notification published by another node to the streams held here; a null user means a broadcast
+     */
+    public void deliverFromCluster(String userName, byte[] payload) {
+        String data = new String(payload, StandardCharsets.UTF_8);
+        UUID eventId;
+        try {
+            eventId = objectMapper.readValue(data, NotificationResponse.class).getId();
+        } catch (JsonProcessingException e) {
+            log.warn("Dropping malformed stream event from the backplane: {}", e.getMessage());
+            return;
+        }
+        if (userName == null) {
+            broadcastToLocalStreams(eventId, data);
+        } else {
+            sendToLocalStreams(UUID.fromString(userName), eventId, data);
+        }
+    }
+
+    /**
+     * Keeps intermediaries from closing idle streams, and surfaces sockets that died without a FIN
+     */
+    @Scheduled(fixedDelayString = "${app.notifications.stream.heartbeat-ms:25000}")
+    public void sendHeartbeats() {
+        forEachStreamBatch(HEARTBEAT);
+    }
+
+    private void sendToLocalStreams(UUID userId, UUID eventId, String data) {
+        List<Stream> userStreams = streams.get(userId);
+        if (userStreams == null) {
+            return;
+        }
+        Supplier<SseEmitter.SseEventBuilder> event = notificationEvent(eventId, data);
+        for (Stream stream : userStreams) {
+            if (stream.offer(event)) {
+                schedule(stream);
+            }
+        }
+    }
+
+    private void broadcastToLocalStreams(UUID eventId, String data) {
+        if (!streams.isEmpty()) {
+            forEachStreamBatch(notificationEvent(eventId, data));
+        }
+    }
+
+    /**
+     * Queues the event on every stream, one pool task per batch. A batch drains the streams it finds idle
+     * itself instead of submitting a task per stream.
+     */
+    private void forEachStreamBatch(Supplier<SseEmitter.SseEventBuilder> event) {
+        List<Stream> snapshot = new ArrayList<>();
+        streams.values().forEach(snapshot::addAll);
+        for (int from = 0; from < snapshot.size(); from += batchSize) {
+            Collection<Stream> batch = snapshot.subList(from, Math.min(from + batchSize, snapshot.size()));
+            writerPool.execute(() -> batch.forEach(stream -> {
+                if (stream.offer(event)) {
+                    stream.drain(List.of());
+                }
+            }));
+        }
+    }
+
+    private void schedule(Stream stream) {
+        try {
+            writerPool.execute(() -> stream.drain(List.of()));
+        } catch (RejectedExecutionException e) {
+            // The event stays queued and goes out with the next one
+            stream.release();
+            log.debug("Notification writers are saturated, deferring stream of user {}", stream.userId);
+        }
+    }
+
+    private Supplier<SseEmitter.SseEventBuilder> notificationEvent(UUID eventId, String data) {
+        // A builder accumulates its output as it is sent, so every stream gets a fresh one
+        return () -> {
+            SseEmitter.SseEventBuilder event = SseEmitter.event()
+                    .name(EVENT_NAME)
+                    .data(data, MediaType.APPLICATION_JSON);
+            // Broadcasts are not stored, so they carry no id and do not move the client's resume point
+            if (eventId != null) {
+                event.id(eventId.toString());
+            }
+            return event;
+        };
+    }
+
+    private void remove(Stream stream) {
+        streams.computeIfPresent(stream.userId, (key, userStreams) -> {
+            userStreams.remove(stream);
+            return userStreams.isEmpty() ? null : userStreams;
+        });
+    }
+
+    private String serialize(NotificationResponse notification) {
+        try {
+            return objectMapper.writeValueAsString(notification);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Notification payload is not serializable", e);
+        }
+    }
+
+    /**
+     * One open stream with its queue of unsent events. Whoever flips {@code draining} from false to true owns
+     * the emitter until it has emptied the queue, which keeps writes to one stream serial and in order.
+     */
+    private final class Stream {
+        private final UUID userId;
+        private final SseEmitter emitter;
+        private final Queue<Supplier<SseEmitter.SseEventBuilder>> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining;
+        private volatile boolean closed;
+
+        Stream(UUID userId, SseEmitter emitter, boolean held) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.draining = new AtomicBoolean(held);
+        }
+
+        /**
+         * Queues an event and returns true when the caller has become responsible for draining the stream
+         */
+        boolean offer(Supplier<SseEmitter.SseEventBuilder> event) {
+            if (closed) {
+                return false;
+            }
+            pending.add(event);
+            return draining.compareAndSet(false, true);
+        }
+
+        void release() {
+            draining.set(false);
+        }
+
+        /**
+         * Sends {@code first}, then everything queued, and hands the stream back once the queue is empty
+         */
+        void drain(List<Supplier<SseEmitter.SseEventBuilder>> first) {
+            for (Supplier<SseEmitter.SseEventBuilder> event : first) {
+                send(event);
+            }
+            do {
+                Supplier<SseEmitter.SseEventBuilder> event;
+                while ((event = pending.poll()) != null) {
+                    send(event);
+                }
+                draining.set(false);
+                // An event queued after the last poll but before the release found the stream busy; take it back
+            } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void send(Supplier<SseEmitter.SseEventBuilder> event) {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(event.get());
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping notification stream of user {}: {}", userId, e.getMessage());
+                closed = true;
+                pending.clear();
+                remove(this);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.app.merrbioapi.service;
 
+import com.app.merrbioapi.model.enums.NotificationType;
 import com.app.merrbioapi.model.event.OrderEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,7 +13,7 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class OrderEventListener {
     
-    private final NotificationService notificationService;
+    private final NotificationCoalescer notificationCoalescer;
     
     @Async
     @EventListener
@@ -20,9 +21,10 @@ public class OrderEventListener {
         log.info("Processing order event: {} -> {}, Order ID: {}", 
                 event.getOldStatus(), event.getNewStatus(), event.getOrderId());
         
-        // Send notification to the customer
-        notificationService.sendNotificationToUser(
+        // Send notification to the customer; bursts are merged and rate limited per user
+        notificationCoalescer.submit(
                 event.getCustomerId(),
+                NotificationType.ORDER_STATUS,
                 "Order Status Update",
                 event.getMessage()
         );
@@ -1,5 +1,7 @@
 package com.app.merrbioapi.service;
 
+import com.app.merrbioapi.config.CurrentUser;
+import com.app.merrbioapi.config.UserPrincipal;
 import com.app.merrbioapi.exception.EntityNotFoundException;
 import com.app.merrbioapi.model.dto.request.OrderCreateRequest;
 import com.app.merrbioapi.model.dto.request.OrderItemRequest;
@@ -25,12 +27,14 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -46,8 +50,8 @@ public class OrderService {
 
     @Transactional
     public OrderResponse createOrder(OrderCreateRequest request) {
-        // Get the current authenticated user
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        // Get the current authenticated user; the reference is never loaded just to link the order
+        User currentUser = userRepository.getReferenceById(CurrentUser.id());
         
         // Validate that there are items in the order
         if (request.getItems() == null || request.getItems().isEmpty()) {
@@ -70,7 +74,7 @@ public class OrderService {
         
         for (OrderItemRequest itemRequest : request.getItems()) {
             // Find the product
-            Product product = productRepository.findById(itemRequest.getProductId())
+            Product product = productRepository.findByIdAndModerationPendingFalse(itemRequest.getProductId())
                     .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + itemRequest.getProductId()));
             
             // Check if product is in stock
@@ -122,12 +126,12 @@ public class OrderService {
                 .orElseThrow(() -> new EntityNotFoundException("Order not found with id: " + orderId));
                 
         // Check if the current user is authorized to view this order
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        UserPrincipal currentUser = CurrentUser.get();
         
         // Allow access if user is the customer or the farmer of any product in the order
-        boolean isCustomer = order.getCustomer().getId().equals(currentUser.getId());
-        boolean isFarmerWithProductInOrder = order.getOrderItems().stream()
-                .anyMatch(item -> item.getProduct().getFarmer().getUser().getId().equals(currentUser.getId()));
+        boolean isCustomer = order.getCustomer().getId().equals(currentUser.getUserId());
+        boolean isFarmerWithProductInOrder = currentUser.getFarmerId() != null && order.getOrderItems().stream()
+                .anyMatch(item -> item.getProduct().getFarmer().getId().equals(currentUser.getFarmerId()));
                 
         if (!isCustomer && !isFarmerWithProductInOrder) {
             throw new AccessDeniedException("You do not have permission to view this order");
@@ -138,25 +142,24 @@ public class OrderService {
     
     @Transactional(readOnly = true)
     public Page<OrderResponse> getCustomerOrders(int page, int size) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
         
-        return orderRepository.findByCustomerId(currentUser.getId(), pageable)
+        return orderRepository.findByCustomerId(CurrentUser.id(), pageable)
                 .map(this::mapToOrderResponse);
     }
     
     @Transactional(readOnly = true)
     public Page<OrderResponse> getFarmerOrders(int page, int size) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        
-        // Get the Farmer entity associated with the current user
-        Farmer farmer = farmerRepository.findByUserId(currentUser.getId())
-                .orElseThrow(() -> new EntityNotFoundException("No farmer profile found for the current user"));
+        // The farmer id comes with the principal
+        UUID farmerId = CurrentUser.farmerId();
+        if (farmerId == null) {
+            throw new EntityNotFoundException("No farmer profile found for the current user");
+        }
         
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
         
         // Find orders using the farmer's ID (not the user's ID)
-        return orderRepository.findOrdersByFarmerId(farmer.getId(), pageable)
+        return orderRepository.findOrdersByFarmerId(farmerId, pageable)
                 .map(this::mapToOrderResponse);
     }
     
@@ -166,10 +169,10 @@ public class OrderService {
                 .orElseThrow(() -> new EntityNotFoundException("Order not found with id: " + orderId));
         
         // Verify this is being done by a farmer that has products in this order
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        UUID farmerId = CurrentUser.farmerId();
         
-        boolean isFarmerWithProductInOrder = order.getOrderItems().stream()
-                .anyMatch(item -> item.getProduct().getFarmer().getUser().getId().equals(currentUser.getId()));
+        boolean isFarmerWithProductInOrder = farmerId != null && order.getOrderItems().stream()
+                .anyMatch(item -> item.getProduct().getFarmer().getId().equals(farmerId));
                 
         if (!isFarmerWithProductInOrder) {
             throw new AccessDeniedException("You do not have permission to update this order");
@@ -202,6 +205,24 @@ public class OrderService {
         return mapToOrderResponse(order);
     }
     
+    /**
+     * Maps an order for each farmer user whose products it contains, keyed by user id
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, OrderResponse> getOrderForFarmerUsers(UUID orderId) {
+        return orderRepository.findWithItemsById(orderId)
+                .map(order -> {
+                    OrderResponse response = mapToOrderResponse(order);
+                    Map<UUID, OrderResponse> byFarmerUser = new HashMap<>();
+                    order.getOrderItems().stream()
+                            .map(item -> item.getProduct().getFarmer().getUser())
+                            .filter(Objects::nonNull)
+                            .forEach(user -> byFarmerUser.put(user.getId(), response));
+                    return byFarmerUser;
+                })
+                .orElse(Map.of());
+    }
+    
     private OrderResponse mapToOrderResponse(Order order) {
         List<OrderItemResponse> itemResponses = order.getOrderItems().stream()
                 .map(this::mapToOrderItemResponse)
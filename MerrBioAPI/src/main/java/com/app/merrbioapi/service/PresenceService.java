@@ -0,0 +1,274 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.config.SlowConsumerGuard;
+import com.app.merrbioapi.model.dto.chat.PresenceDto;
+import com.app.merrbioapi.repository.ConversationRepository;
+import com.app.merrbioapi.util.HashedTimingWheel;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks which users currently hold at least one live STOMP session.
+ * <p>
+ * Connect and disconnect events maintain a per-user session count, always inside {@code entries.compute} so a
+ * connect cannot increment an entry that a concurrent disconnect is removing. Every inbound frame, including
+ * STOMP heartbeats, refreshes the user's last-seen time, and a timing wheel marks users that went silent without
+ * a clean disconnect as offline. Their entry stays until the sessions close, so a later frame brings them back
+ * online. Online/offline transitions are debounced before they are pushed to {@code /user/queue/presence} of the
+ * user's conversation partners, so reconnect flapping is not broadcast.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceService {
+
+    private final ConversationRepository conversationRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${app.chat.presence.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${app.chat.presence.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${app.chat.presence.debounce-ms:2000}")
+    private long debounceMs;
+
+    private final Map<UUID, PresenceEntry> entries = new ConcurrentHashMap<>();
+    // User id -> time of the first unpublished change
+    private final Map<UUID, Long> pendingChanges = new ConcurrentHashMap<>();
+    // Users whose partners were last told they are online
+    private final Set<UUID> publishedOnline = ConcurrentHashMap.newKeySet();
+    private HashedTimingWheel<UUID> expiryWheel;
+
+    @PostConstruct
+    void init() {
+        // One rotation covers the whole TTL so most keys expire on their first visit
+        expiryWheel = new HashedTimingWheel<>(tickMs, (int) Math.max(64, ttlMs / tickMs + 1));
+    }
+
+    @EventListener
+    public void handleSessionConnected(SessionConnectedEvent event) {
+        UUID userId = userIdOf(event);
+        if (userId != null) {
+            connected(userId);
+        }
+    }
+
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        UUID userId = userIdOf(event);
+        if (userId != null) {
+            disconnected(userId);
+        }
+    }
+
+    public void connected(UUID userId) {
+        long now = System.currentTimeMillis();
+        boolean[] cameOnline = new boolean[1];
+        entries.compute(userId, (id, entry) -> {
+            PresenceEntry updated = entry != null ? entry : new PresenceEntry();
+            updated.sessions++;
+            updated.lastSeen = now;
+            cameOnline[0] = !updated.online;
+            updated.online = true;
+            return updated;
+        });
+        if (cameOnline[0]) {
+            expiryWheel.schedule(userId, now + ttlMs);
+            markChanged(userId, now);
+        }
+    }
+
+    public void disconnected(UUID userId) {
+        boolean[] wentOffline = new boolean[1];
+        entries.computeIfPresent(userId, (id, entry) -> {
+            entry.sessions = Math.max(0, entry.sessions - 1);
+            if (entry.sessions > 0) {
+                return entry;
+            }
+            wentOffline[0] = entry.online;
+            entry.online = false;
+            return null;
+        });
+        if (wentOffline[0]) {
+            markChanged(userId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Records activity for a connected user. Called for every inbound frame, so it is a volatile write, plus a
+     * map update only when the user had been expired while a session stayed open.
+     */
+    public void touch(UUID userId) {
+        PresenceEntry entry = entries.get(userId);
+        if (entry == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entry.lastSeen = now;
+        if (!entry.online) {
+            revive(userId, now);
+        }
+    }
+
+    public boolean isOnline(UUID userId) {
+        PresenceEntry entry = entries.get(userId);
+        return entry != null && entry.online;
+    }
+
+    /**
+     * Presence of those of the given users that share a conversation with the caller; other ids are left out
+     */
+    public List<PresenceDto> getPresence(UUID callerId, Collection<UUID> userIds) {
+        Set<UUID> partnerIds = Set.copyOf(conversationRepository.findPartnerIds(callerId));
+        return userIds.stream()
+                .distinct()
+                .filter(partnerIds::contains)
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+
+    public int getOnlineCount() {
+        return (int) entries.values().stream().filter(entry -> entry.online).count();
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.presence.tick-ms:1000}")
+    public void expireSilentUsers() {
+        long now = System.currentTimeMillis();
+        int expired = expiryWheel.advance(now, this::deadlineOf, this::expire);
+        if (expired > 0) {
+            log.debug("Expired presence for {} silent users", expired);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.presence.debounce-ms:2000}")
+    public void publishChanges() {
+        long cutoff = System.currentTimeMillis() - debounceMs;
+        Iterator<Map.Entry<UUID, Long>> iterator = pendingChanges.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Long> change = iterator.next();
+            if (change.getValue() > cutoff) {
+                continue;
+            }
+            iterator.remove();
+
+            UUID userId = change.getKey();
+            boolean online = isOnline(userId);
+            boolean changed = online ? publishedOnline.add(userId) : publishedOnline.remove(userId);
+            if (changed) {
+                publish(userId, online);
+            }
+        }
+    }
+
+    private void publish(UUID userId, boolean online) {
+        PresenceDto presence = toDto(userId);
+        try {
+            for (UUID partnerId : conversationRepository.findPartnerIds(userId)) {
+                // Offline partners fetch presence when they reconnect; don't queue pushes for them
+                if (isOnline(partnerId)) {
+                    // Only the latest state per user matters, so lagging sessions may drop older updates
+                    messagingTemplate.convertAndSendToUser(partnerId.toString(), "/queue/presence", presence,
+                            Map.<String, Object>of(SlowConsumerGuard.COALESCE_KEY_HEADER, userId.toString()));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to publish presence of user {} (online={}): {}", userId, online, e.getMessage());
+        }
+    }
+
+    private long deadlineOf(UUID userId) {
+        PresenceEntry entry = entries.get(userId);
+        return entry != null && entry.online ? entry.lastSeen + ttlMs : -1;
+    }
+
+    private void expire(UUID userId) {
+        long now = System.currentTimeMillis();
+        boolean[] wentOffline = new boolean[1];
+        entries.computeIfPresent(userId, (id, entry) -> {
+            if (!entry.online) {
+                return entry;
+            }
+            // A heartbeat may have landed between the deadline check and here
+            if (now - entry.lastSeen < ttlMs) {
+                expiryWheel.schedule(userId, entry.lastSeen + ttlMs);
+                return entry;
+            }
+            // The sessions may still be open; keep counting them so a later frame or disconnect is not lost
+            entry.online = false;
+            wentOffline[0] = true;
+            return entry;
+        });
+        if (wentOffline[0]) {
+            markChanged(userId, now);
+        }
+    }
+
+    private void revive(UUID userId, long now) {
+        boolean[] cameOnline = new boolean[1];
+        entries.computeIfPresent(userId, (id, entry) -> {
+            cameOnline[0] = !entry.online;
+            entry.online = true;
+            return entry;
+        });
+        if (cameOnline[0]) {
+            expiryWheel.schedule(userId, now + ttlMs);
+            markChanged(userId, now);
+        }
+    }
+
+    private void markChanged(UUID userId, long now) {
+        pendingChanges.putIfAbsent(userId, now);
+    }
+
+    private PresenceDto toDto(UUID userId) {
+        PresenceEntry entry = entries.get(userId);
+        boolean online = entry != null && entry.online;
+        return PresenceDto.builder()
+                .userId(userId)
+                .online(online)
+                .lastSeen(online ? Instant.ofEpochMilli(entry.lastSeen) : null)
+                .build();
+    }
+
+    private UUID userIdOf(AbstractSubProtocolEvent event) {
+        Principal user = event.getUser();
+        if (user == null) {
+            return null;
+        }
+        try {
+            // The session principal name is the user id (see UserPrincipal)
+            return UUID.fromString(user.getName());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final class PresenceEntry {
+        // Only changed inside entries.compute
+        private int sessions;
+        private volatile boolean online;
+        private volatile long lastSeen;
+    }
+}
@@ -1,5 +1,6 @@
 package com.app.merrbioapi.service;
 
+import com.app.merrbioapi.config.CurrentUser;
 import com.app.merrbioapi.exception.InappropriateContentException;
 import com.app.merrbioapi.model.dto.request.ProductCreateMultipartRequest;
 import com.app.merrbioapi.model.dto.request.ProductCreateRequest;
@@ -12,7 +13,7 @@ import com.app.merrbioapi.model.entity.Farmer;
 import com.app.merrbioapi.model.entity.Image;
 import com.app.merrbioapi.model.entity.Product;
 import com.app.merrbioapi.model.entity.ProductCategory;
-import com.app.merrbioapi.model.entity.User;
+import com.app.merrbioapi.model.event.ProductChangedEvent;
 import com.app.merrbioapi.repository.CategoryRepository;
 import com.app.merrbioapi.repository.FarmerRepository;
 import com.app.merrbioapi.repository.ImageRepository;
@@ -20,14 +21,14 @@ import com.app.merrbioapi.repository.ProductCategoryRepository;
 import com.app.merrbioapi.repository.ProductRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.ArrayList;
@@ -45,27 +46,45 @@ public class ProductService {
     private final ImageRepository imageRepository;
     private final FileService fileService;
     private final ImageModerationService imageModerationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
+    // Not transactional: images are moderated before a connection is taken, then saved in one transaction
     public UUID createProductWithImages(ProductCreateMultipartRequest request) {
-        // Get the authenticated user
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String currentUserEmail = authentication.getName();
-
-        // Find the farmer associated with the authenticated user
-        Farmer farmer = farmerRepository.findByUserEmail(currentUserEmail);
-        if (farmer == null) {
+        // The farmer id of the authenticated user comes with the principal
+        UUID farmerId = CurrentUser.farmerId();
+        if (farmerId == null) {
             throw new IllegalArgumentException("No farmer profile found for the current user");
         }
 
+        // Check for inappropriate content in thumbnail
+        ImageModerationService.Verdict thumbnailVerdict = imageModerationService.moderate(request.getThumbnail());
+        if (thumbnailVerdict == ImageModerationService.Verdict.UNSAFE) {
+            throw new InappropriateContentException("The thumbnail image contains inappropriate content");
+        }
+        boolean moderationPending = thumbnailVerdict == ImageModerationService.Verdict.DEFERRED;
+
+        // Check each image for inappropriate content before anything is stored
+        if (request.getImages() != null) {
+            for (MultipartFile imageFile : request.getImages()) {
+                ImageModerationService.Verdict verdict = imageModerationService.moderate(imageFile);
+                if (verdict == ImageModerationService.Verdict.UNSAFE) {
+                    throw new InappropriateContentException("One or more images contain inappropriate content");
+                }
+                moderationPending |= verdict == ImageModerationService.Verdict.DEFERRED;
+            }
+        }
+
+        boolean pending = moderationPending;
+        return transactionTemplate.execute(status -> saveProductWithImages(request, farmerId, pending));
+    }
+
+    private UUID saveProductWithImages(ProductCreateMultipartRequest request, UUID farmerId, boolean moderationPending) {
+        Farmer farmer = farmerRepository.getReferenceById(farmerId);
+
         // Process thumbnail image if provided
         String thumbnailUrl = null;
         if (request.getThumbnail() != null && !request.getThumbnail().isEmpty()) {
-            // Check for inappropriate content in thumbnail
-            if (!imageModerationService.isSafeImage(request.getThumbnail())) {
-                throw new InappropriateContentException("The thumbnail image contains inappropriate content");
-            }
-
             thumbnailUrl = fileService.storeFile(request.getThumbnail());
         }
 
@@ -82,6 +101,7 @@ public class ProductService {
                 .farmer(farmer)
                 .isInStock(true)
                 .thumbnailUrl(thumbnailUrl)
+                .moderationPending(moderationPending)
                 .category(new ArrayList<>())
                 .imageUrls(new ArrayList<>())
                 .build();
@@ -105,14 +125,6 @@ public class ProductService {
         if (request.getImages() != null && !request.getImages().isEmpty()) {
             for (MultipartFile imageFile : request.getImages()) {
                 if (imageFile != null && !imageFile.isEmpty()) {
-                    // Check each image for inappropriate content
-                    if (!imageModerationService.isSafeImage(imageFile)) {
-                        // If inappropriate content is found, delete the product we just created
-                        // and its associated resources
-                        deleteProduct(savedProduct.getId());
-                        throw new InappropriateContentException("One or more images contain inappropriate content");
-                    }
-
                     String imageUrl = fileService.storeFile(imageFile);
                     if (imageUrl != null) {
                         Image image = Image.builder()
@@ -132,7 +144,7 @@ public class ProductService {
 
     @Transactional(readOnly = true)
     public ProductResponse getProductById(UUID productId) {
-        Product product = productRepository.findById(productId)
+        Product product = productRepository.findByIdAndModerationPendingFalse(productId)
                 .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + productId));
 
         return mapToProductResponse(product);
@@ -140,14 +152,14 @@ public class ProductService {
 
     @Transactional(readOnly = true)
     public List<ProductResponse> getAllProducts() {
-        return productRepository.findAll().stream()
+        return productRepository.findByModerationPendingFalse().stream()
                 .map(this::mapToProductResponse)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public List<ProductResponse> getProductsByFarmer(UUID farmerId) {
-        return productRepository.findByFarmerId(farmerId).stream()
+        return productRepository.findByFarmerIdAndModerationPendingFalse(farmerId).stream()
                 .map(this::mapToProductResponse)
                 .collect(Collectors.toList());
     }
@@ -164,12 +176,13 @@ public class ProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + productId));
 
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        Farmer farmer = farmerRepository.findByUserId(currentUser.getId())
-                .orElseThrow(() -> new EntityNotFoundException("Farmer not found for current user"));
+        UUID farmerId = CurrentUser.farmerId();
+        if (farmerId == null) {
+            throw new EntityNotFoundException("Farmer not found for current user");
+        }
 
         // Verify that the current farmer owns this product
-        if (!product.getFarmer().getId().equals(farmer.getId())) {
+        if (!product.getFarmer().getId().equals(farmerId)) {
             throw new SecurityException("You do not have permission to update this product");
         }
 
@@ -215,6 +228,13 @@ public class ProductService {
 
         productRepository.save(product);
 
+        // Live product topics only carry price and availability
+        if (request.getPrice() != null || request.getIsInStock() != null || request.getMaxAvailableQuantity() != null
+                || request.getMinimumOrderQuantity() != null) {
+            eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), product.getPrice(),
+                    product.getIsInStock(), product.getMaxAvailableQuantity(), product.getMinimumOrderQuantity(), false));
+        }
+
         if (request.getCategoryIds() != null) {
             productCategoryRepository.deleteByProductId(product.getId());
 
@@ -235,12 +255,13 @@ public class ProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + productId));
 
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        Farmer farmer = farmerRepository.findByUserId(currentUser.getId())
-                .orElseThrow(() -> new EntityNotFoundException("Farmer not found for current user"));
+        UUID farmerId = CurrentUser.farmerId();
+        if (farmerId == null) {
+            throw new EntityNotFoundException("Farmer not found for current user");
+        }
 
         // Verify that the current farmer owns this product
-        if (!product.getFarmer().getId().equals(farmer.getId())) {
+        if (!product.getFarmer().getId().equals(farmerId)) {
             throw new SecurityException("You do not have permission to delete this product");
         }
 
@@ -259,6 +280,43 @@ public class ProductService {
         // productCategoryRepository.deleteByProductId(productId);
 
         productRepository.delete(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), product.getPrice(),
+                false, product.getMaxAvailableQuantity(), product.getMinimumOrderQuantity(), true));
+    }
+
+    /**
+     * URLs of the thumbnail and images of a product, for checking them after the fact
+     */
+    @Transactional(readOnly = true)
+    public List<String> getStoredImageUrls(UUID productId) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + productId));
+        List<String> urls = new ArrayList<>();
+        if (product.getThumbnailUrl() != null) {
+            urls.add(product.getThumbnailUrl());
+        }
+        imageRepository.findByProductId(productId).forEach(image -> urls.add(image.getImageUrl()));
+        return urls;
+    }
+
+    @Transactional
+    public void completeModeration(UUID productId) {
+        productRepository.findById(productId).ifPresent(product -> product.setModerationPending(false));
+    }
+
+    /**
+     * Deletes a product whose images failed a deferred moderation check, along with the stored files
+     */
+    @Transactional
+    public void removeUnsafeProduct(UUID productId) {
+        Product product = productRepository.findById(productId).orElse(null);
+        if (product == null) {
+            return;
+        }
+        getStoredImageUrls(productId).forEach(fileService::deleteFile);
+        productRepository.delete(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), product.getPrice(),
+                false, product.getMaxAvailableQuantity(), product.getMinimumOrderQuantity(), true));
     }
 
     @Transactional(readOnly = true)
@@ -0,0 +1,148 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.config.SlowConsumerGuard;
+import com.app.merrbioapi.model.dto.response.ProductChangeResponse;
+import com.app.merrbioapi.model.event.ProductChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes price and availability changes to {@code /topic/products/{id}} so product and basket views no longer
+ * poll the product endpoint.
+ * <p>
+ * A registry fed by subscribe events counts the watchers of each product topic; topics nobody watches are
+ * dropped and changes to them are discarded straight away. Changes to watched products are coalesced, so only
+ * the latest state of each product is sent once per flush interval.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductTopicService {
+
+    public static final String TOPIC_PREFIX = "/topic/products/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    // The watcher registry only sees this node's sessions; clustered brokers always get the change
+    @Value("${app.websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    // Counts only change inside the map's atomic operations, so a watch cannot land on a count being removed
+    private final Map<UUID, Integer> watchers = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, UUID>> subscriptionsBySession = new ConcurrentHashMap<>();
+    private final Map<UUID, ProductChangeResponse> pending = new ConcurrentHashMap<>();
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void handleProductChanged(ProductChangedEvent event) {
+        if (isSingleNode() && !watchers.containsKey(event.getProductId())) {
+            return;
+        }
+        pending.put(event.getProductId(), ProductChangeResponse.builder()
+                .productId(event.getProductId())
+                .price(event.getPrice())
+                .isInStock(event.getInStock())
+                .availableQuantity(event.getAvailableQuantity())
+                .minimumOrderQuantity(event.getMinimumOrderQuantity())
+                .deleted(event.isDeleted())
+                .updatedAt(Instant.now())
+                .build());
+    }
+
+    @Scheduled(fixedDelayString = "${app.products.topics.flush-ms:500}")
+    public void flush() {
+        for (UUID productId : Set.copyOf(pending.keySet())) {
+            ProductChangeResponse change = pending.remove(productId);
+            if (change == null) {
+                continue;
+            }
+            try {
+                messagingTemplate.convertAndSend(TOPIC_PREFIX + productId, change,
+                        Map.<String, Object>of(SlowConsumerGuard.COALESCE_KEY_HEADER, productId.toString()));
+            } catch (Exception e) {
+                log.warn("Failed to publish change of product {}: {}", productId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Number of product topics with at least one watcher on this node
+     */
+    public int getWatchedProductCount() {
+        return watchers.size();
+    }
+
+    @EventListener
+    public void handleSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        UUID productId = productIdOf(accessor.getDestination());
+        if (productId == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        UUID previous = subscriptionsBySession
+                .computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), productId);
+        if (previous != null) {
+            unwatch(previous);
+        }
+        watchers.merge(productId, 1, Integer::sum);
+    }
+
+    @EventListener
+    public void handleUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, UUID> subscriptions = accessor.getSessionId() != null
+                ? subscriptionsBySession.get(accessor.getSessionId())
+                : null;
+        if (subscriptions == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        UUID productId = subscriptions.remove(accessor.getSubscriptionId());
+        if (productId != null) {
+            unwatch(productId);
+        }
+    }
+
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        Map<String, UUID> subscriptions = subscriptionsBySession.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::unwatch);
+        }
+    }
+
+    private void unwatch(UUID productId) {
+        watchers.computeIfPresent(productId, (id, count) -> count <= 1 ? null : count - 1);
+    }
+
+    private UUID productIdOf(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return null;
+        }
+        try {
+            return UUID.fromString(destination.substring(TOPIC_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean isSingleNode() {
+        return "simple".equals(brokerMode);
+    }
+}
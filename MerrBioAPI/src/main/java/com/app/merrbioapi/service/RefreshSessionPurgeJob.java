@@ -0,0 +1,102 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.config.JwtService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Incremental purge of refresh token sessions that can no longer be used: expired ones, and revoked ones whose
+ * access tokens have all expired.
+ * <p>
+ * Each tick purges one primary key range of at most {@code batch-size} rows in its own short transaction through
+ * {@link RefreshTokenService#purgeBatch}, and remembers where it stopped. The pause between ticks paces the
+ * purge so logins and refreshes never queue behind it, without holding a scheduler thread while waiting. Once
+ * a pass reaches the end of the table the next one starts after the pass interval.
+ */
+@Component
+@Slf4j
+public class RefreshSessionPurgeJob {
+
+    private final RefreshTokenService refreshTokenService;
+    private final JwtService jwtService;
+
+    @Value("${app.security.session-purge.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.security.session-purge.pass-interval-ms:3600000}")
+    private long passIntervalMs;
+
+    private UUID cursor;
+    private boolean passRunning;
+    private long nextPassAt;
+    private long passPurged;
+    private final AtomicLong passScanned = new AtomicLong();
+
+    private final Counter purgedSessions;
+    private final Counter scannedSessions;
+    private final Timer batchTimer;
+
+    public RefreshSessionPurgeJob(RefreshTokenService refreshTokenService, JwtService jwtService, MeterRegistry meterRegistry) {
+        this.refreshTokenService = refreshTokenService;
+        this.jwtService = jwtService;
+        this.purgedSessions = Counter.builder("security.sessions.purge.deleted")
+                .description("Expired or revoked refresh token sessions deleted")
+                .register(meterRegistry);
+        this.scannedSessions = Counter.builder("security.sessions.purge.scanned")
+                .description("Refresh token sessions visited by the purge")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("security.sessions.purge.batch")
+                .description("Time to purge one primary key range of refresh token sessions")
+                .register(meterRegistry);
+        Gauge.builder("security.sessions.purge.pass.scanned", passScanned, AtomicLong::get)
+                .description("Sessions visited so far by the current purge pass")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.session-purge.pause-ms:1000}")
+    public void purgeNextBatch() {
+        if (!passRunning) {
+            if (System.currentTimeMillis() < nextPassAt) {
+                return;
+            }
+            passRunning = true;
+            passPurged = 0;
+            passScanned.set(0);
+        }
+
+        // A revoked session can be dropped once no access token issued for it is still alive
+        Instant revokedBefore = Instant.now().minusMillis(jwtService.getAccessTokenExpiration());
+        RefreshTokenService.PurgeBatch batch;
+        try {
+            batch = batchTimer.recordCallable(() -> refreshTokenService.purgeBatch(cursor, batchSize, revokedBefore));
+        } catch (Exception e) {
+            // Retried from the same position on the next tick
+            log.warn("Refresh session purge batch after {} failed: {}", cursor, e.getMessage());
+            return;
+        }
+
+        scannedSessions.increment(batch.scanned());
+        purgedSessions.increment(batch.purged());
+        passScanned.addAndGet(batch.scanned());
+        passPurged += batch.purged();
+
+        if (batch.scanned() < batchSize) {
+            log.info("Purged {} of {} refresh token sessions", passPurged, passScanned.get());
+            cursor = null;
+            passRunning = false;
+            nextPassAt = System.currentTimeMillis() + passIntervalMs;
+        } else {
+            cursor = batch.lastId();
+        }
+    }
+}
@@ -1,122 +1,208 @@
 package com.app.merrbioapi.service;
 
 import com.app.merrbioapi.config.JwtService;
+import com.app.merrbioapi.config.TokenDenylist;
 import com.app.merrbioapi.exception.TokenNotFoundException;
 import com.app.merrbioapi.exception.TokenRefreshException;
 import com.app.merrbioapi.model.entity.RefreshToken;
 import com.app.merrbioapi.model.entity.User;
 import com.app.merrbioapi.repository.RefreshTokenRepository;
+import com.app.merrbioapi.repository.SessionCounterRepository;
 import com.app.merrbioapi.repository.UserRepository;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.time.Instant;
-import java.util.Comparator;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-
+/**
+ * Refresh token sessions.
+ * <p>
+ * Tokens are 256 random bits and only their SHA-256 digest is stored, so lookups go through a fixed-width unique
+ * index and a leaked table holds no usable tokens. A per-user counter of unrevoked sessions enforces the session
+ * cap without loading the user's sessions; new sessions of one user are created under the counter's row lock, so
+ * concurrent logins cannot both take the last slot or both evict the same session. Rotation revokes the presented session
+ * with a conditional update and inserts its successor in the same transaction, so a token can be used once.
+ */
 @Service
 public class RefreshTokenService {
     private static final int MAX_ACTIVE_SESSIONS_PER_USER = 5;
+    private static final int TOKEN_BYTES = 32;
+
     private final RefreshTokenRepository refreshTokenRepository;
+    private final SessionCounterRepository sessionCounterRepository;
     private final UserRepository userRepository;
     private final JwtService jwtService;
+    private final UserPrincipalService userPrincipalService;
+    private final TokenDenylist tokenDenylist;
+    private final SecureRandom secureRandom = new SecureRandom();
 
-    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository, JwtService jwtService) {
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, SessionCounterRepository sessionCounterRepository,
+                               UserRepository userRepository, JwtService jwtService, UserPrincipalService userPrincipalService,
+                               TokenDenylist tokenDenylist) {
         this.refreshTokenRepository = refreshTokenRepository;
+        this.sessionCounterRepository = sessionCounterRepository;
         this.userRepository = userRepository;
         this.jwtService = jwtService;
+        this.userPrincipalService = userPrincipalService;
+        this.tokenDenylist = tokenDenylist;
     }
 
     public Optional<RefreshToken> findByToken(String token) {
-        return refreshTokenRepository.findByToken(token);
+        return refreshTokenRepository.findByTokenHash(hash(token));
     }
 
+    /**
+     * Opens a new session for the user. At the session cap the user's oldest session is revoked to make room,
+     * and the access tokens issued for it stop working as they do on logout.
+     */
     @Transactional
-    public RefreshToken createRefreshToken(String userEmail) {
-        User user = userRepository.findByEmail(userEmail);
-
-        if (user == null) {
-            throw new RuntimeException("User not found with email: " + userEmail);
+    public RefreshToken createRefreshToken(UUID userId) {
+        sessionCounterRepository.createIfAbsent(userId);
+        sessionCounterRepository.findByIdForUpdate(userId)
+                .orElseThrow(() -> new IllegalStateException("Session counter missing for user " + userId));
+
+        if (sessionCounterRepository.tryAcquire(userId, MAX_ACTIVE_SESSIONS_PER_USER) == 0) {
+            // At the cap: one session out, one in, so the count stays as it is
+            for (UUID oldest : refreshTokenRepository.findOldestActiveIds(userId, PageRequest.of(0, 1))) {
+                if (refreshTokenRepository.revokeById(oldest, Instant.now()) == 1) {
+                    tokenDenylist.revokeSession(oldest);
+                }
+            }
         }
+        return insert(userRepository.getReferenceById(userId));
+    }
 
-        List<RefreshToken> activeTokens = refreshTokenRepository.findActiveTokensByUser(user, Instant.now());
-        if (activeTokens.size() >= MAX_ACTIVE_SESSIONS_PER_USER) {
-            activeTokens.stream()
-                    .min(Comparator.comparing(RefreshToken::getCreatedAt))
-                    .ifPresent(token -> {
-                        token.setRevoked(true);
-                        refreshTokenRepository.save(token);
-                    });
-        }
-
-        String refreshTokenString = UUID.randomUUID().toString();
-
-        RefreshToken refreshToken = RefreshToken.builder()
-                .user(user)
-                .token(refreshTokenString)
-                .expiryDate(Instant.now().plusMillis(jwtService.getRefreshTokenExpiration()))
-                .revoked(false)
-                .build();
+    /**
+     * Exchanges a valid refresh token for a new session of the same user
+     */
+    @Transactional
+    public RefreshToken rotate(String token) {
+        RefreshToken current = findByToken(token)
+                .orElseThrow(() -> new TokenRefreshException(token, "Refresh token not found in database"));
 
-        return refreshTokenRepository.save(refreshToken);
+        // Revoked only if still valid, so a replayed or concurrently used token loses here
+        if (refreshTokenRepository.consume(current.getId(), Instant.now()) == 0) {
+            throw invalid(token, current);
+        }
+        return insert(current.getUser());
     }
 
     @Transactional
     public String refreshAccessToken(String refreshToken) {
         return findByToken(refreshToken)
                 .map(this::verifyExpiration)
-                .map(RefreshToken::getUser)
-                .map(jwtService::generateAccessToken)
+                .flatMap(token -> userPrincipalService.load(token.getUser().getEmail())
+                        .map(principal -> jwtService.generateAccessToken(principal, token.getId())))
                 .orElseThrow(() -> new TokenRefreshException(refreshToken, "Refresh token not found in database"));
     }
 
     @Transactional
     public RefreshToken verifyExpiration(RefreshToken token) {
-        if (token.isExpired()) {
-            refreshTokenRepository.delete(token);
-            throw new TokenRefreshException(token.getToken(), "Refresh token was expired. Please make a new sign in request");
-        }
-
-        if (token.isRevoked()) {
-            throw new TokenRefreshException(token.getToken(), "Refresh token was revoked. Please make a new sign in request");
+        if (!token.isValid()) {
+            throw invalid(token.getId().toString(), token);
         }
-
         return token;
     }
 
     @Transactional
     public void revokeRefreshToken(String token) {
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(token)
+        RefreshToken refreshToken = findByToken(token)
                 .orElseThrow(() -> new TokenRefreshException(token, "Refresh token not found"));
-
-        refreshToken.setRevoked(true);
-        refreshTokenRepository.save(refreshToken);
+        revoke(refreshToken);
     }
 
     @Transactional
     public void revokeTokenById(UUID tokenId) {
         RefreshToken refreshToken = refreshTokenRepository.findById(tokenId)
                 .orElseThrow(() -> new TokenNotFoundException("Refresh token not found with id: " + tokenId));
-
-        refreshToken.setRevoked(true);
-        refreshTokenRepository.save(refreshToken);
+        revoke(refreshToken);
     }
+
     @Transactional
     public void revokeAllUserTokens(User user) {
-        refreshTokenRepository.revokeAllUserTokens(user);
+        refreshTokenRepository.revokeAllUserTokens(user, Instant.now());
+        sessionCounterRepository.reset(user.getId());
     }
 
     public List<RefreshToken> getActiveTokensByUser(User user) {
         return refreshTokenRepository.findActiveTokensByUser(user, Instant.now());
     }
 
-    @Scheduled(cron = "0 0 0 * * ?")
+    /**
+     * Deletes the purgeable sessions among the next {@code batchSize} ids after {@code after}, or from the start of
+     * the table when it is null. Only that primary key range is locked, and only for this short transaction.
+     */
     @Transactional
-    public void cleanupExpiredTokens() {
-        refreshTokenRepository.deleteAllExpiredTokens(Instant.now());
+    public PurgeBatch purgeBatch(UUID after, int batchSize, Instant revokedBefore) {
+        PageRequest page = PageRequest.of(0, batchSize);
+        List<UUID> ids = after == null
+                ? refreshTokenRepository.findIds(page)
+                : refreshTokenRepository.findIdsAfter(after, page);
+        if (ids.isEmpty()) {
+            return new PurgeBatch(null, 0, 0);
+        }
+
+        UUID from = ids.get(0);
+        UUID to = ids.get(ids.size() - 1);
+        Instant now = Instant.now();
+        List<UUID> userIds = refreshTokenRepository.findPurgeableUserIds(from, to, now, revokedBefore);
+        if (userIds.isEmpty()) {
+            return new PurgeBatch(to, ids.size(), 0);
+        }
+        int purged = refreshTokenRepository.deletePurgeable(from, to, now, revokedBefore);
+        // Expired sessions were still counted until deleted
+        sessionCounterRepository.recount(userIds);
+        return new PurgeBatch(to, ids.size(), purged);
+    }
+
+    /**
+     * Outcome of one purge batch: the last id scanned, how many ids were scanned and how many sessions deleted
+     */
+    public record PurgeBatch(UUID lastId, int scanned, int purged) {
+    }
+
+    private RefreshToken insert(User user) {
+        byte[] tokenBytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(tokenBytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+
+        RefreshToken refreshToken = RefreshToken.builder()
+                .user(user)
+                .tokenHash(hash(token))
+                .token(token)
+                .expiryDate(Instant.now().plusMillis(jwtService.getRefreshTokenExpiration()))
+                .revoked(false)
+                .build();
+
+        return refreshTokenRepository.save(refreshToken);
+    }
+
+    private void revoke(RefreshToken refreshToken) {
+        if (refreshTokenRepository.revokeById(refreshToken.getId(), Instant.now()) == 1) {
+            sessionCounterRepository.release(refreshToken.getUser().getId());
+        }
+    }
+
+    private TokenRefreshException invalid(String token, RefreshToken refreshToken) {
+        return refreshToken.isRevoked()
+                ? new TokenRefreshException(token, "Refresh token was revoked. Please make a new sign in request")
+                : new TokenRefreshException(token, "Refresh token was expired. Please make a new sign in request");
+    }
+
+    private static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
-}
\ No newline at end of file
+}
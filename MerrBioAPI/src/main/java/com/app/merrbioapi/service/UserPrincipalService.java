@@ -0,0 +1,67 @@
+package com.app.merrbioapi.service;
+
+import com.app.merrbioapi.config.UserPrincipal;
+import com.app.merrbioapi.model.event.UserChangedEvent;
+import com.app.merrbioapi.repository.UserRepository;
+import com.app.merrbioapi.util.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+
+/**
+ * Resolves {@link UserPrincipal}s from the database for the few places that must check current user state:
+ * issuing tokens, STOMP CONNECT and access tokens issued before they carried identity claims.
+ * <p>
+ * The principal is read with a single projection query. Lookups by email go through a {@link BoundedTtlCache}
+ * whose entries live for the TTL and are dropped once the transaction that published a {@link UserChangedEvent}
+ * for their user commits.
+ */
+@Service
+public class UserPrincipalService {
+
+    private final UserRepository userRepository;
+    private final BoundedTtlCache<String, UserPrincipal> principalsByEmail;
+    private final long ttlMs;
+
+    public UserPrincipalService(UserRepository userRepository,
+                                @Value("${app.security.principal-cache.size:10000}") int cacheSize,
+                                @Value("${app.security.principal-cache.ttl-ms:300000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.principalsByEmail = new BoundedTtlCache<>(cacheSize);
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Loads the principal from the database and refreshes the cached copy
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserPrincipal> load(String email) {
+        Optional<UserPrincipal> principal = userRepository.findPrincipalByEmail(email);
+        long now = System.currentTimeMillis();
+        principal.ifPresentOrElse(
+                loaded -> principalsByEmail.put(email, loaded, now + ttlMs, now),
+                () -> principalsByEmail.remove(email));
+        return principal;
+    }
+
+    /**
+     * Returns the cached principal if it is still fresh, otherwise loads it
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserPrincipal> get(String email) {
+        UserPrincipal cached = principalsByEmail.get(email, System.currentTimeMillis());
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return load(email);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleUserChanged(UserChangedEvent event) {
+        principalsByEmail.removeValues(principal -> principal.getUserId().equals(event.getUserId()));
+    }
+}
@@ -1,63 +1,57 @@
 package com.app.merrbioapi.service;
 
 import com.app.merrbioapi.model.dto.response.UserProfileResponse;
-import com.app.merrbioapi.model.entity.Farmer;
-import com.app.merrbioapi.model.entity.User;
-import com.app.merrbioapi.model.entity.UserInfo;
-import com.app.merrbioapi.model.enums.Role;
-import com.app.merrbioapi.repository.FarmerRepository;
-import com.app.merrbioapi.repository.UserInfoRepository;
+import com.app.merrbioapi.model.event.UserChangedEvent;
 import com.app.merrbioapi.repository.UserRepository;
-import jakarta.persistence.EntityNotFoundException; // Or use custom exception
-import lombok.RequiredArgsConstructor;
+import com.app.merrbioapi.util.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * User profiles, read with one projection query over user, info and farm.
+ * <p>
+ * Profiles by id go through a {@link BoundedTtlCache}, which also serves display names for chat. Entries live
+ * for the TTL and are dropped once the transaction that wrote the user's info or farm, and published a
+ * {@link UserChangedEvent} for it, commits.
+ */
 @Service
-@RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
-    private final UserInfoRepository userInfoRepository;
-    private final FarmerRepository farmerRepository;
-    @Transactional(readOnly = true)
-    public UserProfileResponse getUserProfileById(UUID userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with ID: " + userId));
-
-        UserInfo userInfo = userInfoRepository.findByUserId(userId)
-                .orElseThrow(() -> new EntityNotFoundException("UserInfo not found for user ID: " + userId));
+    private final BoundedTtlCache<UUID, UserProfileResponse> profilesById;
+    private final long ttlMs;
 
-        UserProfileResponse.UserProfileResponseBuilder profileBuilder = UserProfileResponse.builder()
-                .id(user.getId())
-                .email(user.getEmail())
-                .role(user.getRole())
-                .firstName(userInfo.getFirstName())
-                .lastName(userInfo.getLastName())
-                .birthDate(userInfo.getBirthDate())
-                .phoneNumber(userInfo.getPhoneNumber())
-                .gender(userInfo.getGender());
+    public UserService(UserRepository userRepository,
+                       @Value("${app.users.profile-cache.size:10000}") int cacheSize,
+                       @Value("${app.users.profile-cache.ttl-ms:300000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.profilesById = new BoundedTtlCache<>(cacheSize);
+        this.ttlMs = ttlMs;
+    }
 
-        if (user.getRole() == Role.FARMER) {
-            Farmer farmer = farmerRepository.findByUserId(userId)
-                    .orElseThrow(() -> new EntityNotFoundException("Farmer details not found for user ID: " + userId));
-            profileBuilder
-                    .farmName(farmer.getFarmName())
-                    .farmLocation(farmer.getFarmLocation())
-                    .bio(farmer.getBio())
-                    .isVerified(farmer.getIsVerified());
-        }
+    // Not transactional: a cache hit needs no connection, and a miss is a single query
+    public UserProfileResponse getUserProfileById(UUID userId) {
+        return findProfile(userId)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with ID: " + userId));
+    }
 
-        return profileBuilder.build();
+    /**
+     * Returns the user's full name, or null if the user has no profile
+     */
+    public String getDisplayName(UUID userId) {
+        return findProfile(userId)
+                .map(profile -> profile.getFirstName() + " " + profile.getLastName())
+                .orElse(null);
     }
 
     public Page<UserProfileResponse> getUsers(Integer page, Integer size, String search) {
@@ -69,24 +63,24 @@ public class UserService {
         Sort sort = Sort.by(Sort.Direction.DESC, "createdAt");
         Pageable pageable = PageRequest.of(pageNumber, pageSize, sort);
 
-        Page<User> usersPage = userRepository.findBySearchTerm(search, pageable);
-
-        return usersPage.map(this::mapToUserProfileResponse);
+        return userRepository.findProfilesBySearchTerm(search, pageable);
     }
 
-    private UserProfileResponse mapToUserProfileResponse(User user) {
-        // Implement mapping logic from User to UserProfileResponse
-        UserInfo userInfo = user.getUserInfo();
-        return UserProfileResponse.builder()
-                .id(user.getId())
-                .email(user.getEmail())
-                .firstName(userInfo.getFirstName())
-                .lastName(userInfo.getLastName())
-                .birthDate(userInfo.getBirthDate())
-                .phoneNumber(userInfo.getPhoneNumber())
-                .gender(userInfo.getGender())
-                .role(user.getRole())
-                .build();
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleUserChanged(UserChangedEvent event) {
+        profilesById.remove(event.getUserId());
     }
 
-}
\ No newline at end of file
+    private Optional<UserProfileResponse> findProfile(UUID userId) {
+        long now = System.currentTimeMillis();
+        UserProfileResponse cached = profilesById.get(userId, now);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<UserProfileResponse> profile = userRepository.findProfileById(userId);
+        profile.ifPresentOrElse(
+                loaded -> profilesById.put(userId, loaded, now + ttlMs, now),
+                () -> profilesById.remove(userId));
+        return profile;
+    }
+}
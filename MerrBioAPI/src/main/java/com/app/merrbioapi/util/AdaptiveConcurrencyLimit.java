@@ -0,0 +1,102 @@
+package com.app.merrbioapi.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-flight request limit that adapts to measured latency (additive increase, multiplicative decrease).
+ * <p>
+ * The limiter tracks a baseline latency, which is the lowest recent latency and drifts slowly upward so it
+ * follows real changes. A request that completes within {@code tolerance} times the baseline, while the limit is
+ * actually in use, raises the limit by one. A slower or failed request cuts the limit by the backoff ratio. That
+ * cut happens at most once per observed latency, so one slow burst does not collapse the limit. Callers can reserve
+ * headroom: a caller asking for a share below 1 is admitted only while in-flight requests stay under that fraction
+ * of the limit.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    // How fast the baseline follows latencies above it; low, so a slow period does not become the new normal
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double baselineNanos = Double.NaN;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double tolerance) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < minLimit <= maxLimit");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1 || tolerance < 1) {
+            throw new IllegalArgumentException("backoffRatio must be in (0, 1) and tolerance at least 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes an in-flight slot if fewer than {@code share} of the current limit are in use
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a slot without a latency sample, e.g. when the request was refused elsewhere
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Returns a slot and adjusts the limit from the request's latency
+     *
+     * @param dropped whether the request failed in a way that suggests overload, e.g. a timeout or a 5xx
+     */
+    public void release(long startNanos, long endNanos, boolean dropped) {
+        int wasInFlight = inFlight.getAndDecrement();
+        long latency = endNanos - startNanos;
+        synchronized (this) {
+            if (Double.isNaN(baselineNanos) || latency < baselineNanos) {
+                baselineNanos = latency;
+            } else {
+                baselineNanos += (latency - baselineNanos) * BASELINE_DRIFT;
+            }
+
+            if (dropped || latency > baselineNanos * tolerance) {
+                // Requests started before the last cut still report the old latency
+                if (endNanos - lastDecreaseNanos > latency) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = endNanos;
+                }
+            } else if (wasInFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
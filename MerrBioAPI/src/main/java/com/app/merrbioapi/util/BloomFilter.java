@@ -0,0 +1,66 @@
+package com.app.merrbioapi.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over 128-bit keys such as UUIDs.
+ * <p>
+ * The bit array is sized from the expected number of keys and the acceptable false positive rate. Probe
+ * positions are derived from the two halves of the key by double hashing, so a lookup allocates nothing and
+ * reads at most one word per probe. {@link #add} is safe from any thread and immediately visible to readers.
+ * Keys cannot be removed; owners build a fresh filter once enough keys have gone.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(int expectedKeys, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        int keys = Math.max(1, expectedKeys);
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-keys * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / keys * ln2));
+    }
+
+    public void add(long high, long low) {
+        long hash1 = mix(high);
+        long hash2 = mix(low ^ hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            long mask = 1L << bit;
+            words.getAndAccumulate((int) (bit >>> 6), mask, (word, value) -> word | value);
+        }
+    }
+
+    /**
+     * Whether the key may have been added. False means it certainly was not.
+     */
+    public boolean mightContain(long high, long low) {
+        long hash1 = mix(high);
+        long hash2 = mix(low ^ hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb3fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,104 @@
+package com.app.merrbioapi.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Size-bounded cache whose entries expire at a given time.
+ * <p>
+ * Reads are a plain concurrent map lookup plus a timestamp write, so a hit never blocks. Expired entries are
+ * dropped when they are read. A put into a full cache evicts from a small sample of entries instead of scanning
+ * the whole map: the expired entries of the sample if there are any, otherwise the least recently read one, like
+ * an approximate LRU. The size can overshoot the bound by the number of concurrent puts.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    public BoundedTtlCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached value, or null if there is none or it has expired
+     */
+    public V get(K key, long nowMillis) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= nowMillis) {
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.lastRead = nowMillis;
+        return entry.value;
+    }
+
+    public void put(K key, V value, long expiresAtMillis, long nowMillis) {
+        if (expiresAtMillis <= nowMillis) {
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            evict(nowMillis);
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis, nowMillis));
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Drops every entry whose value matches, e.g. all entries of one user. This scans the cache.
+     */
+    public void removeValues(Predicate<V> predicate) {
+        entries.values().removeIf(entry -> predicate.test(entry.value));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(long nowMillis) {
+        // Hash order is effectively random, so the first few entries are a fair sample
+        K oldestKey = null;
+        long oldestRead = Long.MAX_VALUE;
+        boolean removedExpired = false;
+        Iterator<Map.Entry<K, Entry<V>>> sample = entries.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLE && sample.hasNext(); i++) {
+            Map.Entry<K, Entry<V>> candidate = sample.next();
+            Entry<V> entry = candidate.getValue();
+            if (entry.expiresAt <= nowMillis) {
+                sample.remove();
+                removedExpired = true;
+            } else if (entry.lastRead < oldestRead) {
+                oldestRead = entry.lastRead;
+                oldestKey = candidate.getKey();
+            }
+        }
+        if (!removedExpired && oldestKey != null) {
+            entries.remove(oldestKey);
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+        volatile long lastRead;
+
+        Entry(V value, long expiresAt, long lastRead) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.lastRead = lastRead;
+        }
+    }
+}
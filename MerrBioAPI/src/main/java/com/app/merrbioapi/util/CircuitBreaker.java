@@ -0,0 +1,146 @@
+package com.app.merrbioapi.util;
+
+/**
+ * Count-based circuit breaker with half-open probing.
+ * <p>
+ * While closed, the outcomes of the last {@code windowSize} calls are kept in a ring. Once at least
+ * {@code minimumCalls} are recorded and the failure rate reaches the threshold, the breaker opens and refuses
+ * calls for the open duration. It then lets {@code probes} calls through: if they all succeed it closes with a
+ * clean window, and the first failure opens it again.
+ * <p>
+ * Every state change starts a new generation, and a permission carries the generation it was issued in. Outcomes
+ * and releases are only applied to the generation they belong to, so a slow call that was let through before the
+ * breaker opened cannot count as a probe, or reopen a breaker that has closed again in the meantime.
+ */
+public class CircuitBreaker {
+
+    /**
+     * Returned by {@link #tryAcquire} when the call is refused
+     */
+    public static final long REFUSED = -1;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean[] failed;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int probes;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private int next;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private int probesIssued;
+    private int probeSuccesses;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openNanos, int probes) {
+        if (windowSize <= 0 || probes <= 0) {
+            throw new IllegalArgumentException("windowSize and probes must be positive");
+        }
+        this.failed = new boolean[windowSize];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openNanos;
+        this.probes = probes;
+    }
+
+    /**
+     * Asks whether a call may go ahead. The returned permit has to be passed back with the call's outcome, or
+     * with {@link #release} if the permission ends up unused.
+     *
+     * @return the permit, or {@link #REFUSED}
+     */
+    public synchronized long tryAcquire(long nowNanos) {
+        if (state == State.OPEN) {
+            if (nowNanos - openedAt < openNanos) {
+                return REFUSED;
+            }
+            transition(State.HALF_OPEN);
+            probesIssued = 0;
+            probeSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesIssued >= probes) {
+                return REFUSED;
+            }
+            probesIssued++;
+        }
+        return generation;
+    }
+
+    public synchronized void release(long permit) {
+        if (permit == generation && state == State.HALF_OPEN && probesIssued > 0) {
+            probesIssued--;
+        }
+    }
+
+    public synchronized void onSuccess(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (++probeSuccesses >= probes) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure(long permit, long nowNanos) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            open(nowNanos);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                open(nowNanos);
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == failed.length) {
+            if (failed[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        failed[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % failed.length;
+    }
+
+    private void open(long nowNanos) {
+        transition(State.OPEN);
+        openedAt = nowNanos;
+    }
+
+    private void close() {
+        transition(State.CLOSED);
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    private void transition(State target) {
+        state = target;
+        generation++;
+    }
+}
@@ -0,0 +1,102 @@
+package com.app.merrbioapi.util;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hashed timing wheel for expiring large numbers of keys cheaply.
+ * <p>
+ * Keys are hashed into buckets by the tick of their deadline. The wheel does not store deadlines itself:
+ * when a bucket comes due, the owner is asked for the key's current deadline. Extending a deadline (for
+ * example on a heartbeat) is therefore just a field write on the owner's side, and keys whose deadline
+ * moved are re-bucketed lazily. {@link #schedule} is safe to call from any thread; {@link #advance} is
+ * meant to be driven by a single scheduler thread.
+ */
+public class HashedTimingWheel<K> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final Set<K>[] buckets;
+    private long currentTick = -1;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.buckets = new Set[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = ConcurrentHashMap.newKeySet();
+        }
+    }
+
+    /**
+     * Tracks {@code key} until {@code deadlineMillis}. Scheduling a key that is already tracked is harmless.
+     */
+    public void schedule(K key, long deadlineMillis) {
+        buckets[bucketIndex(deadlineMillis)].add(key);
+    }
+
+    /**
+     * Processes every tick up to {@code nowMillis}.
+     *
+     * @param deadlineOf returns the key's current deadline, or a negative value if it is no longer tracked
+     * @param onExpire   called for each key whose deadline has passed; the key is dropped from the wheel
+     * @return the number of expired keys
+     */
+    public synchronized int advance(long nowMillis, ToLongFunction<K> deadlineOf, Consumer<K> onExpire) {
+        long targetTick = nowMillis / tickMillis;
+        if (currentTick < 0) {
+            // First run: visit a full rotation so keys scheduled before it are not skipped
+            currentTick = targetTick - buckets.length;
+        }
+
+        // After a long pause one full rotation is enough to visit every bucket
+        long fromTick = Math.max(currentTick + 1, targetTick - buckets.length + 1);
+        int expired = 0;
+
+        for (long tick = fromTick; tick <= targetTick; tick++) {
+            int index = (int) (tick & mask);
+            Iterator<K> iterator = buckets[index].iterator();
+            while (iterator.hasNext()) {
+                K key = iterator.next();
+                long deadline = deadlineOf.applyAsLong(key);
+                if (deadline < 0) {
+                    iterator.remove();
+                } else if (deadline <= nowMillis) {
+                    iterator.remove();
+                    onExpire.accept(key);
+                    expired++;
+                } else {
+                    int target = bucketIndex(deadline);
+                    if (target != index) {
+                        iterator.remove();
+                        buckets[target].add(key);
+                    }
+                    // Same bucket means the deadline is a later rotation; look again next time round
+                }
+            }
+        }
+
+        currentTick = targetTick;
+        return expired;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Set<K> bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private int bucketIndex(long deadlineMillis) {
+        return (int) ((deadlineMillis / tickMillis) & mask);
+    }
+}
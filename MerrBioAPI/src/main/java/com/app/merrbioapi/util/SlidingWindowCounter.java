@@ -0,0 +1,77 @@
+package com.app.merrbioapi.util;
+
+/**
+ * Approximate sliding window event counter.
+ * <p>
+ * Keeps the counts of the current and the previous fixed window and weighs the previous one by how much of it
+ * still overlaps the sliding window. Two ints per key instead of one timestamp per event, at the cost of
+ * assuming events were spread evenly over the previous window.
+ */
+public class SlidingWindowCounter {
+
+    private final long windowMillis;
+    private long windowStart;
+    private int previous;
+    private int current;
+
+    public SlidingWindowCounter(long windowMillis, long nowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be positive");
+        }
+        this.windowMillis = windowMillis;
+        this.windowStart = nowMillis;
+    }
+
+    public synchronized void increment(long nowMillis) {
+        roll(nowMillis);
+        current++;
+    }
+
+    /**
+     * Counts an event only if the estimate is still below {@code limit}, as one step so concurrent callers
+     * cannot all pass the check before any of them counts
+     *
+     * @return whether the event was counted
+     */
+    public synchronized boolean tryIncrement(long nowMillis, int limit) {
+        if (estimate(nowMillis) >= limit) {
+            return false;
+        }
+        current++;
+        return true;
+    }
+
+    /**
+     * Estimated number of events in the window ending at {@code nowMillis}
+     */
+    public synchronized double estimate(long nowMillis) {
+        roll(nowMillis);
+        double previousWeight = 1 - (double) (nowMillis - windowStart) / windowMillis;
+        return previous * previousWeight + current;
+    }
+
+    /**
+     * Milliseconds until the current fixed window ends, after which the estimate drops noticeably
+     */
+    public synchronized long millisUntilRoll(long nowMillis) {
+        roll(nowMillis);
+        return windowStart + windowMillis - nowMillis;
+    }
+
+    /**
+     * Whether no event was counted in the last two windows, so the counter can be dropped
+     */
+    public synchronized boolean isIdle(long nowMillis) {
+        roll(nowMillis);
+        return previous == 0 && current == 0;
+    }
+
+    private void roll(long nowMillis) {
+        long elapsedWindows = (nowMillis - windowStart) / windowMillis;
+        if (elapsedWindows > 0) {
+            previous = elapsedWindows == 1 ? current : 0;
+            current = 0;
+            windowStart += elapsedWindows * windowMillis;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.app.merrbioapi.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded table of token buckets keyed by string, e.g. a client address or a user.
+ * <p>
+ * Each bucket is a single "theoretical arrival time" updated by compare-and-set (the generic cell rate
+ * algorithm): taking a token pushes it one emission interval further, and refill is implied by the clock
+ * moving on, so nothing runs per bucket between requests. A bucket whose arrival time has passed is full and
+ * carries no information, which makes idle keys free to drop. Keys are spread over independent stripes that each
+ * hold a bounded number of buckets. A stripe that is full first drops its idle buckets, then the least recently
+ * drained bucket out of a small sample, like an approximate LRU.
+ */
+public class TokenBucketTable {
+
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final Map<String, AtomicLong>[] stripes;
+    private final int maxPerStripe;
+
+    @SuppressWarnings("unchecked")
+    public TokenBucketTable(int stripeCount, int maxKeys) {
+        if (stripeCount <= 0 || maxKeys <= 0) {
+            throw new IllegalArgumentException("stripeCount and maxKeys must be positive");
+        }
+        this.stripes = new Map[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.maxPerStripe = Math.max(1, maxKeys / stripeCount);
+    }
+
+    /**
+     * Takes one token from the key's bucket if it has one.
+     *
+     * @param capacity       bucket size, i.e. the burst allowed after a quiet period
+     * @param intervalNanos  time to refill one token
+     */
+    public Decision tryAcquire(String key, long nowNanos, int capacity, long intervalNanos) {
+        long burstNanos = capacity * intervalNanos;
+        AtomicLong bucket = bucketFor(key, nowNanos);
+        while (true) {
+            long arrival = bucket.get();
+            long next = Math.max(arrival, nowNanos) + intervalNanos;
+            long backlog = next - nowNanos;
+            if (backlog > burstNanos) {
+                // Empty: the next token is due once the backlog fits the burst again
+                return new Decision(false, 0, backlog - burstNanos, arrival - nowNanos);
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                int remaining = (int) ((burstNanos - backlog) / intervalNanos);
+                return new Decision(true, remaining, 0, backlog);
+            }
+        }
+    }
+
+    /**
+     * Drops every bucket that has refilled completely
+     */
+    public void removeIdle(long nowNanos) {
+        for (Map<String, AtomicLong> stripe : stripes) {
+            stripe.values().removeIf(bucket -> bucket.get() <= nowNanos);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private AtomicLong bucketFor(String key, long nowNanos) {
+        Map<String, AtomicLong> stripe = stripes[Math.floorMod(spread(key.hashCode()), stripes.length)];
+        AtomicLong bucket = stripe.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (stripe.size() >= maxPerStripe) {
+            evict(stripe, nowNanos);
+        }
+        return stripe.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+    }
+
+    private void evict(Map<String, AtomicLong> stripe, long nowNanos) {
+        stripe.values().removeIf(bucket -> bucket.get() <= nowNanos);
+        if (stripe.size() < maxPerStripe) {
+            return;
+        }
+        // Hash order is effectively random, so the first few entries are a fair sample
+        String oldestKey = null;
+        long oldestArrival = Long.MAX_VALUE;
+        Iterator<Map.Entry<String, AtomicLong>> entries = stripe.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLE && entries.hasNext(); i++) {
+            Map.Entry<String, AtomicLong> entry = entries.next();
+            long arrival = entry.getValue().get();
+            if (arrival < oldestArrival) {
+                oldestArrival = arrival;
+                oldestKey = entry.getKey();
+            }
+        }
+        if (oldestKey != null) {
+            stripe.remove(oldestKey);
+        }
+    }
+
+    // Stripe selection must not use the same low bits the stripe's own table does
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x45d9f3b >>> 7;
+    }
+
+    /**
+     * Outcome of one acquire. {@code resetNanos} is the time until the bucket is full again.
+     */
+    public record Decision(boolean allowed, int remaining, long retryAfterNanos, long resetNanos) {
+    }
+}
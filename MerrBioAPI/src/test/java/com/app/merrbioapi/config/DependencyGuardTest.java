@@ -0,0 +1,99 @@
+package com.app.merrbioapi.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyGuardTest {
+
+    private static final long TIMEOUT_MS = 100;
+
+    private final DependencyGuard guard = new DependencyGuard("test", settings(), false, new SimpleMeterRegistry());
+
+    private final AtomicInteger successes = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final CountDownLatch settled = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        guard.shutdown();
+    }
+
+    @Test
+    void submittedTaskReportsSuccess() throws InterruptedException {
+        assertTrue(submit(() -> null));
+
+        awaitSettled();
+        assertEquals(1, successes.get());
+        assertEquals(0, failures.get());
+    }
+
+    @Test
+    void anyExceptionReportsFailure() throws InterruptedException {
+        assertTrue(submit(() -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        awaitSettled();
+        assertEquals(0, successes.get());
+        assertEquals(1, failures.get());
+        assertTrue(failure.get() instanceof IllegalStateException);
+    }
+
+    @Test
+    void hungTaskTimesOutOnce() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        assertTrue(submit(() -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return null;
+        }));
+
+        awaitSettled();
+        assertTrue(failure.get() instanceof TimeoutException);
+        // Cancelling the hung call frees the thread, and its own failure is not reported again
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        Thread.sleep(20);
+        assertEquals(1, failures.get());
+        assertEquals(0, successes.get());
+    }
+
+    private boolean submit(Callable<?> task) {
+        return guard.submit(task,
+                () -> {
+                    successes.incrementAndGet();
+                    settled.countDown();
+                },
+                error -> {
+                    failures.incrementAndGet();
+                    failure.set(error);
+                    settled.countDown();
+                });
+    }
+
+    private void awaitSettled() throws InterruptedException {
+        assertTrue(settled.await(1, TimeUnit.SECONDS));
+    }
+
+    private static ResilienceProperties.DependencyProperties settings() {
+        ResilienceProperties.DependencyProperties settings = new ResilienceProperties.DependencyProperties();
+        settings.setThreads(1);
+        settings.setTimeoutMs(TIMEOUT_MS);
+        return settings;
+    }
+}
@@ -0,0 +1,130 @@
+package com.app.merrbioapi.config;
+
+import com.app.merrbioapi.model.enums.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Per-request cost of authenticating with an access token: verifying it and building the principal, which is
+ * what {@link JwtAuthenticationFilter} does for every request.
+ * <p>
+ * {@code cachedToken} is a client repeating its token. {@code uncachedToken} cycles through more tokens than the
+ * verified cache holds, so every call checks the signature and parses the JSON. {@code cachedTokenWithRevocations}
+ * is a cache hit while the denylist holds entries, so the revocation lookup is not skipped. Not run by the test
+ * phase; after {@code mvn test-compile} run {@link #main} with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final int CACHE_SIZE = 256;
+    private static final int UNCACHED_TOKENS = CACHE_SIZE * 4;
+
+    private JwtService jwtService;
+    private JwtService revokingJwtService;
+    private String token;
+    private String[] tokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.getAccessToken().setSecret(randomSecret());
+        jwtProperties.getAccessToken().setExpirationMs(TimeUnit.HOURS.toMillis(1));
+        jwtProperties.getRefreshToken().setSecret(randomSecret());
+        jwtProperties.getRefreshToken().setExpirationMs(TimeUnit.DAYS.toMillis(7));
+
+        jwtService = new JwtService(jwtProperties, denylist(jwtProperties), CACHE_SIZE);
+        TokenDenylist revokingDenylist = denylist(jwtProperties);
+        revokingJwtService = new JwtService(jwtProperties, revokingDenylist, CACHE_SIZE);
+        for (int i = 0; i < 100; i++) {
+            revokingDenylist.revokeSession(UUID.randomUUID());
+        }
+
+        token = jwtService.generateAccessToken(principal(), UUID.randomUUID());
+        tokens = new String[UNCACHED_TOKENS];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = jwtService.generateAccessToken(principal(), UUID.randomUUID());
+        }
+    }
+
+    @Benchmark
+    public UserPrincipal cachedToken() {
+        return jwtService.principalOf(jwtService.verifyAccessToken(token));
+    }
+
+    @Benchmark
+    public UserPrincipal uncachedToken() {
+        String current = tokens[next];
+        next = (next + 1) % tokens.length;
+        return jwtService.principalOf(jwtService.verifyAccessToken(current));
+    }
+
+    @Benchmark
+    public UserPrincipal cachedTokenWithRevocations() {
+        return revokingJwtService.principalOf(revokingJwtService.verifyAccessToken(token));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static TokenDenylist denylist(JwtProperties jwtProperties) {
+        TokenDenylist denylist = new TokenDenylist(new IsolatedChannel(), jwtProperties, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(denylist, "expectedEntries", 10_000);
+        ReflectionTestUtils.setField(denylist, "falsePositiveRate", 0.01);
+        denylist.init();
+        return denylist;
+    }
+
+    private static UserPrincipal principal() {
+        return new UserPrincipal(UUID.randomUUID(), "farmer@example.com", Role.FARMER, "Farmer", UUID.randomUUID());
+    }
+
+    /**
+     * Keeps each denylist to itself; the in-memory channel would share the revocations with the other one
+     */
+    private static final class IsolatedChannel implements RevocationChannel {
+
+        @Override
+        public void join(String nodeId, Consumer<TokenRevocation> receiver) {
+        }
+
+        @Override
+        public void leave(String nodeId) {
+        }
+
+        @Override
+        public void publish(TokenRevocation revocation) {
+        }
+    }
+
+    private static String randomSecret() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return Base64.getEncoder().encodeToString(secret);
+    }
+}
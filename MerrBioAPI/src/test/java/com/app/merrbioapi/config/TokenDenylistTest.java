@@ -0,0 +1,193 @@
+package com.app.merrbioapi.config;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenDenylistTest {
+
+    private static final long ACCESS_TOKEN_TTL_MS = 900_000;
+
+    private final RecordingChannel channel = new RecordingChannel();
+    private TokenDenylist denylist;
+
+    @BeforeEach
+    void setUp() {
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.getAccessToken().setExpirationMs(ACCESS_TOKEN_TTL_MS);
+        denylist = new TokenDenylist(channel, jwtProperties, new SimpleMeterRegistry());
+        // Small enough that the tests below grow the filter past its initial capacity
+        ReflectionTestUtils.setField(denylist, "expectedEntries", 4);
+        ReflectionTestUtils.setField(denylist, "falsePositiveRate", 0.01);
+        denylist.init();
+    }
+
+    @Test
+    void nothingRevokedAcceptsEveryToken() {
+        assertFalse(denylist.isRevoked(token(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), issuedBefore())));
+    }
+
+    @Test
+    void revokesSingleToken() {
+        UUID tokenId = UUID.randomUUID();
+        denylist.revokeToken(tokenId, Instant.now().plusMillis(ACCESS_TOKEN_TTL_MS));
+
+        assertTrue(denylist.isRevoked(token(tokenId, UUID.randomUUID(), UUID.randomUUID(), issuedBefore())));
+        assertFalse(denylist.isRevoked(token(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), issuedBefore())));
+    }
+
+    @Test
+    void revokesEveryTokenOfSession() {
+        UUID sessionId = UUID.randomUUID();
+        denylist.revokeSession(sessionId);
+
+        assertTrue(denylist.isRevoked(token(UUID.randomUUID(), sessionId, UUID.randomUUID(), issuedBefore())));
+        assertTrue(denylist.isRevoked(token(UUID.randomUUID(), sessionId, UUID.randomUUID(), issuedBefore())));
+    }
+
+    @Test
+    void revokesEveryTokenOfUser() {
+        UUID userId = UUID.randomUUID();
+        denylist.revokeUser(userId);
+
+        assertTrue(denylist.isRevoked(token(UUID.randomUUID(), UUID.randomUUID(), userId, issuedBefore())));
+    }
+
+    @Test
+    void tokensIssuedAfterRevocationAreAccepted() {
+        UUID userId = UUID.randomUUID();
+        denylist.revokeUser(userId);
+
+        Instant later = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        assertFalse(denylist.isRevoked(token(UUID.randomUUID(), UUID.randomUUID(), userId, later)));
+        // Without an issue time the token cannot show it is newer
+        assertTrue(denylist.isRevoked(token(UUID.randomUUID(), UUID.randomUUID(), userId, null)));
+    }
+
+    @Test
+    void scopesDoNotCollide() {
+        UUID id = UUID.randomUUID();
+        denylist.revokeUser(id);
+
+        assertFalse(denylist.isRevoked(token(id, id, UUID.randomUUID(), issuedBefore())));
+    }
+
+    @Test
+    void publishesRevocationsAsOwnNode() {
+        UUID sessionId = UUID.randomUUID();
+        denylist.revokeSession(sessionId);
+
+        assertEquals(1, channel.published.size());
+        TokenRevocation published = channel.published.get(0);
+        assertEquals(TokenRevocation.Scope.SESSION, published.getScope());
+        assertEquals(sessionId, published.getId());
+        assertEquals(channel.nodeId, published.getOriginNodeId());
+    }
+
+    @Test
+    void appliesRevocationsFromOtherNodes() {
+        UUID userId = UUID.randomUUID();
+        channel.receive(userId, Instant.now().plusMillis(ACCESS_TOKEN_TTL_MS));
+
+        assertTrue(denylist.isRevoked(token(UUID.randomUUID(), UUID.randomUUID(), userId, issuedBefore())));
+        assertTrue(channel.published.isEmpty());
+    }
+
+    @Test
+    void ignoresExpiredRevocationsFromOtherNodes() {
+        UUID userId = UUID.randomUUID();
+        channel.receive(userId, Instant.now().minusSeconds(1));
+
+        assertFalse(denylist.isRevoked(token(UUID.randomUUID(), UUID.randomUUID(), userId, issuedBefore())));
+    }
+
+    @Test
+    void purgeDropsExpiredEntriesOnly() throws InterruptedException {
+        UUID expiring = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        denylist.revokeToken(expiring, Instant.now().plusMillis(20));
+        denylist.revokeToken(kept, Instant.now().plusMillis(ACCESS_TOKEN_TTL_MS));
+
+        Thread.sleep(40);
+        denylist.purgeExpired();
+
+        assertFalse(denylist.isRevoked(token(expiring, UUID.randomUUID(), UUID.randomUUID(), issuedBefore())));
+        assertTrue(denylist.isRevoked(token(kept, UUID.randomUUID(), UUID.randomUUID(), issuedBefore())));
+    }
+
+    @Test
+    void keepsEveryEntryWhenFilterGrows() {
+        List<UUID> tokenIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            UUID tokenId = UUID.randomUUID();
+            tokenIds.add(tokenId);
+            denylist.revokeToken(tokenId, Instant.now().plusMillis(ACCESS_TOKEN_TTL_MS));
+        }
+
+        for (UUID tokenId : tokenIds) {
+            assertTrue(denylist.isRevoked(token(tokenId, UUID.randomUUID(), UUID.randomUUID(), issuedBefore())));
+        }
+    }
+
+    // Revocations are stamped with the current second, so anything a second earlier is covered
+    private static Instant issuedBefore() {
+        return Instant.now().minusSeconds(1);
+    }
+
+    private static VerifiedToken token(UUID tokenId, UUID sessionId, UUID userId, Instant issuedAt) {
+        Map<String, Object> claims = Map.of(
+                Claims.ID, tokenId.toString(),
+                JwtService.CLAIM_SESSION_ID, sessionId.toString(),
+                JwtService.CLAIM_USER_ID, userId.toString());
+        return new VerifiedToken(userId.toString(), issuedAt, null, claims);
+    }
+
+    /**
+     * Channel that records what the node publishes and lets a test deliver revocations from another node
+     */
+    private static final class RecordingChannel implements RevocationChannel {
+        private final List<TokenRevocation> published = new ArrayList<>();
+        private String nodeId;
+        private Consumer<TokenRevocation> receiver;
+
+        @Override
+        public void join(String nodeId, Consumer<TokenRevocation> receiver) {
+            this.nodeId = nodeId;
+            this.receiver = receiver;
+        }
+
+        @Override
+        public void leave(String nodeId) {
+            receiver = null;
+        }
+
+        @Override
+        public void publish(TokenRevocation revocation) {
+            published.add(revocation);
+        }
+
+        void receive(UUID userId, Instant expiresAt) {
+            receiver.accept(TokenRevocation.builder()
+                    .scope(TokenRevocation.Scope.USER)
+                    .id(userId)
+                    .revokedAt(Instant.now().truncatedTo(ChronoUnit.SECONDS))
+                    .expiresAt(expiresAt)
+                    .originNodeId("other-node")
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.app.merrbioapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    // The limiter stamps its creation with System.nanoTime(), so sample times are offsets from a later clock read
+    private final long t0 = System.nanoTime();
+
+    @Test
+    void admitsUpToTheLimit() {
+        AdaptiveConcurrencyLimit limiter = new AdaptiveConcurrencyLimit(3, 1, 10, 0.5, 2.0);
+
+        assertTrue(limiter.tryAcquire(1.0));
+        assertTrue(limiter.tryAcquire(1.0));
+        assertTrue(limiter.tryAcquire(1.0));
+        assertFalse(limiter.tryAcquire(1.0));
+
+        limiter.cancel();
+        assertTrue(limiter.tryAcquire(1.0));
+        assertEquals(3, limiter.getInFlight());
+    }
+
+    @Test
+    void shareReservesHeadroom() {
+        AdaptiveConcurrencyLimit limiter = new AdaptiveConcurrencyLimit(4, 1, 10, 0.5, 2.0);
+
+        assertTrue(limiter.tryAcquire(0.5));
+        assertTrue(limiter.tryAcquire(0.5));
+        assertFalse(limiter.tryAcquire(0.5));
+        // Full-share callers still get the rest
+        assertTrue(limiter.tryAcquire(1.0));
+    }
+
+    @Test
+    void fastRequestRaisesLimitWhenItIsInUse() {
+        AdaptiveConcurrencyLimit limiter = new AdaptiveConcurrencyLimit(4, 1, 10, 0.5, 2.0);
+        limiter.tryAcquire(1.0);
+        limiter.tryAcquire(1.0);
+
+        limiter.release(t0 + SECOND, t0 + SECOND + 100, false);
+
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void fastRequestKeepsLimitWhenMostlyIdle() {
+        AdaptiveConcurrencyLimit limiter = new AdaptiveConcurrencyLimit(10, 1, 20, 0.5, 2.0);
+        limiter.tryAcquire(1.0);
+
+        limiter.release(t0 + SECOND, t0 + SECOND + 100, false);
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void slowRequestCutsLimit() {
+        AdaptiveConcurrencyLimit limiter = baselineOf100(10);
+
+        sample(limiter, 2 * SECOND, 1_000, false);
+
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void droppedRequestCutsLimit() {
+        AdaptiveConcurrencyLimit limiter = baselineOf100(10);
+
+        sample(limiter, 2 * SECOND, 100, true);
+
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void requestsStartedBeforeTheCutDoNotCutAgain() {
+        AdaptiveConcurrencyLimit limiter = baselineOf100(10);
+        sample(limiter, 2 * SECOND, 1_000, false);
+
+        // Started with the first slow request and finished just after the cut
+        sample(limiter, 2 * SECOND, 1_500, false);
+        assertEquals(5, limiter.getLimit());
+
+        sample(limiter, 3 * SECOND, 1_000, false);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void limitStaysWithinBounds() {
+        AdaptiveConcurrencyLimit limiter = baselineOf100(4);
+        for (int i = 2; i < 10; i++) {
+            sample(limiter, i * SECOND, 1_000, true);
+        }
+        assertEquals(2, limiter.getLimit());
+
+        AdaptiveConcurrencyLimit capped = new AdaptiveConcurrencyLimit(3, 2, 3, 0.5, 2.0);
+        capped.tryAcquire(1.0);
+        capped.tryAcquire(1.0);
+        capped.release(t0 + SECOND, t0 + SECOND + 100, false);
+        assertEquals(3, capped.getLimit());
+    }
+
+    private AdaptiveConcurrencyLimit baselineOf100(int initialLimit) {
+        AdaptiveConcurrencyLimit limiter = new AdaptiveConcurrencyLimit(initialLimit, 2, 100, 0.5, 2.0);
+        sample(limiter, SECOND, 100, false);
+        assertEquals(initialLimit, limiter.getLimit());
+        return limiter;
+    }
+
+    private void sample(AdaptiveConcurrencyLimit limiter, long startOffset, long latency, boolean dropped) {
+        assertTrue(limiter.tryAcquire(1.0));
+        limiter.release(t0 + startOffset, t0 + startOffset + latency, dropped);
+    }
+}
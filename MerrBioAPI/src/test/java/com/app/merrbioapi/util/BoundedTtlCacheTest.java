@@ -0,0 +1,80 @@
+package com.app.merrbioapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BoundedTtlCacheTest {
+
+    @Test
+    void returnsValueUntilItExpires() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(4);
+        cache.put("a", "A", 100, 0);
+
+        assertEquals("A", cache.get("a", 99));
+        assertNull(cache.get("a", 100));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void ignoresAlreadyExpiredValues() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(4);
+        cache.put("a", "A", 10, 10);
+
+        assertNull(cache.get("a", 10));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void fullCacheEvictsLeastRecentlyRead() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(3);
+        cache.put("a", "A", 1_000, 0);
+        cache.put("b", "B", 1_000, 1);
+        cache.put("c", "C", 1_000, 2);
+        cache.get("a", 3);
+        cache.get("c", 4);
+
+        cache.put("d", "D", 1_000, 5);
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get("b", 6));
+        assertEquals("A", cache.get("a", 6));
+        assertEquals("D", cache.get("d", 6));
+    }
+
+    @Test
+    void fullCacheEvictsExpiredEntriesFirst() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2);
+        cache.put("old", "O", 10, 0);
+        cache.put("fresh", "F", 1_000, 5);
+
+        cache.put("new", "N", 1_000, 20);
+
+        assertEquals(2, cache.size());
+        assertEquals("F", cache.get("fresh", 21));
+        assertEquals("N", cache.get("new", 21));
+    }
+
+    @Test
+    void staysBoundedUnderChurn() {
+        BoundedTtlCache<Integer, Integer> cache = new BoundedTtlCache<>(100);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i, Long.MAX_VALUE, i);
+        }
+
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    void removesMatchingValues() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(4);
+        cache.put("a", "user-1", 100, 0);
+        cache.put("b", "user-2", 100, 0);
+
+        cache.removeValues("user-1"::equals);
+
+        assertNull(cache.get("a", 1));
+        assertEquals("user-2", cache.get("b", 1));
+    }
+}
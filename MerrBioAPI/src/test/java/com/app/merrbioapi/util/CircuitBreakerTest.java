@@ -0,0 +1,123 @@
+package com.app.merrbioapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_NANOS = 1_000;
+
+    // Window of 4, opens at 50% failures once 4 calls are recorded, lets 2 probes through
+    private final CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, OPEN_NANOS, 2);
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        fail(0);
+        fail(0);
+        fail(0);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void opensAtFailureRateThreshold() {
+        succeed();
+        succeed();
+        fail(0);
+        fail(0);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REFUSED, breaker.tryAcquire(OPEN_NANOS - 1));
+    }
+
+    @Test
+    void slidingWindowForgetsOldFailures() {
+        fail(0);
+        succeed();
+        succeed();
+        succeed();
+        // The first failure drops out of the window
+        succeed();
+        fail(0);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void closesAfterAllProbesSucceed() {
+        tripOpen();
+
+        long first = breaker.tryAcquire(OPEN_NANOS);
+        long second = breaker.tryAcquire(OPEN_NANOS);
+        assertNotEquals(CircuitBreaker.REFUSED, first);
+        assertNotEquals(CircuitBreaker.REFUSED, second);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REFUSED, breaker.tryAcquire(OPEN_NANOS));
+
+        breaker.onSuccess(first);
+        breaker.onSuccess(second);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void probeFailureReopens() {
+        tripOpen();
+
+        long probe = breaker.tryAcquire(OPEN_NANOS);
+        breaker.onFailure(probe, OPEN_NANOS);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REFUSED, breaker.tryAcquire(2 * OPEN_NANOS - 1));
+    }
+
+    @Test
+    void releasedProbeCanBeIssuedAgain() {
+        tripOpen();
+
+        long first = breaker.tryAcquire(OPEN_NANOS);
+        breaker.tryAcquire(OPEN_NANOS);
+        breaker.release(first);
+
+        assertNotEquals(CircuitBreaker.REFUSED, breaker.tryAcquire(OPEN_NANOS));
+    }
+
+    @Test
+    void lateOutcomesFromEarlierGenerationsAreIgnored() {
+        long slowCall = breaker.tryAcquire(0);
+        tripOpen();
+
+        long probe = breaker.tryAcquire(OPEN_NANOS);
+        // The slow call succeeding must not count as a probe
+        breaker.onSuccess(slowCall);
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(breaker.tryAcquire(OPEN_NANOS));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // Nor may its failure reach the freshly closed window
+        breaker.onFailure(slowCall, OPEN_NANOS);
+        fail(OPEN_NANOS);
+        succeed();
+        succeed();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 4; i++) {
+            fail(0);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void succeed() {
+        breaker.onSuccess(breaker.tryAcquire(0));
+    }
+
+    private void fail(long nowNanos) {
+        breaker.onFailure(breaker.tryAcquire(nowNanos), nowNanos);
+    }
+}
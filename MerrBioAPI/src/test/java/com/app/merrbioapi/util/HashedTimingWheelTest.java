@@ -0,0 +1,99 @@
+package com.app.merrbioapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimingWheelTest {
+
+    private final HashedTimingWheel<String> wheel = new HashedTimingWheel<>(10, 8);
+    private final Map<String, Long> deadlines = new HashMap<>();
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    void expiresKeyOnceItsDeadlinePasses() {
+        schedule("a", 50);
+
+        advance(40);
+        assertTrue(expired.isEmpty());
+
+        advance(50);
+        assertEquals(List.of("a"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void extendedDeadlineIsRebucketed() {
+        schedule("a", 50);
+        // A heartbeat moves the deadline without touching the wheel
+        deadlines.put("a", 120L);
+
+        advance(60);
+        assertTrue(expired.isEmpty());
+        assertEquals(1, wheel.size());
+
+        advance(120);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void deadlineBeyondOneRotationWaitsForLaterRotation() {
+        // 8 buckets of 10 ms cover 80 ms per rotation
+        schedule("a", 130);
+
+        advance(60);
+        advance(100);
+        assertTrue(expired.isEmpty());
+
+        advance(130);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void untrackedKeysAreDroppedWithoutExpiring() {
+        schedule("a", 30);
+        deadlines.put("a", -1L);
+
+        advance(40);
+
+        assertTrue(expired.isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void longPauseStillVisitsEveryBucket() {
+        schedule("a", 20);
+        schedule("b", 70);
+
+        advance(0);
+        advance(10_000);
+
+        assertEquals(2, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedulingTwiceExpiresOnce() {
+        schedule("a", 30);
+        schedule("a", 30);
+
+        advance(40);
+
+        assertEquals(List.of("a"), expired);
+    }
+
+    private void schedule(String key, long deadline) {
+        deadlines.put(key, deadline);
+        wheel.schedule(key, deadline);
+    }
+
+    private void advance(long now) {
+        wheel.advance(now, key -> deadlines.getOrDefault(key, -1L), expired::add);
+    }
+}
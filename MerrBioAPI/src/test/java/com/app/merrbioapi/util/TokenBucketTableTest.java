@@ -0,0 +1,92 @@
+package com.app.merrbioapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTableTest {
+
+    private static final long INTERVAL = 100;
+
+    private final TokenBucketTable table = new TokenBucketTable(4, 1_000);
+
+    @Test
+    void allowsBurstUpToCapacity() {
+        for (int i = 2; i >= 0; i--) {
+            TokenBucketTable.Decision decision = table.tryAcquire("a", 0, 3, INTERVAL);
+            assertTrue(decision.allowed());
+            assertEquals(i, decision.remaining());
+        }
+
+        TokenBucketTable.Decision refused = table.tryAcquire("a", 0, 3, INTERVAL);
+        assertFalse(refused.allowed());
+        assertEquals(0, refused.remaining());
+        assertEquals(INTERVAL, refused.retryAfterNanos());
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        drain("a", 3);
+
+        assertFalse(table.tryAcquire("a", INTERVAL - 1, 3, INTERVAL).allowed());
+        assertTrue(table.tryAcquire("a", INTERVAL, 3, INTERVAL).allowed());
+        assertFalse(table.tryAcquire("a", INTERVAL, 3, INTERVAL).allowed());
+    }
+
+    @Test
+    void refusedRequestsDoNotDrainFurther() {
+        drain("a", 3);
+        for (int i = 0; i < 10; i++) {
+            table.tryAcquire("a", 0, 3, INTERVAL);
+        }
+
+        assertTrue(table.tryAcquire("a", INTERVAL, 3, INTERVAL).allowed());
+    }
+
+    @Test
+    void resetIsTimeUntilFull() {
+        TokenBucketTable.Decision decision = table.tryAcquire("a", 0, 3, INTERVAL);
+        assertEquals(INTERVAL, decision.resetNanos());
+
+        decision = table.tryAcquire("a", 0, 3, INTERVAL);
+        assertEquals(2 * INTERVAL, decision.resetNanos());
+    }
+
+    @Test
+    void keysHaveSeparateBuckets() {
+        drain("a", 3);
+
+        assertTrue(table.tryAcquire("b", 0, 3, INTERVAL).allowed());
+    }
+
+    @Test
+    void removeIdleDropsOnlyRefilledBuckets() {
+        table.tryAcquire("a", 0, 3, INTERVAL);
+        drain("b", 3);
+
+        table.removeIdle(INTERVAL);
+
+        assertEquals(1, table.size());
+        // The dropped bucket starts full again
+        assertEquals(2, table.tryAcquire("a", INTERVAL, 3, INTERVAL).remaining());
+    }
+
+    @Test
+    void staysBoundedUnderManyKeys() {
+        TokenBucketTable small = new TokenBucketTable(2, 10);
+        for (int i = 0; i < 1_000; i++) {
+            // Nothing refills at time 0, so eviction has to fall back to the sample
+            small.tryAcquire("key-" + i, 0, 3, INTERVAL);
+        }
+
+        assertTrue(small.size() <= 10);
+    }
+
+    private void drain(String key, int capacity) {
+        for (int i = 0; i < capacity; i++) {
+            assertTrue(table.tryAcquire(key, 0, capacity, INTERVAL).allowed());
+        }
+    }
+}